@@ -0,0 +1,135 @@
+package otp2.shoppingcartapp.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import otp2.shoppingcartapp.classes.NumberInputParser;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NumberInputParser} against the parsing code it replaced
+ * ({@code Integer.parseInt} / {@code Double.parseDouble} with exceptions as control flow),
+ * on valid and on invalid input.
+ * <p>
+ * Every invocation parses the same eight inputs, so the scores are nanoseconds per
+ * parsed input. Run with {@code java -jar benchmarks/target/benchmarks.jar NumberInputParser}
+ * (see {@code benchmarks/pom.xml} for the build).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+@OperationsPerInvocation(NumberInputParserBenchmark.INPUTS)
+public class NumberInputParserBenchmark {
+
+    static final int INPUTS = 8;
+
+    private final String[] validCounts = {"3", "12", "7", "1,234", "42", "5", "19", "100"};
+    private final String[] validPrices = {"12.50", "2,5", "0.99", "1,234.56", "7", "19.90", "3.1", "250"};
+    private final String[] invalid = {"abc", "", "-", "1.2.3", "x5", "12a", "--1", "e"};
+
+    private final NumberInputParser parser = NumberInputParser.forLocale(Locale.ENGLISH);
+
+    /** Count check of onEnterItems before the parser. */
+    static long legacyCount(String input) {
+        try {
+            int n = Integer.parseInt(input.trim());
+            return n > 0 ? n : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Price check of askForPrice before the parser. */
+    static long legacyPrice(String input) {
+        try {
+            double p = Double.parseDouble(input.trim().replace(',', '.'));
+            return p < 0 ? -1 : (long) (p * 100);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Benchmark
+    public long countValidLegacy() {
+        long sum = 0;
+        for (String s : validCounts) {
+            sum += legacyCount(s);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long countValidParser() {
+        long sum = 0;
+        for (String s : validCounts) {
+            sum += parser.parseCount(s);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long countInvalidLegacy() {
+        long sum = 0;
+        for (String s : invalid) {
+            sum += legacyCount(s);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long countInvalidParser() {
+        long sum = 0;
+        for (String s : invalid) {
+            sum += parser.parseCount(s);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long priceValidLegacy() {
+        long sum = 0;
+        for (String s : validPrices) {
+            sum += legacyPrice(s);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long priceValidParser() {
+        long sum = 0;
+        for (String s : validPrices) {
+            sum += parser.parsePrice(s, 2);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long priceInvalidLegacy() {
+        long sum = 0;
+        for (String s : invalid) {
+            sum += legacyPrice(s);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long priceInvalidParser() {
+        long sum = 0;
+        for (String s : invalid) {
+            sum += parser.parsePrice(s, 2);
+        }
+        return sum;
+    }
+}
@@ -3,6 +3,7 @@ module com.example.otp2 {
     requires javafx.fxml;
     requires java.desktop;
     requires java.sql;
+    requires jdk.jfr;
     requires io.github.cdimascio.dotenv.java;
 
 
@@ -0,0 +1,40 @@
+package otp2.shoppingcartapp.classes;
+
+/**
+ * One price adjustment applied to a cart by a {@link PricingRule}
+ * (negative for discounts and promotions, positive for tax).
+ */
+public class CartAdjustment {
+
+    private final PricingRule.Type type;
+    private final String label;
+    private final double amount;
+
+    /**
+     * Creates an adjustment.
+     *
+     * @param type   type of the rule that produced it
+     * @param label  human readable description, e.g. "Tax 24%"
+     * @param amount signed amount added to the cart total
+     */
+    public CartAdjustment(PricingRule.Type type, String label, double amount) {
+        this.type = type;
+        this.label = label;
+        this.amount = amount;
+    }
+
+    /** @return type of the rule that produced the adjustment */
+    public PricingRule.Type getType() {
+        return type;
+    }
+
+    /** @return human readable description */
+    public String getLabel() {
+        return label;
+    }
+
+    /** @return signed amount added to the total */
+    public double getAmount() {
+        return amount;
+    }
+}
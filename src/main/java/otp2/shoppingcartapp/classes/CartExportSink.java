@@ -0,0 +1,37 @@
+package otp2.shoppingcartapp.classes;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of a {@link CartHistoryExporter} run.
+ * <p>
+ * Carts are passed one by one as primitive values, so a sink can encode them
+ * without creating a {@link CartResult} per row. The {@code prices} array is
+ * reused by the exporter and is only valid during the call.
+ */
+public interface CartExportSink extends Closeable {
+
+    /**
+     * Writes one cart with its items.
+     *
+     * @param id              cart ID
+     * @param customerId      customer ID, {@code null} for anonymous carts
+     * @param totalPrice      total price of the cart
+     * @param currency        ISO 4217 code of the total and the item prices
+     * @param language        language code of the cart
+     * @param createdAtMillis creation time in epoch milliseconds
+     * @param prices          item prices in item order
+     * @param itemCount       number of valid entries in {@code prices}
+     * @throws IOException if writing fails
+     */
+    void writeCart(long id, Integer customerId, double totalPrice, String currency, String language,
+                   long createdAtMillis, double[] prices, int itemCount) throws IOException;
+
+    /**
+     * Returns the number of bytes produced so far, before any compression.
+     *
+     * @return encoded size in bytes
+     */
+    long getBytesWritten();
+}
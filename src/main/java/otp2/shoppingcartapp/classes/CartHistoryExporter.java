@@ -0,0 +1,237 @@
+package otp2.shoppingcartapp.classes;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams all saved carts with their items from the database into a {@link CartExportSink}.
+ * <p>
+ * The query runs on a forward-only, read-only statement with a positive fetch size,
+ * which makes the MariaDB driver stream the result in batches of that many rows
+ * instead of loading it into memory. Rows arrive ordered by cart ID and are grouped
+ * back into carts with one reused price buffer, so memory use does not depend on the
+ * number of exported rows. Reads go to the given source, normally the read side of
+ * {@link ReadWriteRouter}, so an export does not load the primary.
+ */
+public class CartHistoryExporter {
+
+    /** Rows fetched from the server per round trip. */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    /**
+     * Carts joined with their items. Only the cart ID is ordered (an ordered scan of
+     * the primary key); the item position comes from {@code item_index}, which avoids
+     * a server-side sort of the whole join.
+     */
+    private static final String EXPORT_SQL =
+            "SELECT r.id, r.customer_id, r.total_price, r.currency, r.language, r.created_at, i.item_index, i.price " +
+                    "FROM cart_results r " +
+                    "LEFT JOIN cart_items i ON i.cart_result_id = r.id " +
+                    "%s ORDER BY r.id";
+
+    /**
+     * Seconds the server waits for the client to accept more rows. A slow sink
+     * (e.g. compression) must not make the server abort the stream.
+     */
+    private static final int NET_WRITE_TIMEOUT_SECONDS = 600;
+
+    /**
+     * Counters of one export run.
+     */
+    public static final class Stats {
+        private final long carts;
+        private final long rows;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        Stats(long carts, long rows, long bytes, long elapsedNanos) {
+            this.carts = carts;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /** @return number of exported carts */
+        public long getCarts() {
+            return carts;
+        }
+
+        /** @return number of result rows read (one per item, one per empty cart) */
+        public long getRows() {
+            return rows;
+        }
+
+        /** @return bytes produced by the sink, before compression */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /** @return duration of the export in nanoseconds */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /** @return result rows per second */
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : rows * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Returns a one-line summary with counts and throughput.
+         *
+         * @return human readable summary
+         */
+        public String summary() {
+            double seconds = elapsedNanos / 1e9;
+            return String.format(Locale.ROOT, "%d carts, %d rows, %.1f MB in %.1f s (%.0f rows/s, %.1f MB/s)",
+                    carts, rows, bytes / 1e6, seconds, getRowsPerSecond(),
+                    seconds == 0 ? 0.0 : bytes / 1e6 / seconds);
+        }
+    }
+
+    private final ConnectionSource source;
+    private final int fetchSize;
+    private final long progressEveryRows;
+
+    /**
+     * Creates an exporter.
+     *
+     * @param source            database to read from, preferably without a socket timeout
+     *                          (see {@link ReadWriteRouter#withoutSocketTimeouts()})
+     * @param fetchSize         rows per streamed batch
+     * @param progressEveryRows print a progress line after this many rows; 0 disables it
+     */
+    public CartHistoryExporter(ConnectionSource source, int fetchSize, long progressEveryRows) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("fetchSize must be positive");
+        }
+        this.source = source;
+        this.fetchSize = fetchSize;
+        this.progressEveryRows = progressEveryRows;
+    }
+
+    /**
+     * Opens an export file for writing. With {@code gzip} the output is compressed
+     * on the fly; otherwise the file channel is written directly.
+     *
+     * @param path target file; created or truncated
+     * @param gzip whether to compress
+     * @return channel to pass to a sink
+     * @throws IOException if the file cannot be opened
+     */
+    public static WritableByteChannel openOutput(Path path, boolean gzip) throws IOException {
+        if (gzip) {
+            return Channels.newChannel(new GZIPOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(path), 1 << 16), 1 << 16));
+        }
+        return FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Exports the carts into the sink. The sink is not closed.
+     *
+     * @param sink  destination
+     * @param since only carts created at or after this instant; {@code null} for all
+     * @return counters of the run
+     * @throws StorageException if the query fails
+     * @throws IOException      if the sink fails
+     */
+    public Stats export(CartExportSink sink, Instant since) throws IOException {
+        String sql = String.format(EXPORT_SQL, since != null ? "WHERE r.created_at >= ?" : "");
+        long start = System.nanoTime();
+
+        try (Connection conn = source.getConnection()) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("SET SESSION net_write_timeout = " + NET_WRITE_TIMEOUT_SECONDS);
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // ei kyselyn aikakatkaisua: vienti voi kestää pitkään
+                stmt.setQueryTimeout(0);
+                stmt.setFetchSize(fetchSize);
+                if (since != null) {
+                    stmt.setTimestamp(1, Timestamp.from(since));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    long[] counts = stream(rs, sink);
+                    return new Stats(counts[0], counts[1], sink.getBytesWritten(), System.nanoTime() - start);
+                }
+            }
+        } catch (SQLException e) {
+            throw new StorageException("Cart history export failed at " + source.getDescription(), e);
+        }
+    }
+
+    /**
+     * Groups the ordered rows into carts and writes them to the sink.
+     *
+     * @return exported carts and rows read
+     */
+    long[] stream(ResultSet rs, CartExportSink sink) throws SQLException, IOException {
+        long start = System.nanoTime();
+        long carts = 0;
+        long rows = 0;
+
+        long currentId = -1;
+        Integer customer = null;
+        double total = 0;
+        String currency = null;
+        String language = null;
+        long created = 0;
+        double[] prices = new double[16];
+        int count = 0;
+
+        while (rs.next()) {
+            rows++;
+            long id = rs.getLong(1);
+            if (id != currentId) {
+                if (currentId != -1) {
+                    sink.writeCart(currentId, customer, total, currency, language, created, prices, count);
+                    carts++;
+                }
+                currentId = id;
+                int customerId = rs.getInt(2);
+                customer = rs.wasNull() ? null : customerId;
+                total = rs.getDouble(3);
+                currency = rs.getString(4);
+                if (currency == null) {
+                    currency = Currencies.DEFAULT_CURRENCY;
+                }
+                language = rs.getString(5);
+                Timestamp ts = rs.getTimestamp(6);
+                created = ts != null ? ts.getTime() : 0;
+                count = 0;
+            }
+            int itemIndex = rs.getInt(7);
+            if (!rs.wasNull()) {
+                if (itemIndex > prices.length) {
+                    prices = Arrays.copyOf(prices, Math.max(itemIndex, prices.length * 2));
+                }
+                prices[itemIndex - 1] = rs.getDouble(8);
+                count = Math.max(count, itemIndex);
+            }
+            if (progressEveryRows > 0 && rows % progressEveryRows == 0) {
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf(Locale.ROOT, "… %d rows, %d carts (%.0f rows/s)%n",
+                        rows, carts, rows / Math.max(seconds, 1e-9));
+            }
+        }
+        if (currentId != -1) {
+            sink.writeCart(currentId, customer, total, currency, language, created, prices, count);
+            carts++;
+        }
+        return new long[]{carts, rows};
+    }
+}
@@ -12,12 +12,22 @@ public class CartLogic {
         return sum;
     }
 
+    /**
+     * Calculates the total of a cart with tax, discounts and promotions applied.
+     * <p>
+     * For many carts, reuse one {@link PricingPlan.Evaluator} or use
+     * {@link PricingPlan#priceAll(String, ExchangeRateTable, long[], int[], long[], long[])} instead.
+     *
+     * @param prices   item prices in minor units of the currency
+     * @param plan     compiled pricing rules
+     * @param currency ISO 4217 code of the prices
+     * @return the final total in minor units
+     */
+    public static long calculateTotal(List<Long> prices, PricingPlan plan, String currency) {
+        return plan.newEvaluator(currency).price(prices);
+    }
+
     public static boolean isValidCount(String input) {
-        try {
-            int n = Integer.parseInt(input);
-            return n > 0;
-        } catch (Exception e) {
-            return false;
-        }
+        return NumberInputParser.ROOT.parseCount(input) > 0;
     }
 }
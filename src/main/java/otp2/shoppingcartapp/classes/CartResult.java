@@ -0,0 +1,174 @@
+package otp2.shoppingcartapp.classes;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Immutable value object describing one completed shopping cart.
+ * <p>
+ * Item prices are kept in a primitive array so that repositories can store
+ * carts without boxing every price. Optional parts (identity, pricing
+ * adjustments, currency) are added with the {@code with...} methods.
+ * Carts without an explicit currency are in {@link Currencies#DEFAULT_CURRENCY}.
+ */
+public class CartResult {
+
+    private final long id;
+    private final Instant createdAt;
+    private final double[] prices;
+    private final double totalPrice;
+    private final String language;
+    private final Integer customerId;
+    private final List<CartAdjustment> adjustments;
+    private final String currency;
+
+    /**
+     * Creates a stored cart result, e.g. one read back from the history.
+     *
+     * @param id         ID assigned by the repository
+     * @param createdAt  time the cart was stored; may be {@code null}
+     * @param prices     individual item prices, copied by this constructor
+     * @param totalPrice total price of the cart
+     * @param language   language code in which the cart was created (e.g. "en")
+     * @param customerId optional customer ID; may be {@code null} for anonymous carts
+     */
+    public CartResult(long id, Instant createdAt, double[] prices, double totalPrice,
+                      String language, Integer customerId) {
+        this(id, createdAt, prices.clone(), totalPrice, language, customerId, List.of(),
+                Currencies.DEFAULT_CURRENCY);
+    }
+
+    private CartResult(long id, Instant createdAt, double[] prices, double totalPrice,
+                       String language, Integer customerId, List<CartAdjustment> adjustments,
+                       String currency) {
+        this.id = id;
+        this.createdAt = createdAt;
+        this.prices = prices;
+        this.totalPrice = totalPrice;
+        this.language = language;
+        this.customerId = customerId;
+        this.adjustments = adjustments;
+        this.currency = currency;
+    }
+
+    /**
+     * Creates a new, not yet stored cart result.
+     *
+     * @param prices     individual item prices, copied by this constructor
+     * @param totalPrice total price of the cart
+     * @param language   language code in which the cart was created (e.g. "en")
+     * @param customerId optional customer ID; may be {@code null} for anonymous carts
+     */
+    public CartResult(double[] prices, double totalPrice, String language, Integer customerId) {
+        this(0, null, prices, totalPrice, language, customerId);
+    }
+
+    /**
+     * Creates a cart result from a list of prices.
+     *
+     * @param prices     individual item prices
+     * @param totalPrice total price of the cart
+     * @param language   language code in which the cart was created
+     * @param customerId optional customer ID; may be {@code null}
+     */
+    public CartResult(List<Double> prices, double totalPrice, String language, Integer customerId) {
+        this(toArray(prices), totalPrice, language, customerId);
+    }
+
+    private static double[] toArray(List<Double> prices) {
+        double[] array = new double[prices.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = prices.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Returns a copy of this cart with the identity assigned by a repository.
+     *
+     * @param id        generated ID
+     * @param createdAt storage time
+     * @return the stored cart
+     */
+    public CartResult withIdentity(long id, Instant createdAt) {
+        return new CartResult(id, createdAt, prices, totalPrice, language, customerId, adjustments, currency);
+    }
+
+    /**
+     * Returns a copy of this cart with the pricing adjustments that led to its total.
+     *
+     * @param adjustments applied tax, discount and promotion amounts
+     * @return the cart with adjustments
+     */
+    public CartResult withAdjustments(List<CartAdjustment> adjustments) {
+        return new CartResult(id, createdAt, prices, totalPrice, language, customerId,
+                List.copyOf(adjustments), currency);
+    }
+
+    /**
+     * Returns a copy of this cart whose prices and total are in the given currency.
+     *
+     * @param currency ISO 4217 code, e.g. {@code "PKR"}
+     * @return the cart with currency
+     * @throws IllegalArgumentException if the code is not a known currency
+     */
+    public CartResult withCurrency(String currency) {
+        return new CartResult(id, createdAt, prices, totalPrice, language, customerId, adjustments,
+                Currencies.normalize(currency));
+    }
+
+    /** @return repository ID, 0 if the cart has not been stored */
+    public long getId() {
+        return id;
+    }
+
+    /** @return time the cart was stored, or {@code null} if unknown */
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /** @return number of items in the cart */
+    public int getItemCount() {
+        return prices.length;
+    }
+
+    /**
+     * Returns the price of one item.
+     *
+     * @param index zero-based item index
+     * @return the item price
+     */
+    public double getPrice(int index) {
+        return prices[index];
+    }
+
+    /** @return a copy of all item prices */
+    public double[] getPrices() {
+        return prices.clone();
+    }
+
+    /** @return total price of the cart */
+    public double getTotalPrice() {
+        return totalPrice;
+    }
+
+    /** @return language code of the cart */
+    public String getLanguage() {
+        return language;
+    }
+
+    /** @return customer ID, or {@code null} for anonymous carts */
+    public Integer getCustomerId() {
+        return customerId;
+    }
+
+    /** @return pricing adjustments applied to the cart; empty if none were recorded */
+    public List<CartAdjustment> getAdjustments() {
+        return adjustments;
+    }
+
+    /** @return ISO 4217 code of the prices and the total */
+    public String getCurrency() {
+        return currency;
+    }
+}
@@ -0,0 +1,34 @@
+package otp2.shoppingcartapp.classes;
+
+import java.util.List;
+
+/**
+ * Storage abstraction for completed shopping carts.
+ * <p>
+ * Implementations:
+ * <ul>
+ *     <li>{@link JdbcCartResultRepository} – MariaDB tables <code>cart_results</code> and <code>cart_items</code></li>
+ *     <li>{@link InMemoryCartResultRepository} – lock-free in-process storage for tests and benchmarks</li>
+ * </ul>
+ */
+public interface CartResultRepository {
+
+    /**
+     * Persists a cart and all of its items.
+     *
+     * @param cart the cart to store
+     * @return the generated cart ID
+     * @throws StorageException if the cart could not be stored
+     */
+    long save(CartResult cart);
+
+    /**
+     * Returns the most recently saved carts, newest first.
+     *
+     * @param customerId only carts of this customer; {@code null} for all carts
+     * @param limit      maximum number of carts to return
+     * @return stored carts including their items, IDs and creation times
+     * @throws StorageException if the storage cannot be reached
+     */
+    List<CartResult> findHistory(Integer customerId, int limit);
+}
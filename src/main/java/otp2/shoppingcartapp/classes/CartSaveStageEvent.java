@@ -0,0 +1,45 @@
+package otp2.shoppingcartapp.classes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one stage of saving a cart to the database:
+ * {@code connect}, {@code insert-result}, {@code insert-items} (items and
+ * pricing adjustments) or {@code commit}.
+ */
+@Name("otp2.CartSaveStage")
+@Label("Cart Save Stage")
+@Category({"OTP2 Shopping Cart", "Database"})
+@Description("One stage of persisting a shopping cart")
+@StackTrace(false)
+public class CartSaveStageEvent extends jdk.jfr.Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Item Count")
+    int itemCount;
+
+    @Label("Cart ID")
+    @Description("Generated cart ID, 0 before the result row is inserted")
+    long cartId;
+
+    /**
+     * Creates the event and starts its timer.
+     *
+     * @param stage     stage name
+     * @param itemCount number of items in the cart
+     * @return the started event; call {@link #commit()} when the stage ends
+     */
+    static CartSaveStageEvent start(String stage, int itemCount) {
+        CartSaveStageEvent event = new CartSaveStageEvent();
+        event.stage = stage;
+        event.itemCount = itemCount;
+        event.begin();
+        return event;
+    }
+}
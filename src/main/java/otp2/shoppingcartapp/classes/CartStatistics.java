@@ -0,0 +1,404 @@
+package otp2.shoppingcartapp.classes;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process streaming statistics over the saved carts.
+ * <p>
+ * Every recorded cart updates a {@link QuantileSketch} of the total price and of
+ * the basket size, plus {@link FixedHistogram}s with fixed buckets, once for all
+ * carts and once for the cart's language. Totals are recorded in
+ * {@link Currencies#DEFAULT_CURRENCY}: carts in other currencies are converted with
+ * the current {@link ExchangeRateService} rates, and carts whose currency has no rate
+ * are left out (see {@link #getUnconvertedCount()}), so no group mixes currencies.
+ * Memory stays bounded by the number of
+ * languages, and percentile questions are answered from the sketches in
+ * microseconds instead of scanning <code>cart_results</code>.
+ * <p>
+ * The statistics are fed live by {@link ShoppingCartResultService#addSaveListener}
+ * or by replaying the history: the class is a {@link CartExportSink}, so
+ * {@link CartHistoryExporter} can stream the whole table through it. Snapshots
+ * can be persisted periodically with {@link #startSnapshots(CartStatisticsRepository, long)}.
+ * <p>
+ * The statistics only cover the carts recorded by this object. Snapshots are
+ * stored under its {@link #getInstanceId() instance ID}, and the repository merges
+ * the newest snapshot of every instance, so several desktop clients add up instead
+ * of overwriting each other. A persisted instance ID must therefore be stable: the
+ * application uses {@link #defaultInstanceId()} ({@code STATS_INSTANCE_ID}, else the
+ * host name) and {@link #resume resumes} from the instance's last snapshot after a
+ * restart, so the number of instances the repository merges stays bounded by the
+ * number of clients. Random IDs are only for statistics that are not persisted.
+ */
+public class CartStatistics implements CartExportSink, AutoCloseable {
+
+    /** Language key of the statistics over all carts. */
+    public static final String ALL_LANGUAGES = "*";
+
+    /** Bucket bounds of the total price histograms. */
+    public static final double[] TOTAL_BUCKETS = {5, 10, 20, 50, 100, 200, 500, 1000};
+    /** Bucket bounds of the basket size histograms. */
+    public static final double[] ITEM_BUCKETS = {1, 2, 3, 5, 8, 13, 21};
+
+    /** Sketches and histograms of one language. */
+    private static final class Group {
+        final QuantileSketch totals = new QuantileSketch();
+        final QuantileSketch itemCounts = new QuantileSketch();
+        final FixedHistogram totalHistogram = new FixedHistogram(TOTAL_BUCKETS);
+        final FixedHistogram itemHistogram = new FixedHistogram(ITEM_BUCKETS);
+
+        void record(int items, double total) {
+            totals.add(total);
+            itemCounts.add(items);
+            totalHistogram.add(total);
+            itemHistogram.add(items);
+        }
+
+        void resume(CartStatisticsSnapshot snapshot) {
+            totals.merge(snapshot.getTotals());
+            itemCounts.merge(snapshot.getItemCounts());
+            totalHistogram.merge(snapshot.getTotalHistogram());
+            itemHistogram.merge(snapshot.getItemHistogram());
+        }
+
+        CartStatisticsSnapshot snapshot(Instant takenAt, String language, String instanceId) {
+            FixedHistogram totalCopy = new FixedHistogram(TOTAL_BUCKETS);
+            totalCopy.merge(totalHistogram);
+            FixedHistogram itemCopy = new FixedHistogram(ITEM_BUCKETS);
+            itemCopy.merge(itemHistogram);
+            return new CartStatisticsSnapshot(takenAt, language, instanceId,
+                    QuantileSketch.fromBytes(totals.toBytes()),
+                    QuantileSketch.fromBytes(itemCounts.toBytes()),
+                    totalCopy, itemCopy);
+        }
+    }
+
+    private final String instanceId;
+    private final ExchangeRateService exchangeRates;
+    private final LongAdder unconverted = new LongAdder();
+    private final Group all = new Group();
+    private final Map<String, Group> byLanguage = new ConcurrentHashMap<>();
+    private ScheduledExecutorService snapshotter;
+
+    /**
+     * Creates empty statistics with a random instance ID and no exchange rates;
+     * only carts in {@link Currencies#DEFAULT_CURRENCY} are recorded. Use a stable
+     * ID instead if the snapshots are persisted.
+     */
+    public CartStatistics() {
+        this(UUID.randomUUID().toString());
+    }
+
+    /**
+     * Creates empty statistics with a random instance ID. Use a stable ID instead
+     * if the snapshots are persisted.
+     *
+     * @param exchangeRates rates for converting the totals to {@link Currencies#DEFAULT_CURRENCY}
+     */
+    public CartStatistics(ExchangeRateService exchangeRates) {
+        this(UUID.randomUUID().toString(), exchangeRates);
+    }
+
+    /**
+     * Creates empty statistics without exchange rates; only carts in
+     * {@link Currencies#DEFAULT_CURRENCY} are recorded.
+     *
+     * @param instanceId ID the snapshots are stored under (at most 64 characters);
+     *                   must be unique per process
+     */
+    public CartStatistics(String instanceId) {
+        this(instanceId, new ExchangeRateService(() -> ExchangeRateTable.EMPTY));
+    }
+
+    /**
+     * Creates empty statistics.
+     *
+     * @param instanceId    ID the snapshots are stored under (at most 64 characters);
+     *                      must be unique per process
+     * @param exchangeRates rates for converting the totals to {@link Currencies#DEFAULT_CURRENCY}
+     */
+    public CartStatistics(String instanceId, ExchangeRateService exchangeRates) {
+        this.instanceId = instanceId;
+        this.exchangeRates = exchangeRates;
+    }
+
+    /** @return ID the snapshots of this object are stored under */
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * Returns the instance ID of this process: {@code STATS_INSTANCE_ID} if set, else
+     * the host name. Set {@code STATS_INSTANCE_ID} when several clients run on one host.
+     *
+     * @return ID of at most 64 characters
+     */
+    public static String defaultInstanceId() {
+        String id = DatabaseConfig.getEnv("STATS_INSTANCE_ID", "");
+        if (id.isEmpty()) {
+            try {
+                id = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                id = UUID.randomUUID().toString();
+                System.err.println("❌ Host name not known, cart statistics use the random instance ID " + id);
+            }
+        }
+        return id.length() > 64 ? id.substring(0, 64) : id;
+    }
+
+    /**
+     * Continues the statistics of this instance from its newest stored snapshots, so
+     * a restart adds to them instead of starting a new instance. Carts recorded after
+     * the last snapshot before the restart are lost. Call it once, before the first
+     * snapshot is written.
+     *
+     * @param repository storage of the snapshots
+     * @return number of carts resumed
+     * @throws StorageException if the storage cannot be reached
+     */
+    public long resume(CartStatisticsRepository repository) {
+        long carts = 0;
+        for (CartStatisticsSnapshot snapshot : repository.findLatestOf(instanceId)) {
+            Group group = ALL_LANGUAGES.equals(snapshot.getLanguage())
+                    ? all
+                    : byLanguage.computeIfAbsent(snapshot.getLanguage(), l -> new Group());
+            group.resume(snapshot);
+            if (group == all) {
+                carts = snapshot.getCartCount();
+            }
+        }
+        return carts;
+    }
+
+    /**
+     * Records one saved cart.
+     *
+     * @param cart the cart
+     */
+    public void record(CartResult cart) {
+        record(cart.getLanguage(), cart.getItemCount(), cart.getTotalPrice(), cart.getCurrency());
+    }
+
+    /**
+     * Records one cart, converting its total to {@link Currencies#DEFAULT_CURRENCY}.
+     * A cart whose currency has no exchange rate is only counted in
+     * {@link #getUnconvertedCount()}.
+     *
+     * @param language  language code of the cart
+     * @param itemCount number of items
+     * @param total     total price in {@code currency}
+     * @param currency  ISO 4217 code of the total; {@code null} for {@link Currencies#DEFAULT_CURRENCY}
+     */
+    public void record(String language, int itemCount, double total, String currency) {
+        if (currency != null && !Currencies.DEFAULT_CURRENCY.equals(currency)) {
+            try {
+                total = exchangeRates.current().convert(total, currency, Currencies.DEFAULT_CURRENCY);
+            } catch (IllegalArgumentException e) {
+                unconverted.increment();
+                return;
+            }
+        }
+        record(language, itemCount, total);
+    }
+
+    /**
+     * Records one cart whose total is already in {@link Currencies#DEFAULT_CURRENCY}.
+     *
+     * @param language  language code of the cart
+     * @param itemCount number of items
+     * @param total     total price in {@link Currencies#DEFAULT_CURRENCY}
+     */
+    public void record(String language, int itemCount, double total) {
+        all.record(itemCount, total);
+        byLanguage.computeIfAbsent(language != null ? language : "", l -> new Group()).record(itemCount, total);
+    }
+
+    /**
+     * Records a cart streamed by {@link CartHistoryExporter} (history replay).
+     */
+    @Override
+    public void writeCart(long id, Integer customerId, double totalPrice, String currency, String language,
+                          long createdAtMillis, double[] prices, int itemCount) {
+        record(language, itemCount, totalPrice, currency);
+    }
+
+    /**
+     * Replays the latest carts of a repository into the statistics. For the
+     * whole history of a database use {@link CartHistoryExporter#export} with
+     * this object as the sink, which streams in constant memory.
+     *
+     * @param repository source of the carts
+     * @param limit      maximum number of carts
+     * @return number of carts recorded
+     */
+    public int replay(CartResultRepository repository, int limit) {
+        List<CartResult> carts = repository.findHistory(null, limit);
+        carts.forEach(this::record);
+        return carts.size();
+    }
+
+    private Group group(String language) {
+        return ALL_LANGUAGES.equals(language) ? all : byLanguage.get(language);
+    }
+
+    /**
+     * Returns the number of recorded carts.
+     *
+     * @param language language code or {@link #ALL_LANGUAGES}
+     * @return cart count, 0 for an unknown language
+     */
+    public long getCount(String language) {
+        Group g = group(language);
+        return g == null ? 0 : g.totals.getCount();
+    }
+
+    /**
+     * Returns a percentile of the cart totals.
+     *
+     * @param language   language code or {@link #ALL_LANGUAGES}
+     * @param percentile percentile between 0 and 100
+     * @return the estimated total, NaN if no carts were recorded
+     */
+    public double getTotalPercentile(String language, double percentile) {
+        Group g = group(language);
+        return g == null ? Double.NaN : g.totals.quantile(percentile / 100.0);
+    }
+
+    /**
+     * Returns a percentile of the basket sizes.
+     *
+     * @param language   language code or {@link #ALL_LANGUAGES}
+     * @param percentile percentile between 0 and 100
+     * @return the estimated item count, NaN if no carts were recorded
+     */
+    public double getItemCountPercentile(String language, double percentile) {
+        Group g = group(language);
+        return g == null ? Double.NaN : g.itemCounts.quantile(percentile / 100.0);
+    }
+
+    /**
+     * Returns the total price histogram of a language.
+     *
+     * @param language language code or {@link #ALL_LANGUAGES}
+     * @return bucket counts ({@link #TOTAL_BUCKETS} plus overflow); all zero for an unknown language
+     */
+    public long[] getTotalHistogram(String language) {
+        Group g = group(language);
+        return g == null ? new long[TOTAL_BUCKETS.length + 1] : g.totalHistogram.getCounts();
+    }
+
+    /** @return number of carts left out because their currency had no exchange rate */
+    public long getUnconvertedCount() {
+        return unconverted.sum();
+    }
+
+    /** @return languages with recorded carts, sorted */
+    public Set<String> getLanguages() {
+        return new TreeSet<>(byLanguage.keySet());
+    }
+
+    /**
+     * Takes a snapshot of all languages plus one over all carts.
+     *
+     * @param takenAt time stamp of the snapshots
+     * @return snapshots, the {@link #ALL_LANGUAGES} one first
+     */
+    public List<CartStatisticsSnapshot> snapshot(Instant takenAt) {
+        List<CartStatisticsSnapshot> snapshots = new ArrayList<>();
+        snapshots.add(all.snapshot(takenAt, ALL_LANGUAGES, instanceId));
+        for (String language : getLanguages()) {
+            snapshots.add(byLanguage.get(language).snapshot(takenAt, language, instanceId));
+        }
+        return snapshots;
+    }
+
+    /**
+     * Persists a snapshot every {@code periodSeconds} on a daemon thread.
+     * Nothing is written while no cart has been recorded. A failed write is logged
+     * and retried at the next period.
+     *
+     * @param repository    target of the snapshots
+     * @param periodSeconds seconds between two snapshots
+     */
+    public synchronized void startSnapshots(CartStatisticsRepository repository, long periodSeconds) {
+        if (snapshotter != null) {
+            return;
+        }
+        snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cart-stats-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshotter.scheduleAtFixedRate(() -> {
+            if (getCount(ALL_LANGUAGES) == 0) {
+                return;
+            }
+            try {
+                repository.saveAll(snapshot(Instant.now()));
+            } catch (RuntimeException e) {
+                // muuten scheduleAtFixedRate lopettaisi hiljaa kaikki seuraavat snapshotit
+                System.err.println("❌ Cart statistics snapshot failed: " + e.getMessage());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns one line per language with count and total/basket-size percentiles
+     * (totals in {@link Currencies#DEFAULT_CURRENCY}).
+     *
+     * @return human readable summary
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        List<String> languages = new ArrayList<>();
+        languages.add(ALL_LANGUAGES);
+        languages.addAll(getLanguages());
+        for (String language : languages) {
+            if (sb.length() > 0) {
+                sb.append(System.lineSeparator());
+            }
+            sb.append(String.format(Locale.ROOT,
+                    "%-3s n=%d total p50=%.2f p90=%.2f p99=%.2f items p50=%.0f p99=%.0f",
+                    language, getCount(language),
+                    getTotalPercentile(language, 50), getTotalPercentile(language, 90),
+                    getTotalPercentile(language, 99),
+                    getItemCountPercentile(language, 50), getItemCountPercentile(language, 99)));
+        }
+        long skipped = getUnconvertedCount();
+        if (skipped > 0) {
+            sb.append(System.lineSeparator())
+                    .append(skipped).append(" carts left out: no exchange rate to ").append(Currencies.DEFAULT_CURRENCY);
+        }
+        return sb.toString();
+    }
+
+    /** @return always 0; the statistics sink writes no bytes */
+    @Override
+    public long getBytesWritten() {
+        return 0;
+    }
+
+    /**
+     * Stops the periodic snapshots.
+     */
+    @Override
+    public synchronized void close() {
+        if (snapshotter != null) {
+            snapshotter.shutdownNow();
+            snapshotter = null;
+        }
+    }
+}
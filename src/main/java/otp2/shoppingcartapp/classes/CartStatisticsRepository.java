@@ -0,0 +1,54 @@
+package otp2.shoppingcartapp.classes;
+
+import java.util.List;
+
+/**
+ * Storage abstraction for persisted {@link CartStatisticsSnapshot}s.
+ * <p>
+ * Implementations:
+ * <ul>
+ *     <li>{@link JdbcCartStatisticsRepository} – MariaDB table <code>cart_stats_snapshots</code></li>
+ *     <li>{@link InMemoryCartStatisticsRepository} – in-process storage for tests and load tests</li>
+ * </ul>
+ */
+public interface CartStatisticsRepository {
+
+    /**
+     * Persists the snapshots of one point in time.
+     *
+     * @param snapshots snapshots to store
+     * @throws StorageException if the snapshots could not be stored
+     */
+    void saveAll(List<CartStatisticsSnapshot> snapshots);
+
+    /**
+     * Returns the statistics of a language over all instances: the newest snapshot
+     * of every instance, merged with {@link CartStatisticsSnapshot#merge}.
+     *
+     * @param language language code or {@link CartStatistics#ALL_LANGUAGES}
+     * @return the merged snapshot, or {@code null} if none was stored
+     * @throws StorageException if the storage cannot be reached
+     */
+    CartStatisticsSnapshot findLatest(String language);
+
+    /**
+     * Returns the newest snapshot of every language written by one instance, used by
+     * {@link CartStatistics#resume} after a restart.
+     *
+     * @param instanceId instance ID
+     * @return one snapshot per language; empty if the instance has not stored any
+     * @throws StorageException if the storage cannot be reached
+     */
+    List<CartStatisticsSnapshot> findLatestOf(String instanceId);
+
+    /**
+     * Returns the latest stored snapshots of a language, newest first. Each one
+     * covers only the instance that wrote it.
+     *
+     * @param language language code or {@link CartStatistics#ALL_LANGUAGES}
+     * @param limit    maximum number of snapshots
+     * @return stored snapshots
+     * @throws StorageException if the storage cannot be reached
+     */
+    List<CartStatisticsSnapshot> findHistory(String language, int limit);
+}
@@ -0,0 +1,141 @@
+package otp2.shoppingcartapp.classes;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Frozen copy of the cart statistics of one language (or of all languages,
+ * {@link CartStatistics#ALL_LANGUAGES}) at one point in time.
+ * <p>
+ * A snapshot covers the carts recorded by one application instance since it started.
+ * Snapshots are persisted through a {@link CartStatisticsRepository}; their
+ * sketches answer percentile questions without touching <code>cart_results</code>,
+ * and the snapshots of several instances are combined with {@link #merge}.
+ */
+public class CartStatisticsSnapshot {
+
+    /** Instance ID of a snapshot merged from several instances. */
+    public static final String MERGED = "*";
+
+    private final Instant takenAt;
+    private final String language;
+    private final String instanceId;
+    private final QuantileSketch totals;
+    private final QuantileSketch itemCounts;
+    private final FixedHistogram totalHistogram;
+    private final FixedHistogram itemHistogram;
+
+    /**
+     * Creates a snapshot. The sketches and histograms are owned by the snapshot
+     * and must not be modified afterwards.
+     *
+     * @param takenAt        time of the snapshot
+     * @param language       language code, or {@link CartStatistics#ALL_LANGUAGES}
+     * @param instanceId     instance that recorded the carts ({@link CartStatistics#getInstanceId()})
+     * @param totals         sketch of the cart totals
+     * @param itemCounts     sketch of the item counts
+     * @param totalHistogram histogram of the cart totals ({@link CartStatistics#TOTAL_BUCKETS})
+     * @param itemHistogram  histogram of the item counts ({@link CartStatistics#ITEM_BUCKETS})
+     */
+    public CartStatisticsSnapshot(Instant takenAt, String language, String instanceId,
+                                  QuantileSketch totals, QuantileSketch itemCounts,
+                                  FixedHistogram totalHistogram, FixedHistogram itemHistogram) {
+        this.takenAt = takenAt;
+        this.language = language;
+        this.instanceId = instanceId;
+        this.totals = totals;
+        this.itemCounts = itemCounts;
+        this.totalHistogram = totalHistogram;
+        this.itemHistogram = itemHistogram;
+    }
+
+    /** @return time of the snapshot */
+    public Instant getTakenAt() {
+        return takenAt;
+    }
+
+    /** @return language code, or {@link CartStatistics#ALL_LANGUAGES} */
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * Merges snapshots of the same language taken by different instances, which
+     * cover disjoint sets of carts, into one snapshot of all their carts.
+     *
+     * @param language  language of the snapshots
+     * @param snapshots snapshots to merge; not modified
+     * @return merged snapshot with the newest time stamp and instance ID {@link #MERGED},
+     *         or {@code null} if {@code snapshots} is empty
+     */
+    public static CartStatisticsSnapshot merge(String language, List<CartStatisticsSnapshot> snapshots) {
+        if (snapshots.isEmpty()) {
+            return null;
+        }
+        Instant takenAt = Instant.MIN;
+        QuantileSketch totals = new QuantileSketch();
+        QuantileSketch itemCounts = new QuantileSketch();
+        FixedHistogram totalHistogram = new FixedHistogram(CartStatistics.TOTAL_BUCKETS);
+        FixedHistogram itemHistogram = new FixedHistogram(CartStatistics.ITEM_BUCKETS);
+        for (CartStatisticsSnapshot s : snapshots) {
+            if (s.takenAt.isAfter(takenAt)) {
+                takenAt = s.takenAt;
+            }
+            totals.merge(s.totals);
+            itemCounts.merge(s.itemCounts);
+            totalHistogram.merge(s.totalHistogram);
+            itemHistogram.merge(s.itemHistogram);
+        }
+        return new CartStatisticsSnapshot(takenAt, language, MERGED, totals, itemCounts, totalHistogram, itemHistogram);
+    }
+
+    /** @return instance that recorded the carts, {@link #MERGED} for a merged snapshot */
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /** @return number of carts covered by the snapshot */
+    public long getCartCount() {
+        return totals.getCount();
+    }
+
+    /**
+     * Returns a percentile of the cart totals.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return the estimated total, NaN without carts
+     */
+    public double getTotalPercentile(double percentile) {
+        return totals.quantile(percentile / 100.0);
+    }
+
+    /**
+     * Returns a percentile of the basket sizes.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return the estimated item count, NaN without carts
+     */
+    public double getItemCountPercentile(double percentile) {
+        return itemCounts.quantile(percentile / 100.0);
+    }
+
+    /** @return sketch of the cart totals */
+    public QuantileSketch getTotals() {
+        return totals;
+    }
+
+    /** @return sketch of the item counts */
+    public QuantileSketch getItemCounts() {
+        return itemCounts;
+    }
+
+    /** @return histogram of the cart totals */
+    public FixedHistogram getTotalHistogram() {
+        return totalHistogram;
+    }
+
+    /** @return histogram of the item counts */
+    public FixedHistogram getItemHistogram() {
+        return itemHistogram;
+    }
+}
@@ -0,0 +1,114 @@
+package otp2.shoppingcartapp.classes;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered primitive writer on top of a {@link WritableByteChannel}.
+ * <p>
+ * Values are collected in one direct buffer and handed to the channel in large
+ * writes, so the export sinks never allocate per value. Multi-byte values are
+ * little-endian.
+ */
+final class ChannelOutput implements Closeable {
+
+    /** Default buffer size; large enough to keep the channel writes efficient. */
+    static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private long drained;
+
+    ChannelOutput(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    /** Writes the buffered bytes to the channel. */
+    void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            drained += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    void putShort(int value) throws IOException {
+        ensure(Short.BYTES);
+        buffer.putShort((short) value);
+    }
+
+    void putInt(int value) throws IOException {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    void putLong(long value) throws IOException {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    void putDouble(double value) throws IOException {
+        ensure(Double.BYTES);
+        buffer.putDouble(value);
+    }
+
+    void putBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int n = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, n);
+            offset += n;
+        }
+    }
+
+    /**
+     * Writes text as UTF-8. ASCII text (the common case for CSV) is copied
+     * directly into the buffer without an intermediate byte array.
+     */
+    void putText(CharSequence text) throws IOException {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) >= 0x80) {
+                putBytes(text.toString().getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    /** @return bytes written so far, including the ones still buffered */
+    long getBytesWritten() {
+        return drained + buffer.position();
+    }
+
+    /**
+     * Drains the buffer and closes the channel.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+}
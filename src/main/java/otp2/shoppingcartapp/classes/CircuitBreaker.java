@@ -0,0 +1,196 @@
+package otp2.shoppingcartapp.classes;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker protecting the application from a slow or unreachable database.
+ * <p>
+ * States:
+ * <ul>
+ *     <li>{@link State#CLOSED} – calls pass through; consecutive failures are counted</li>
+ *     <li>{@link State#OPEN} – after {@code failureThreshold} consecutive failures, calls
+ *     fail immediately with {@link CircuitOpenException} for the open period</li>
+ *     <li>{@link State#HALF_OPEN} – after the open period exactly one probe call is let
+ *     through; success closes the circuit, failure opens it again</li>
+ * </ul>
+ * The open period doubles with every failed probe (exponential backoff), from
+ * {@code baseOpenMillis} up to {@code maxOpenMillis}, and is reset when the circuit closes.
+ * This keeps UI actions and their tail latency bounded while the database is down.
+ */
+public class CircuitBreaker {
+
+    /** Circuit state. */
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long baseOpenNanos;
+    private final long maxOpenNanos;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private int trips;
+    private long openUntil;
+    private boolean probeInFlight;
+
+    /**
+     * Creates a circuit breaker using {@link System#nanoTime()} as clock.
+     *
+     * @param name             name used in log messages (e.g. "localization")
+     * @param failureThreshold consecutive failures that open the circuit
+     * @param baseOpenMillis   first open period
+     * @param maxOpenMillis    upper bound of the open period
+     */
+    public CircuitBreaker(String name, int failureThreshold, long baseOpenMillis, long maxOpenMillis) {
+        this(name, failureThreshold, baseOpenMillis, maxOpenMillis, System::nanoTime);
+    }
+
+    /**
+     * Creates a circuit breaker with an explicit clock (used by tests).
+     *
+     * @param name             name used in log messages
+     * @param failureThreshold consecutive failures that open the circuit
+     * @param baseOpenMillis   first open period
+     * @param maxOpenMillis    upper bound of the open period
+     * @param clock            monotonic time source in nanoseconds
+     */
+    CircuitBreaker(String name, int failureThreshold, long baseOpenMillis, long maxOpenMillis, LongSupplier clock) {
+        if (failureThreshold <= 0 || baseOpenMillis <= 0 || maxOpenMillis < baseOpenMillis) {
+            throw new IllegalArgumentException("Invalid circuit breaker settings");
+        }
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.baseOpenNanos = TimeUnit.MILLISECONDS.toNanos(baseOpenMillis);
+        this.maxOpenNanos = TimeUnit.MILLISECONDS.toNanos(maxOpenMillis);
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a circuit breaker configured by {@code DB_BREAKER_FAILURES} (default 3),
+     * {@code DB_BREAKER_OPEN_MS} (default 1000) and {@code DB_BREAKER_MAX_OPEN_MS} (default 30000).
+     *
+     * @param name name used in log messages
+     * @return the circuit breaker
+     */
+    public static CircuitBreaker fromEnvironment(String name) {
+        return new CircuitBreaker(name,
+                Integer.parseInt(DatabaseConfig.getEnv("DB_BREAKER_FAILURES", "3")),
+                Long.parseLong(DatabaseConfig.getEnv("DB_BREAKER_OPEN_MS", "1000")),
+                Long.parseLong(DatabaseConfig.getEnv("DB_BREAKER_MAX_OPEN_MS", "30000")));
+    }
+
+    /**
+     * Runs the action if the circuit allows it and records the outcome.
+     * Only {@link StorageException}s count as failures; after any other exception
+     * or error a half-open probe is released, so the next call probes again.
+     *
+     * @param action the storage call
+     * @param <T>    result type
+     * @return the result of the action
+     * @throws CircuitOpenException if the circuit is open (the action is not run)
+     * @throws StorageException     if the action fails
+     */
+    public <T> T call(Supplier<T> action) {
+        if (!tryAcquire()) {
+            throw new CircuitOpenException("Circuit '" + name + "' is open, skipping database call");
+        }
+        boolean recorded = false;
+        try {
+            T result = action.get();
+            onSuccess();
+            recorded = true;
+            return result;
+        } catch (StorageException e) {
+            onFailure();
+            recorded = true;
+            throw e;
+        } finally {
+            if (!recorded) {
+                releaseProbe(); // ei tietokantavirhe (myös Error), tila ei muutu
+            }
+        }
+    }
+
+    private synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() - openUntil < 0) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                return true;
+            case HALF_OPEN:
+            default:
+                if (probeInFlight) {
+                    return false;
+                }
+                probeInFlight = true;
+                return true;
+        }
+    }
+
+    private synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            System.out.println("✅ Circuit '" + name + "' closed, database reachable again");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trips = 0;
+        probeInFlight = false;
+    }
+
+    private synchronized void releaseProbe() {
+        probeInFlight = false;
+    }
+
+    private synchronized void onFailure() {
+        probeInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            long openNanos = Math.min(maxOpenNanos, baseOpenNanos << Math.min(trips, 20));
+            trips++;
+            state = State.OPEN;
+            openUntil = clock.getAsLong() + openNanos;
+            System.err.printf(Locale.ROOT, "⚠ Circuit '%s' open for %d ms after %d failure(s)%n",
+                    name, TimeUnit.NANOSECONDS.toMillis(openNanos), consecutiveFailures);
+        }
+    }
+
+    /**
+     * Returns the current state. An open circuit whose open period has elapsed
+     * is reported as {@link State#HALF_OPEN}, since the next call will be a probe.
+     *
+     * @return the state
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && clock.getAsLong() - openUntil >= 0) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /** @return consecutive failures since the last success */
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /** @return milliseconds until the next probe is allowed, 0 if calls are allowed now */
+    public synchronized long getRemainingOpenMillis() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(openUntil - clock.getAsLong()));
+    }
+
+    /** @return the circuit name */
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,19 @@
+package otp2.shoppingcartapp.classes;
+
+/**
+ * Thrown by {@link CircuitBreaker} when a call is rejected without touching
+ * the storage because the circuit is open.
+ */
+public class CircuitOpenException extends StorageException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates the exception.
+     *
+     * @param message description including the circuit name
+     */
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,206 @@
+package otp2.shoppingcartapp.classes;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes exported carts in a compact binary columnar format.
+ * <p>
+ * Carts are collected into row groups of a fixed number of carts; every group is
+ * written column by column, so analytics code can read e.g. only the totals of a
+ * group. Languages and currencies are dictionary encoded. All values are little-endian:
+ * <pre>
+ * file  := "OTP2CART" version:i32 group* end
+ * group := cartCount:i32 (&gt; 0) itemCount:i32
+ *          newLanguages:u16 (length:u16 utf8-bytes)*
+ *          newCurrencies:u16 (length:u16 utf8-bytes)*
+ *          id:i64[cartCount] customerId:i32[cartCount] total:f64[cartCount]
+ *          currency:u16[cartCount] language:u16[cartCount] createdAtMillis:i64[cartCount]
+ *          items:i32[cartCount] price:f64[itemCount]
+ * end   := 0:i32 totalCarts:i64 totalItems:i64
+ * </pre>
+ * {@code customerId} is {@link #NO_CUSTOMER} for anonymous carts. Language and
+ * currency codes refer to the entries of their dictionary in the order they were
+ * introduced by the groups; {@code total} and {@code price} are in the cart's
+ * currency. Version 1 files have no currency dictionary and column.
+ * Memory use is bounded by the row group size.
+ */
+public class ColumnarCartExportSink implements CartExportSink {
+
+    static final byte[] MAGIC = "OTP2CART".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 2;
+
+    /** Stored customer ID of anonymous carts. */
+    public static final int NO_CUSTOMER = Integer.MIN_VALUE;
+
+    /** Default number of carts per row group. */
+    public static final int DEFAULT_ROW_GROUP_SIZE = 65_536;
+
+    private final ChannelOutput out;
+    private final int rowGroupSize;
+
+    private final long[] ids;
+    private final int[] customerIds;
+    private final double[] totals;
+    private final short[] currencies;
+    private final short[] languages;
+    private final long[] createdAt;
+    private final int[] itemCounts;
+    private double[] prices = new double[1024];
+    private int carts;
+    private int items;
+
+    private final Dictionary languageDictionary = new Dictionary("languages");
+    private final Dictionary currencyDictionary = new Dictionary("currencies");
+
+    private long totalCarts;
+    private long totalItems;
+
+    /**
+     * Creates a sink and writes the file header.
+     *
+     * @param channel      target channel; closed by {@link #close()}
+     * @param rowGroupSize carts per row group
+     * @throws IOException if writing the header fails
+     */
+    public ColumnarCartExportSink(WritableByteChannel channel, int rowGroupSize) throws IOException {
+        if (rowGroupSize <= 0) {
+            throw new IllegalArgumentException("rowGroupSize must be positive");
+        }
+        this.out = new ChannelOutput(channel, ChannelOutput.DEFAULT_BUFFER_SIZE);
+        this.rowGroupSize = rowGroupSize;
+        ids = new long[rowGroupSize];
+        customerIds = new int[rowGroupSize];
+        totals = new double[rowGroupSize];
+        currencies = new short[rowGroupSize];
+        languages = new short[rowGroupSize];
+        createdAt = new long[rowGroupSize];
+        itemCounts = new int[rowGroupSize];
+
+        out.putBytes(MAGIC);
+        out.putInt(VERSION);
+    }
+
+    @Override
+    public void writeCart(long id, Integer customerId, double totalPrice, String currency, String language,
+                          long createdAtMillis, double[] cartPrices, int itemCount) throws IOException {
+        ids[carts] = id;
+        customerIds[carts] = customerId != null ? customerId : NO_CUSTOMER;
+        totals[carts] = totalPrice;
+        currencies[carts] = (short) currencyDictionary.code(currency);
+        languages[carts] = (short) languageDictionary.code(language != null ? language : "");
+        createdAt[carts] = createdAtMillis;
+        itemCounts[carts] = itemCount;
+
+        if (items + itemCount > prices.length) {
+            prices = Arrays.copyOf(prices, Math.max(items + itemCount, prices.length * 2));
+        }
+        System.arraycopy(cartPrices, 0, prices, items, itemCount);
+        items += itemCount;
+
+        if (++carts == rowGroupSize) {
+            flushGroup();
+        }
+    }
+
+    /** Codes of the distinct values of one column, and the values new in the current group. */
+    private static final class Dictionary {
+        private final String name;
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> added = new ArrayList<>();
+
+        Dictionary(String name) {
+            this.name = name;
+        }
+
+        int code(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                if (codes.size() > 0xFFFF) {
+                    throw new IllegalStateException("Too many distinct " + name + " for the export format");
+                }
+                code = codes.size();
+                codes.put(value, code);
+                added.add(value);
+            }
+            return code;
+        }
+
+        /** Writes the values added since the last call. */
+        void writeAdded(ChannelOutput out) throws IOException {
+            out.putShort(added.size());
+            for (String value : added) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.putShort(bytes.length);
+                out.putBytes(bytes);
+            }
+            added.clear();
+        }
+    }
+
+    private void flushGroup() throws IOException {
+        if (carts == 0) {
+            return;
+        }
+        out.putInt(carts);
+        out.putInt(items);
+        languageDictionary.writeAdded(out);
+        currencyDictionary.writeAdded(out);
+
+        for (int i = 0; i < carts; i++) {
+            out.putLong(ids[i]);
+        }
+        for (int i = 0; i < carts; i++) {
+            out.putInt(customerIds[i]);
+        }
+        for (int i = 0; i < carts; i++) {
+            out.putDouble(totals[i]);
+        }
+        for (int i = 0; i < carts; i++) {
+            out.putShort(currencies[i]);
+        }
+        for (int i = 0; i < carts; i++) {
+            out.putShort(languages[i]);
+        }
+        for (int i = 0; i < carts; i++) {
+            out.putLong(createdAt[i]);
+        }
+        for (int i = 0; i < carts; i++) {
+            out.putInt(itemCounts[i]);
+        }
+        for (int i = 0; i < items; i++) {
+            out.putDouble(prices[i]);
+        }
+
+        totalCarts += carts;
+        totalItems += items;
+        carts = 0;
+        items = 0;
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return out.getBytesWritten();
+    }
+
+    /**
+     * Writes the last (partial) row group and the end marker, then closes the channel.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushGroup();
+            out.putInt(0);
+            out.putLong(totalCarts);
+            out.putLong(totalItems);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package otp2.shoppingcartapp.classes;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Small fixed-size JDBC connection pool for one database.
+ * <p>
+ * At most {@code maxSize} connections are in use at a time; further callers wait
+ * up to the borrow timeout and then get an {@link SQLException}, which the services
+ * treat like any other storage failure. Returned connections are rolled back if a
+ * transaction is still open, switched back to auto-commit and kept for reuse.
+ * A connection that has been idle for a while is validated before it is handed out.
+ */
+public class ConnectionPool implements ConnectionSource, AutoCloseable {
+
+    /** Idle time after which a pooled connection is validated before reuse. */
+    private static final long VALIDATE_AFTER_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    /** An idle connection and the time it was returned. */
+    private static final class Idle {
+        final Connection connection;
+        final long returnedAt;
+
+        Idle(Connection connection, long returnedAt) {
+            this.connection = connection;
+            this.returnedAt = returnedAt;
+        }
+    }
+
+    private final ConnectionSource target;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final Semaphore permits;
+    private final Deque<Idle> idle = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed;
+
+    /**
+     * Creates a pool. Connections are opened lazily.
+     *
+     * @param target              database the connections are opened to
+     * @param maxSize             maximum number of connections in use
+     * @param borrowTimeoutMillis how long a caller waits for a free connection
+     */
+    public ConnectionPool(ConnectionSource target, int maxSize, long borrowTimeoutMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.target = target;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Creates a pool sized by {@code DB_POOL_SIZE} (default 8) with the borrow
+     * timeout {@code DB_POOL_TIMEOUT_MS} (default 2000).
+     *
+     * @param target database the connections are opened to
+     * @return the pool
+     */
+    public static ConnectionPool fromEnvironment(ConnectionSource target) {
+        return new ConnectionPool(target,
+                Integer.parseInt(DatabaseConfig.getEnv("DB_POOL_SIZE", "8")),
+                Long.parseLong(DatabaseConfig.getEnv("DB_POOL_TIMEOUT_MS", "2000")));
+    }
+
+    /**
+     * Borrows a connection. Closing it returns it to the pool.
+     *
+     * @return a pooled connection
+     * @throws SQLException if the pool is exhausted or closed, or no connection can be opened
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool closed: " + target.getDescription());
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Connection pool exhausted (" + maxSize + " in use): "
+                        + target.getDescription());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        try {
+            return wrap(borrowPhysical());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Connection borrowPhysical() throws SQLException {
+        Idle entry;
+        while ((entry = idle.pollFirst()) != null) {
+            boolean fresh = System.nanoTime() - entry.returnedAt < VALIDATE_AFTER_NANOS;
+            if (fresh || entry.connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                return entry.connection;
+            }
+            closeQuietly(entry.connection);
+        }
+        return target.getConnection();
+    }
+
+    /** Wraps a physical connection so that {@code close()} hands it back to the pool. */
+    private Connection wrap(Connection physical) {
+        boolean[] returned = {false};
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (!returned[0]) {
+                                returned[0] = true;
+                                release(physical);
+                            }
+                            return null;
+                        case "isClosed":
+                            return returned[0] || physical.isClosed();
+                        case "toString":
+                            return "pooled " + physical;
+                        default:
+                            if (returned[0]) {
+                                throw new SQLException("Connection already returned to the pool");
+                            }
+                            try {
+                                return method.invoke(physical, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                });
+    }
+
+    private void release(Connection physical) {
+        try {
+            if (!physical.isClosed()) {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                if (!closed) {
+                    idle.offerFirst(new Idle(physical, System.nanoTime()));
+                    return;
+                }
+            }
+            closeQuietly(physical);
+        } catch (SQLException e) {
+            closeQuietly(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // yhteys on jo rikki
+        }
+    }
+
+    /** @return number of connections currently borrowed */
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    /** @return number of open connections waiting for reuse */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    @Override
+    public String getDescription() {
+        return target.getDescription();
+    }
+
+    /**
+     * Closes the idle connections. Borrowed connections are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Idle entry;
+        while ((entry = idle.pollFirst()) != null) {
+            closeQuietly(entry.connection);
+        }
+    }
+}
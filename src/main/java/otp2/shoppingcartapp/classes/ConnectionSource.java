@@ -0,0 +1,28 @@
+package otp2.shoppingcartapp.classes;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Supplies JDBC connections to the repositories.
+ * <p>
+ * Implemented by {@link DatabaseConfig} (one database endpoint) and by the
+ * reader of {@link ReadWriteRouter} (load balanced replicas with primary fallback).
+ */
+public interface ConnectionSource {
+
+    /**
+     * Opens (or borrows) a connection. The caller must close it.
+     *
+     * @return an open connection
+     * @throws SQLException if no connection can be established
+     */
+    Connection getConnection() throws SQLException;
+
+    /**
+     * Returns a short description used in log messages, e.g. the JDBC URL.
+     *
+     * @return description of the endpoint(s)
+     */
+    String getDescription();
+}
@@ -0,0 +1,69 @@
+package otp2.shoppingcartapp.classes;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.time.Instant;
+
+/**
+ * Writes exported carts as CSV with one line per item:
+ * <pre>
+ * cart_id,customer_id,created_at,language,currency,total_price,item_index,price
+ * </pre>
+ * A cart without items is written as one line with empty item columns;
+ * {@code customer_id} is empty for anonymous carts and {@code created_at}
+ * is an ISO-8601 instant. {@code total_price} and {@code price} are in {@code currency}.
+ */
+public class CsvCartExportSink implements CartExportSink {
+
+    static final String HEADER = "cart_id,customer_id,created_at,language,currency,total_price,item_index,price\n";
+
+    private final ChannelOutput out;
+    /** Cart columns shared by all item lines of the current cart. */
+    private final StringBuilder prefix = new StringBuilder(96);
+    private final StringBuilder line = new StringBuilder(128);
+
+    /**
+     * Creates a sink and writes the header line.
+     *
+     * @param channel target channel; closed by {@link #close()}
+     * @throws IOException if writing the header fails
+     */
+    public CsvCartExportSink(WritableByteChannel channel) throws IOException {
+        this.out = new ChannelOutput(channel, ChannelOutput.DEFAULT_BUFFER_SIZE);
+        out.putText(HEADER);
+    }
+
+    @Override
+    public void writeCart(long id, Integer customerId, double totalPrice, String currency, String language,
+                          long createdAtMillis, double[] prices, int itemCount) throws IOException {
+        prefix.setLength(0);
+        prefix.append(id).append(',');
+        if (customerId != null) {
+            prefix.append(customerId.intValue());
+        }
+        prefix.append(',').append(Instant.ofEpochMilli(createdAtMillis))
+                .append(',').append(language != null ? language : "")
+                .append(',').append(currency)
+                .append(',').append(totalPrice).append(',');
+
+        if (itemCount == 0) {
+            out.putText(prefix.append(",\n"));
+            return;
+        }
+        for (int i = 0; i < itemCount; i++) {
+            line.setLength(0);
+            line.append(prefix).append(i + 1).append(',').append(prices[i]).append('\n');
+            out.putText(line);
+        }
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return out.getBytesWritten();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,111 @@
+package otp2.shoppingcartapp.classes;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Currency helpers for the supported languages.
+ * <p>
+ * Every UI language has a default currency (en, fr → EUR, ur → PKR, vi → VND).
+ * Amounts are formatted with the symbol and number of decimals of the currency,
+ * e.g. {@code 12.50 €}, {@code Rs 1,250.00} or {@code 25.000 ₫}. Prices are handled in
+ * minor units of the currency (cents for EUR and PKR, whole dong for VND) and only
+ * converted to amounts for display and storage.
+ */
+public final class Currencies {
+
+    /** Currency of carts that were stored before currencies were recorded. */
+    public static final String DEFAULT_CURRENCY = "EUR";
+
+    private static final Map<String, String> BY_LANGUAGE = Map.of(
+            "en", "EUR",
+            "fr", "EUR",
+            "ur", "PKR",
+            "vi", "VND"
+    );
+
+    private Currencies() {
+    }
+
+    /**
+     * Returns the default currency of a UI language.
+     *
+     * @param language ISO language code (e.g. "ur")
+     * @return ISO 4217 code, {@link #DEFAULT_CURRENCY} for unknown languages
+     */
+    public static String forLanguage(String language) {
+        return language == null ? DEFAULT_CURRENCY : BY_LANGUAGE.getOrDefault(language, DEFAULT_CURRENCY);
+    }
+
+    /**
+     * Validates a currency code and converts it to upper case.
+     *
+     * @param code ISO 4217 code, case-insensitive
+     * @return the upper-case code
+     * @throws IllegalArgumentException if the code is not a known currency
+     */
+    public static String normalize(String code) {
+        return Currency.getInstance(code.trim().toUpperCase(Locale.ROOT)).getCurrencyCode();
+    }
+
+    /**
+     * Returns the number of decimals of a currency, e.g. 2 for EUR and 0 for VND.
+     *
+     * @param currency ISO 4217 code
+     * @return decimals of the minor unit; 0 for currencies without one
+     */
+    public static int minorUnitDigits(String currency) {
+        return Math.max(Currency.getInstance(currency).getDefaultFractionDigits(), 0);
+    }
+
+    /**
+     * Converts minor units to an amount, e.g. {@code 1250} EUR → {@code 12.5}.
+     *
+     * @param minorUnits amount in minor units
+     * @param currency   ISO 4217 code
+     * @return the amount
+     */
+    public static double toAmount(long minorUnits, String currency) {
+        return BigDecimal.valueOf(minorUnits, minorUnitDigits(currency)).doubleValue();
+    }
+
+    /**
+     * Converts an amount to minor units, rounding half up, e.g. {@code 12.5} EUR → {@code 1250}.
+     *
+     * @param amount   the amount
+     * @param currency ISO 4217 code
+     * @return the amount in minor units
+     */
+    public static long toMinorUnits(double amount, String currency) {
+        return BigDecimal.valueOf(amount).setScale(minorUnitDigits(currency), RoundingMode.HALF_UP)
+                .unscaledValue().longValueExact();
+    }
+
+    /**
+     * Formats an amount with the symbol and decimals of a currency.
+     *
+     * @param amount   the amount
+     * @param currency ISO 4217 code
+     * @param locale   locale of the symbol and the separators
+     * @return e.g. {@code "12.50 €"}
+     */
+    public static String format(double amount, String currency, Locale locale) {
+        Currency c = Currency.getInstance(currency);
+        return String.format(locale, "%,." + minorUnitDigits(currency) + "f %s", amount, c.getSymbol(locale));
+    }
+
+    /**
+     * Formats a signed amount (e.g. a discount) with the symbol and decimals of a currency.
+     *
+     * @param amount   the amount
+     * @param currency ISO 4217 code
+     * @param locale   locale of the symbol and the separators
+     * @return e.g. {@code "-1.50 €"} or {@code "+0.24 €"}
+     */
+    public static String formatSigned(double amount, String currency, Locale locale) {
+        return (amount >= 0 ? "+" : "") + format(amount, currency, locale);
+    }
+}
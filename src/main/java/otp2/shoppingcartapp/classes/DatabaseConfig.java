@@ -0,0 +1,275 @@
+package otp2.shoppingcartapp.classes;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Connection settings for one MariaDB database.
+ * <p>
+ * Configuration (DB host, port, name, user, password) is read from:
+ * <ol>
+ *     <li>Real environment variables ({@link System#getenv(String)})</li>
+ *     <li>A <code>.env</code> file (via dotenv)</li>
+ *     <li>Hard-coded defaults, if neither is set</li>
+ * </ol>
+ * Writes always go to the primary ({@code DB_WRITE_HOST}/{@code DB_WRITE_PORT},
+ * falling back to {@code DB_HOST}/{@code DB_PORT}). Read-only traffic can be sent
+ * to replicas listed in {@code DB_READ_HOSTS} (see {@link ReadWriteRouter}), and
+ * carts can be spread over the shards listed in {@code DB_SHARDS}.
+ * <p>
+ * Every connection uses explicit timeouts, so an unreachable database fails within
+ * seconds instead of the driver's defaults:
+ * {@code DB_CONNECT_TIMEOUT_MS} (default 2000), {@code DB_SOCKET_TIMEOUT_MS}
+ * (default 10000) and {@code DB_QUERY_TIMEOUT_S} (default 5, applied per statement).
+ * The socket timeout is meant for the interactive application; the schema migrator,
+ * the cart history exporter and the shard rebalancer run long statements and use
+ * {@link #withoutSocketTimeout()}.
+ */
+public class DatabaseConfig implements ConnectionSource {
+
+    /**
+     * Dotenv configuration used to read values from a local .env file.
+     * <p>
+     * The file is optional; missing files are ignored (e.g. in production).
+     */
+    private static final Dotenv DOTENV = Dotenv.configure()
+            .ignoreIfMissing()
+            .load();
+
+    /** Milliseconds to wait for a TCP connection to the database. */
+    private static final int CONNECT_TIMEOUT_MS =
+            Integer.parseInt(getEnv("DB_CONNECT_TIMEOUT_MS", "2000"));
+    /** Milliseconds a socket read may block before the connection is considered broken. */
+    private static final int SOCKET_TIMEOUT_MS =
+            Integer.parseInt(getEnv("DB_SOCKET_TIMEOUT_MS", "10000"));
+    /** Seconds a single statement may run, see {@link java.sql.Statement#setQueryTimeout(int)}. */
+    private static final int QUERY_TIMEOUT_S =
+            Integer.parseInt(getEnv("DB_QUERY_TIMEOUT_S", "5"));
+
+    /** Database host, typically {@code localhost}. */
+    private final String host;
+    /** Database port, e.g. {@code 3306}. */
+    private final String port;
+    /** Database name. */
+    private final String name;
+    /** Database username. */
+    private final String user;
+    /** Database password. */
+    private final String password;
+    /** Whether the JDBC URL carries {@code socketTimeout}. */
+    private final boolean socketTimeout;
+
+    /**
+     * Creates a configuration with explicit values.
+     *
+     * @param host     database host
+     * @param port     database port
+     * @param name     database (schema) name
+     * @param user     database username
+     * @param password database password
+     */
+    public DatabaseConfig(String host, String port, String name, String user, String password) {
+        this(host, port, name, user, password, true);
+    }
+
+    private DatabaseConfig(String host, String port, String name, String user, String password,
+                           boolean socketTimeout) {
+        this.host = host;
+        this.port = port;
+        this.name = name;
+        this.user = user;
+        this.password = password;
+        this.socketTimeout = socketTimeout;
+    }
+
+    /**
+     * Returns the same database without {@code DB_SOCKET_TIMEOUT_MS}, for tools whose
+     * statements may legitimately block a socket read for longer (migrations, exports,
+     * shard rebalancing). The connect timeout still applies.
+     *
+     * @return configuration whose connections have no socket timeout
+     */
+    public DatabaseConfig withoutSocketTimeout() {
+        return new DatabaseConfig(host, port, name, user, password, false);
+    }
+
+    /**
+     * Creates the configuration of the primary (write) database from
+     * {@code DB_WRITE_HOST}/{@code DB_HOST}, {@code DB_WRITE_PORT}/{@code DB_PORT},
+     * {@code DB_NAME}, {@code DB_USER} and {@code DB_PASSWORD}.
+     *
+     * @return configuration resolved from the environment
+     */
+    public static DatabaseConfig fromEnvironment() {
+        String host = getEnv("DB_HOST", "localhost");
+        String port = getEnv("DB_PORT", "3306");
+        return new DatabaseConfig(
+                getEnv("DB_WRITE_HOST", host),
+                getEnv("DB_WRITE_PORT", port),
+                getEnv("DB_NAME", "shopping_cart_db"),
+                getEnv("DB_USER", "root"),
+                getEnv("DB_PASSWORD", "")
+        );
+    }
+
+    /**
+     * Creates one configuration per read replica listed in {@code DB_READ_HOSTS}
+     * (comma separated {@code host[:port]} entries). Replicas use the primary's
+     * database name and, unless {@code DB_READ_USER}/{@code DB_READ_PASSWORD}
+     * are set, the primary's credentials.
+     *
+     * @return replica configurations; empty if no replicas are configured
+     */
+    public static List<DatabaseConfig> replicasFromEnvironment() {
+        DatabaseConfig primary = fromEnvironment();
+        String user = getEnv("DB_READ_USER", primary.user);
+        String password = getEnv("DB_READ_PASSWORD", primary.password);
+        return parseEndpoints(getEnv("DB_READ_HOSTS", ""), getEnv("DB_PORT", "3306"),
+                primary.name, user, password);
+    }
+
+    /**
+     * Creates one configuration per cart shard listed in {@code DB_SHARDS}
+     * (comma separated {@code host[:port]} entries). Shards use the primary's
+     * database name and credentials. See {@link ShardedCartResultRepository}.
+     *
+     * @return shard configurations; empty if sharding is not configured
+     */
+    public static List<DatabaseConfig> shardsFromEnvironment() {
+        DatabaseConfig primary = fromEnvironment();
+        return parseEndpoints(getEnv("DB_SHARDS", ""), getEnv("DB_PORT", "3306"),
+                primary.name, primary.user, primary.password);
+    }
+
+    /**
+     * Creates one configuration per shard listed in {@code DB_SHARDS_RETIRED}: shards
+     * that were removed from {@code DB_SHARDS} and whose carts still have to be moved
+     * by {@link ShardRebalancer}. Same format and credentials as {@link #shardsFromEnvironment()}.
+     *
+     * @return retired shard configurations; empty if none are listed
+     */
+    public static List<DatabaseConfig> retiredShardsFromEnvironment() {
+        DatabaseConfig primary = fromEnvironment();
+        return parseEndpoints(getEnv("DB_SHARDS_RETIRED", ""), getEnv("DB_PORT", "3306"),
+                primary.name, primary.user, primary.password);
+    }
+
+    /**
+     * Parses a comma separated list of {@code host[:port]} entries.
+     *
+     * @param endpoints   list such as {@code "replica1:3306, replica2"}
+     * @param defaultPort port used for entries without one
+     * @param name        database name for every endpoint
+     * @param user        username for every endpoint
+     * @param password    password for every endpoint
+     * @return one configuration per entry
+     */
+    static List<DatabaseConfig> parseEndpoints(String endpoints, String defaultPort,
+                                               String name, String user, String password) {
+        List<DatabaseConfig> configs = new ArrayList<>();
+        for (String entry : endpoints.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int colon = trimmed.lastIndexOf(':');
+            String host = colon < 0 ? trimmed : trimmed.substring(0, colon);
+            String port = colon < 0 ? defaultPort : trimmed.substring(colon + 1);
+            configs.add(new DatabaseConfig(host, port, name, user, password));
+        }
+        return configs;
+    }
+
+    /**
+     * Returns a configuration value from environment variables or .env file.
+     * <p>
+     * The lookup order is:
+     * <ol>
+     *     <li>System environment variable</li>
+     *     <li>.env file value</li>
+     *     <li>Provided default value</li>
+     * </ol>
+     *
+     * @param key          the environment variable key
+     * @param defaultValue the default value to use if none is defined
+     * @return the resolved value
+     */
+    public static String getEnv(String key, String defaultValue) {
+        // 1) oikein ympäristömuuttujat (esim. Docker, OS)
+        String fromEnv = System.getenv(key);
+        if (fromEnv != null && !fromEnv.isEmpty()) {
+            return fromEnv;
+        }
+        // 2) .env-tiedosto
+        String fromFile = DOTENV.get(key);
+        if (fromFile != null && !fromFile.isEmpty()) {
+            return fromFile;
+        }
+        // 3) oletusarvo
+        return defaultValue;
+    }
+
+    /**
+     * Builds the JDBC URL for the MariaDB database, including common flags
+     * and the connect and socket timeouts (see {@link #withoutSocketTimeout()}).
+     *
+     * @return JDBC URL string
+     */
+    public String getDatabaseUrl() {
+        return "jdbc:mariadb://" + host + ":" + port + "/" + name
+                + "?useSSL=false&allowPublicKeyRetrieval=true"
+                + "&connectTimeout=" + CONNECT_TIMEOUT_MS
+                + (socketTimeout ? "&socketTimeout=" + SOCKET_TIMEOUT_MS : "");
+    }
+
+    /**
+     * Returns the per-statement timeout that repositories pass to
+     * {@link java.sql.Statement#setQueryTimeout(int)}.
+     *
+     * @return query timeout in seconds
+     */
+    public static int getQueryTimeoutSeconds() {
+        return QUERY_TIMEOUT_S;
+    }
+
+    /**
+     * Opens a new connection to this database.
+     *
+     * @return an open connection
+     * @throws SQLException if the database is not reachable
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return DriverManager.getConnection(getDatabaseUrl(), user, password);
+    }
+
+    @Override
+    public String getDescription() {
+        return getDatabaseUrl();
+    }
+
+    /** @return database host */
+    public String getHost() {
+        return host;
+    }
+
+    /** @return database port */
+    public String getPort() {
+        return port;
+    }
+
+    /** @return database username */
+    public String getUser() {
+        return user;
+    }
+
+    /** @return database password */
+    public String getPassword() {
+        return password;
+    }
+}
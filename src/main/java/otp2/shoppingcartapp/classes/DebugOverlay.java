@@ -0,0 +1,78 @@
+package otp2.shoppingcartapp.classes;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.StackPane;
+import javafx.util.Duration;
+
+/**
+ * Debug overlay showing the {@link FxStallDetector} report on top of the window.
+ * <p>
+ * Hidden by default and toggled with F12. While visible, the text is refreshed
+ * twice a second.
+ */
+public class DebugOverlay {
+
+    private final FxStallDetector detector;
+    private final Label label = new Label();
+    private final Timeline refresh;
+
+    /**
+     * Creates the overlay.
+     *
+     * @param detector source of the report
+     */
+    public DebugOverlay(FxStallDetector detector) {
+        this.detector = detector;
+        label.setVisible(false);
+        label.setMouseTransparent(true);
+        label.setWrapText(true);
+        label.setPadding(new Insets(8));
+        label.setStyle("-fx-background-color: rgba(0,0,0,0.75); -fx-text-fill: #7CFC00;"
+                + " -fx-font-family: monospace; -fx-font-size: 10px;");
+        StackPane.setAlignment(label, Pos.TOP_LEFT);
+
+        refresh = new Timeline(new KeyFrame(Duration.millis(500), e -> update()));
+        refresh.setCycleCount(Animation.INDEFINITE);
+    }
+
+    /**
+     * Adds the overlay to the container and registers the F12 shortcut on it.
+     *
+     * @param container stack pane holding the application layout
+     */
+    public void install(StackPane container) {
+        container.getChildren().add(label);
+        container.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
+            if (e.getCode() == KeyCode.F12) {
+                toggle();
+                e.consume();
+            }
+        });
+    }
+
+    /**
+     * Shows or hides the overlay.
+     */
+    public void toggle() {
+        boolean show = !label.isVisible();
+        label.setVisible(show);
+        if (show) {
+            update();
+            refresh.play();
+        } else {
+            refresh.stop();
+        }
+    }
+
+    private void update() {
+        label.setText(detector.report() + System.lineSeparator()
+                + "last stall: " + detector.getLastStall().lines().findFirst().orElse(""));
+    }
+}
@@ -0,0 +1,21 @@
+package otp2.shoppingcartapp.classes;
+
+/**
+ * Source of exchange rates.
+ * <p>
+ * Implementations:
+ * <ul>
+ *     <li>{@link JdbcExchangeRateRepository} – MariaDB table <code>exchange_rates</code></li>
+ *     <li>{@link InMemoryExchangeRateRepository} – in-process rates for tests and the demo</li>
+ * </ul>
+ */
+public interface ExchangeRateRepository {
+
+    /**
+     * Loads the newest version of the rates.
+     *
+     * @return the rates, {@link ExchangeRateTable#EMPTY} if no rates are stored
+     * @throws StorageException if the storage cannot be reached
+     */
+    ExchangeRateTable loadLatest();
+}
@@ -0,0 +1,111 @@
+package otp2.shoppingcartapp.classes;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the current {@link ExchangeRateTable} in memory.
+ * <p>
+ * Readers call {@link #current()}, a single volatile read; they never lock and
+ * never see a half-updated table. {@link #refresh()} loads the newest rates and
+ * swaps the whole table atomically if its version is newer. If the storage fails,
+ * the previous table stays in use. {@link #startRefreshing(long)} repeats the refresh
+ * periodically, so rates published while the application runs are picked up by the
+ * carts priced afterwards.
+ */
+public class ExchangeRateService implements AutoCloseable {
+
+    private final ExchangeRateRepository repository;
+    private final AtomicReference<ExchangeRateTable> table = new AtomicReference<>(ExchangeRateTable.EMPTY);
+    private ScheduledExecutorService refresher;
+
+    /**
+     * Creates the service. No rates are loaded until {@link #refresh()} is called.
+     *
+     * @param repository source of the rates
+     */
+    public ExchangeRateService(ExchangeRateRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Creates a service and loads the rates once.
+     *
+     * @param repository source of the rates
+     * @return the service; its table is {@link ExchangeRateTable#EMPTY} if loading failed
+     */
+    public static ExchangeRateService loaded(ExchangeRateRepository repository) {
+        ExchangeRateService service = new ExchangeRateService(repository);
+        service.refresh();
+        return service;
+    }
+
+    /** @return the current rates; never {@code null} */
+    public ExchangeRateTable current() {
+        return table.get();
+    }
+
+    /**
+     * Loads the newest rates and installs them if their version is newer.
+     *
+     * @return {@code true} if a new table was installed
+     */
+    public boolean refresh() {
+        ExchangeRateTable loaded;
+        try {
+            loaded = repository.loadLatest();
+        } catch (StorageException e) {
+            System.err.println("❌ " + e.getMessage());
+            return false;
+        }
+        if (loaded == ExchangeRateTable.EMPTY) {
+            return false;
+        }
+        ExchangeRateTable previous;
+        do {
+            previous = table.get();
+            if (previous != ExchangeRateTable.EMPTY && loaded.getVersion() <= previous.getVersion()) {
+                return false;
+            }
+        } while (!table.compareAndSet(previous, loaded));
+        System.out.println("✅ Exchange rates " + loaded);
+        return true;
+    }
+
+    /**
+     * Calls {@link #refresh()} every {@code periodSeconds} on a daemon thread.
+     *
+     * @param periodSeconds seconds between two refreshes
+     */
+    public synchronized void startRefreshing(long periodSeconds) {
+        if (refresher != null) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "exchange-rate-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        refresher.scheduleAtFixedRate(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                // muuten scheduleAtFixedRate lopettaisi hiljaa kaikki seuraavat päivitykset
+                System.err.println("❌ Exchange rate refresh failed: " + e.getMessage());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the periodic refresh. The current table stays available.
+     */
+    @Override
+    public synchronized void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+    }
+}
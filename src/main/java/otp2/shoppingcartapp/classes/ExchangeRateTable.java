@@ -0,0 +1,180 @@
+package otp2.shoppingcartapp.classes;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable, versioned snapshot of exchange rates.
+ * <p>
+ * Every rate is stored as units of the currency per one unit of the base currency
+ * ({@link Currencies#DEFAULT_CURRENCY} in the seeded data). Currencies are kept in
+ * sorted parallel arrays, so a table is a few cache lines and can be shared by any
+ * number of threads without locking; {@link ExchangeRateService} replaces the whole
+ * table on refresh instead of modifying it.
+ * <p>
+ * For reports, {@link #factorsTo(String)} precomputes one multiplication factor per
+ * currency, and {@link #convertAll(double[], int[], double[], double[])} converts
+ * many amounts with one array lookup and one multiplication each.
+ */
+public final class ExchangeRateTable {
+
+    /** Table without rates; converts only between equal currencies. */
+    public static final ExchangeRateTable EMPTY = new ExchangeRateTable(0, Map.of());
+
+    private final long version;
+    private final String[] currencies;
+    private final double[] perBase;
+
+    /**
+     * Creates a table.
+     *
+     * @param version version of the rates; a refresh only replaces a table with a newer version
+     * @param rates   units of each currency per one unit of the base currency (the base has 1.0)
+     * @throws IllegalArgumentException if a rate is not positive or a code is not a currency
+     */
+    public ExchangeRateTable(long version, Map<String, Double> rates) {
+        TreeMap<String, Double> sorted = new TreeMap<>();
+        rates.forEach((code, rate) -> {
+            if (rate == null || !(rate > 0) || Double.isInfinite(rate)) {
+                throw new IllegalArgumentException("Exchange rate of " + code + " must be positive: " + rate);
+            }
+            sorted.put(Currencies.normalize(code), rate);
+        });
+        this.version = version;
+        this.currencies = sorted.keySet().toArray(new String[0]);
+        this.perBase = new double[currencies.length];
+        int i = 0;
+        for (double rate : sorted.values()) {
+            perBase[i++] = rate;
+        }
+    }
+
+    /** @return version of the rates */
+    public long getVersion() {
+        return version;
+    }
+
+    /** @return currencies with a rate, sorted */
+    public List<String> getCurrencies() {
+        return List.of(currencies);
+    }
+
+    /**
+     * Returns the index of a currency, for use with {@link #factorsTo(String)}.
+     *
+     * @param currency ISO 4217 code
+     * @return the index, or a negative value if the table has no rate for it
+     */
+    public int indexOf(String currency) {
+        return Arrays.binarySearch(currencies, currency);
+    }
+
+    /**
+     * Returns the factor that converts amounts from one currency into another.
+     *
+     * @param from source currency
+     * @param to   target currency
+     * @return the factor
+     * @throws IllegalArgumentException if a rate is missing
+     */
+    public double factor(String from, String to) {
+        if (from.equals(to)) {
+            return 1.0;
+        }
+        return rate(to) / rate(from);
+    }
+
+    /**
+     * Converts one amount.
+     *
+     * @param amount amount in {@code from}
+     * @param from   source currency
+     * @param to     target currency
+     * @return the amount in {@code to}
+     * @throws IllegalArgumentException if a rate is missing
+     */
+    public double convert(double amount, String from, String to) {
+        return amount * factor(from, to);
+    }
+
+    /**
+     * Precomputes one factor per currency of this table for conversions into {@code to}.
+     *
+     * @param to target currency
+     * @return factors indexed like {@link #indexOf(String)}
+     * @throws IllegalArgumentException if the table has no rate for {@code to}
+     */
+    public double[] factorsTo(String to) {
+        double target = rate(to);
+        double[] factors = new double[currencies.length];
+        for (int i = 0; i < factors.length; i++) {
+            factors[i] = target / perBase[i];
+        }
+        return factors;
+    }
+
+    /**
+     * Converts many amounts with precomputed factors; the loop does no lookups.
+     *
+     * @param amounts         amounts to convert
+     * @param currencyIndexes currency index of each amount ({@link #indexOf(String)})
+     * @param factors         result of {@link #factorsTo(String)}
+     * @param out             receives the converted amounts; may be {@code amounts} itself
+     */
+    public static void convertAll(double[] amounts, int[] currencyIndexes, double[] factors, double[] out) {
+        for (int i = 0; i < amounts.length; i++) {
+            out[i] = amounts[i] * factors[currencyIndexes[i]];
+        }
+    }
+
+    /**
+     * Converts the totals of many carts into one currency, e.g. for a revenue report.
+     *
+     * @param carts carts in any currencies of this table
+     * @param to    target currency
+     * @return converted totals, in the order of {@code carts}
+     * @throws IllegalArgumentException if a rate is missing
+     */
+    public double[] convertTotals(List<CartResult> carts, String to) {
+        double[] factors = factorsTo(to);
+        double[] totals = new double[carts.size()];
+        int[] indexes = new int[totals.length];
+        String lastCurrency = null;
+        int lastIndex = -1;
+        for (int i = 0; i < totals.length; i++) {
+            CartResult cart = carts.get(i);
+            // peräkkäisillä korteilla on yleensä sama valuutta
+            if (!cart.getCurrency().equals(lastCurrency)) {
+                lastCurrency = cart.getCurrency();
+                lastIndex = indexOf(lastCurrency);
+                if (lastIndex < 0) {
+                    throw new IllegalArgumentException("No exchange rate for " + lastCurrency);
+                }
+            }
+            totals[i] = cart.getTotalPrice();
+            indexes[i] = lastIndex;
+        }
+        convertAll(totals, indexes, factors, totals);
+        return totals;
+    }
+
+    private double rate(String currency) {
+        int i = indexOf(currency);
+        if (i < 0) {
+            throw new IllegalArgumentException("No exchange rate for " + currency
+                    + " (rates version " + version + ")");
+        }
+        return perBase[i];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("v").append(version);
+        for (int i = 0; i < currencies.length; i++) {
+            sb.append(i == 0 ? " " : ", ").append(currencies[i]).append('=').append(perBase[i]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package otp2.shoppingcartapp.classes;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Histogram with fixed, caller-defined bucket bounds.
+ * <p>
+ * Bucket {@code i} counts values {@code <= upperBounds[i]} (and greater than the
+ * previous bound); one extra overflow bucket counts everything above the last bound.
+ * Because the bounds are fixed, histograms with the same bounds can be merged and
+ * compared across languages and snapshots. The class is thread-safe.
+ */
+public class FixedHistogram {
+
+    private final double[] upperBounds;
+    private final long[] counts;
+
+    /**
+     * Creates an empty histogram.
+     *
+     * @param upperBounds inclusive upper bounds in ascending order
+     */
+    public FixedHistogram(double... upperBounds) {
+        for (int i = 1; i < upperBounds.length; i++) {
+            if (upperBounds[i] <= upperBounds[i - 1]) {
+                throw new IllegalArgumentException("Bucket bounds must be ascending");
+            }
+        }
+        this.upperBounds = upperBounds.clone();
+        this.counts = new long[upperBounds.length + 1];
+    }
+
+    /**
+     * Counts one value.
+     *
+     * @param value the value
+     */
+    public synchronized void add(double value) {
+        int i = Arrays.binarySearch(upperBounds, value);
+        counts[i >= 0 ? i : -i - 1]++;
+    }
+
+    /**
+     * Adds the counts of another histogram with the same bounds.
+     *
+     * @param other histogram to merge
+     */
+    public void merge(FixedHistogram other) {
+        if (!Arrays.equals(upperBounds, other.upperBounds)) {
+            throw new IllegalArgumentException("Histograms have different buckets");
+        }
+        long[] otherCounts = other.getCounts();
+        synchronized (this) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += otherCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Replaces the counts, e.g. when restoring a persisted snapshot.
+     *
+     * @param newCounts one count per bucket plus the overflow bucket
+     */
+    public synchronized void setCounts(long[] newCounts) {
+        if (newCounts.length != counts.length) {
+            throw new IllegalArgumentException("Expected " + counts.length + " counts");
+        }
+        System.arraycopy(newCounts, 0, counts, 0, counts.length);
+    }
+
+    /** @return copy of the bucket bounds */
+    public double[] getUpperBounds() {
+        return upperBounds.clone();
+    }
+
+    /** @return copy of the counts; the last entry is the overflow bucket */
+    public synchronized long[] getCounts() {
+        return counts.clone();
+    }
+
+    /** @return number of counted values */
+    public synchronized long getTotal() {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        return total;
+    }
+
+    /**
+     * Formats the counts as {@code "<=5:3 <=10:7 ... >500:1"}.
+     *
+     * @return one-line description
+     */
+    @Override
+    public String toString() {
+        long[] snapshot = getCounts();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < upperBounds.length; i++) {
+            sb.append(String.format(Locale.ROOT, "<=%s:%d ", trim(upperBounds[i]), snapshot[i]));
+        }
+        return sb.append('>').append(trim(upperBounds[upperBounds.length - 1]))
+                .append(':').append(snapshot[upperBounds.length]).toString();
+    }
+
+    private static String trim(double value) {
+        return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+}
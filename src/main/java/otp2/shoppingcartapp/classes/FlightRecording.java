@@ -0,0 +1,79 @@
+package otp2.shoppingcartapp.classes;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Starts a continuous Java Flight Recorder recording with the application events
+ * ({@link LanguagePhaseEvent}, {@link LocalizationFetchEvent}, {@link CartSaveStageEvent},
+ * {@link PriceDialogEvent}).
+ * <p>
+ * Enabled by {@code JFR_RECORDING=<file.jfr>}. The recording uses the JDK
+ * {@code default} profile plus the bundled {@code otp2.jfc}, keeps the last
+ * {@code JFR_MAX_AGE_MIN} minutes (default 30) up to {@code JFR_MAX_SIZE_MB}
+ * megabytes (default 100) and is written to the file when the JVM exits.
+ * A snapshot can be taken at any time with {@code jcmd <pid> JFR.dump}.
+ */
+public final class FlightRecording {
+
+    /** Classpath location of the event settings. */
+    static final String SETTINGS_PATH = "/otp2/shoppingcartapp/jfr/otp2.jfc";
+
+    private FlightRecording() {
+    }
+
+    /**
+     * Returns the JDK default settings with the bundled application settings applied.
+     *
+     * @return settings for {@link Recording#Recording(Map)}
+     * @throws IOException    if the settings cannot be read
+     * @throws ParseException if the settings are malformed
+     */
+    static Map<String, String> loadSettings() throws IOException, ParseException {
+        Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+        try (InputStream in = FlightRecording.class.getResourceAsStream(SETTINGS_PATH)) {
+            if (in == null) {
+                throw new IOException("JFR settings not found on classpath: " + SETTINGS_PATH);
+            }
+            settings.putAll(Configuration.create(new InputStreamReader(in, StandardCharsets.UTF_8)).getSettings());
+        }
+        return settings;
+    }
+
+    /**
+     * Starts the recording if {@code JFR_RECORDING} is set.
+     *
+     * @return the running recording, or {@code null} if not enabled or JFR is unavailable
+     */
+    public static Recording startFromEnvironment() {
+        String file = DatabaseConfig.getEnv("JFR_RECORDING", "");
+        if (file.isBlank()) {
+            return null;
+        }
+        try {
+            Recording recording = new Recording(loadSettings());
+            recording.setName("otp2-continuous");
+            recording.setToDisk(true);
+            recording.setMaxAge(Duration.ofMinutes(Long.parseLong(DatabaseConfig.getEnv("JFR_MAX_AGE_MIN", "30"))));
+            recording.setMaxSize(Long.parseLong(DatabaseConfig.getEnv("JFR_MAX_SIZE_MB", "100")) * 1024 * 1024);
+            recording.setDestination(Path.of(file));
+            recording.setDumpOnExit(true);
+            recording.start();
+            System.out.println("✅ JFR recording started, written to " + file + " on exit");
+            return recording;
+        } catch (IOException | ParseException | RuntimeException e) {
+            System.err.println("❌ Could not start JFR recording: " + e.getMessage());
+            return null;
+        }
+    }
+}
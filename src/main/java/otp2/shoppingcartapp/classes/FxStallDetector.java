@@ -0,0 +1,215 @@
+package otp2.shoppingcartapp.classes;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Watchdog for the JavaFX application thread.
+ * <p>
+ * A daemon thread posts a heartbeat to the UI thread (normally through
+ * {@code Platform::runLater}) every check interval and measures how long it takes
+ * to run. If a heartbeat has been pending for longer than the threshold, the UI
+ * thread is blocked – e.g. by a slow JDBC call in {@code setLanguage} – and its
+ * stack trace is captured and logged while it is still stuck.
+ * <p>
+ * The detector also keeps a {@link LatencyHistogram} per event handler
+ * ({@link #recordHandler(String, long)}), which together with the heartbeat
+ * latencies forms the responsiveness report shown by the debug overlay and
+ * written to the log periodically.
+ */
+public class FxStallDetector implements AutoCloseable {
+
+    /** Maximum number of stack frames written for a stall. */
+    private static final int MAX_FRAMES = 25;
+
+    private final Executor uiExecutor;
+    private final long thresholdNanos;
+    private final LongSupplier clock;
+
+    private final LatencyHistogram heartbeats = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> handlers = new ConcurrentSkipListMap<>();
+    private final AtomicLong stallCount = new AtomicLong();
+
+    /** Whether a heartbeat has been posted and has not run yet. */
+    private volatile boolean pending;
+    /** Time the pending heartbeat was posted. */
+    private volatile long pendingSince;
+    /** Whether the pending heartbeat has already been reported as a stall. */
+    private volatile boolean stallReported;
+    private volatile Thread uiThread;
+    private volatile String lastStall = "none";
+
+    private ScheduledExecutorService watchdog;
+
+    /**
+     * Creates a detector.
+     *
+     * @param uiExecutor      runs a task on the UI thread, e.g. {@code Platform::runLater}
+     * @param thresholdMillis heartbeat delay from which the UI thread counts as stalled
+     */
+    public FxStallDetector(Executor uiExecutor, long thresholdMillis) {
+        this(uiExecutor, thresholdMillis, System::nanoTime);
+    }
+
+    FxStallDetector(Executor uiExecutor, long thresholdMillis, LongSupplier clock) {
+        this.uiExecutor = uiExecutor;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a detector with the threshold from {@code FX_STALL_THRESHOLD_MS} (default 250).
+     *
+     * @param uiExecutor runs a task on the UI thread
+     * @return the detector, not started yet
+     */
+    public static FxStallDetector fromEnvironment(Executor uiExecutor) {
+        return new FxStallDetector(uiExecutor,
+                Long.parseLong(DatabaseConfig.getEnv("FX_STALL_THRESHOLD_MS", "250")));
+    }
+
+    /**
+     * Starts the watchdog thread.
+     * <p>
+     * Settings: {@code FX_STALL_CHECK_MS} (heartbeat interval, default 50) and
+     * {@code FX_STALL_LOG_S} (seconds between logged reports, default 60, 0 = off).
+     */
+    public synchronized void start() {
+        if (watchdog != null) {
+            return;
+        }
+        watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fx-stall-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        long check = Long.parseLong(DatabaseConfig.getEnv("FX_STALL_CHECK_MS", "50"));
+        watchdog.scheduleAtFixedRate(this::tick, 0, check, TimeUnit.MILLISECONDS);
+        long logSeconds = Long.parseLong(DatabaseConfig.getEnv("FX_STALL_LOG_S", "60"));
+        if (logSeconds > 0) {
+            watchdog.scheduleAtFixedRate(() -> System.out.println(report()),
+                    logSeconds, logSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * One watchdog check: posts a heartbeat if none is pending, otherwise reports
+     * a stall once the pending heartbeat exceeds the threshold.
+     */
+    void tick() {
+        long now = clock.getAsLong();
+        if (!pending) {
+            stallReported = false;
+            pendingSince = now;
+            pending = true;
+            uiExecutor.execute(this::heartbeat);
+        } else if (!stallReported && now - pendingSince > thresholdNanos) {
+            stallReported = true;
+            stallCount.incrementAndGet();
+            lastStall = describeStall(now - pendingSince);
+            System.err.println("❌ " + lastStall);
+        }
+    }
+
+    /** Runs on the UI thread. */
+    private void heartbeat() {
+        uiThread = Thread.currentThread();
+        long delay = clock.getAsLong() - pendingSince;
+        heartbeats.record(delay);
+        if (stallReported) {
+            System.out.printf(Locale.ROOT, "✅ FX thread responsive again after %.0f ms%n", delay / 1e6);
+        }
+        pending = false;
+    }
+
+    private String describeStall(long blockedNanos) {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                "FX thread blocked for more than %.0f ms", blockedNanos / 1e6));
+        Thread thread = uiThread;
+        if (thread == null) {
+            return sb.append(" (thread not known yet)").toString();
+        }
+        StackTraceElement[] frames = thread.getStackTrace();
+        for (int i = 0; i < Math.min(frames.length, MAX_FRAMES); i++) {
+            sb.append(System.lineSeparator()).append("    at ").append(frames[i]);
+        }
+        if (frames.length > MAX_FRAMES) {
+            sb.append(System.lineSeparator()).append("    ... ").append(frames.length - MAX_FRAMES).append(" more");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Records the duration of one event handler call. Callers leave out the time
+     * modal dialogs of the handler were open, as that is time the user took to
+     * answer rather than work on the FX thread.
+     *
+     * @param handler handler name, e.g. {@code "onCalculate"}
+     * @param nanos   duration in nanoseconds
+     */
+    public void recordHandler(String handler, long nanos) {
+        handlers.computeIfAbsent(handler, h -> new LatencyHistogram()).record(nanos);
+    }
+
+    /**
+     * Returns the histogram of one handler.
+     *
+     * @param handler handler name
+     * @return the histogram, or {@code null} if the handler has not run
+     */
+    public LatencyHistogram getHandlerHistogram(String handler) {
+        return handlers.get(handler);
+    }
+
+    /** @return delays between posting a heartbeat and running it on the UI thread */
+    public LatencyHistogram getHeartbeatHistogram() {
+        return heartbeats;
+    }
+
+    /** @return number of stalls detected */
+    public long getStallCount() {
+        return stallCount.get();
+    }
+
+    /** @return description and stack trace of the latest stall, {@code "none"} before the first */
+    public String getLastStall() {
+        return lastStall;
+    }
+
+    /**
+     * Returns the responsiveness report: heartbeat latencies, stall count and
+     * one line per handler.
+     *
+     * @return multi-line report
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder("=== FX responsiveness ===");
+        sb.append(System.lineSeparator()).append("heartbeat    ").append(heartbeats.summary());
+        sb.append(System.lineSeparator()).append(String.format(Locale.ROOT, "stalls > %d ms: %d",
+                TimeUnit.NANOSECONDS.toMillis(thresholdNanos), getStallCount()));
+        for (Map.Entry<String, LatencyHistogram> entry : handlers.entrySet()) {
+            sb.append(System.lineSeparator())
+                    .append(String.format(Locale.ROOT, "%-12s ", entry.getKey()))
+                    .append(entry.getValue().summary());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Stops the watchdog thread.
+     */
+    @Override
+    public synchronized void close() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+            watchdog = null;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package otp2.shoppingcartapp.classes;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free in-memory {@link CartResultRepository}.
+ * <p>
+ * IDs come from an atomic sequence and carts are kept in a concurrent map;
+ * the item prices stay in the primitive array of the immutable {@link CartResult},
+ * so saving a cart allocates nothing per item.
+ */
+public class InMemoryCartResultRepository implements CartResultRepository {
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentHashMap<Long, CartResult> carts = new ConcurrentHashMap<>();
+
+    @Override
+    public long save(CartResult cart) {
+        long id = sequence.incrementAndGet();
+        carts.put(id, cart.withIdentity(id, Instant.now()));
+        return id;
+    }
+
+    @Override
+    public List<CartResult> findHistory(Integer customerId, int limit) {
+        return carts.values().stream()
+                .filter(c -> customerId == null || customerId.equals(c.getCustomerId()))
+                .sorted(Comparator.comparingLong(CartResult::getId).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Returns a stored cart.
+     *
+     * @param id the ID returned by {@link #save(CartResult)}
+     * @return the cart, or {@code null} if no cart has that ID
+     */
+    public CartResult findById(long id) {
+        return carts.get(id);
+    }
+
+    /** @return number of stored carts */
+    public int count() {
+        return carts.size();
+    }
+}
@@ -0,0 +1,66 @@
+package otp2.shoppingcartapp.classes;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory {@link CartStatisticsRepository}.
+ * <p>
+ * Snapshots are appended to a copy-on-write list; writes happen only every few
+ * minutes, so reads never lock.
+ */
+public class InMemoryCartStatisticsRepository implements CartStatisticsRepository {
+
+    private final List<CartStatisticsSnapshot> snapshots = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void saveAll(List<CartStatisticsSnapshot> newSnapshots) {
+        snapshots.addAll(newSnapshots);
+    }
+
+    @Override
+    public CartStatisticsSnapshot findLatest(String language) {
+        List<CartStatisticsSnapshot> latest = new ArrayList<>();
+        Set<String> instances = new HashSet<>();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            CartStatisticsSnapshot snapshot = snapshots.get(i);
+            if (snapshot.getLanguage().equals(language) && instances.add(snapshot.getInstanceId())) {
+                latest.add(snapshot);
+            }
+        }
+        return CartStatisticsSnapshot.merge(language, latest);
+    }
+
+    @Override
+    public List<CartStatisticsSnapshot> findLatestOf(String instanceId) {
+        List<CartStatisticsSnapshot> latest = new ArrayList<>();
+        Set<String> languages = new HashSet<>();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            CartStatisticsSnapshot snapshot = snapshots.get(i);
+            if (snapshot.getInstanceId().equals(instanceId) && languages.add(snapshot.getLanguage())) {
+                latest.add(snapshot);
+            }
+        }
+        return latest;
+    }
+
+    @Override
+    public List<CartStatisticsSnapshot> findHistory(String language, int limit) {
+        List<CartStatisticsSnapshot> result = new ArrayList<>();
+        for (int i = snapshots.size() - 1; i >= 0 && result.size() < limit; i--) {
+            CartStatisticsSnapshot snapshot = snapshots.get(i);
+            if (snapshot.getLanguage().equals(language)) {
+                result.add(snapshot);
+            }
+        }
+        return result;
+    }
+
+    /** @return number of stored snapshots */
+    public int count() {
+        return snapshots.size();
+    }
+}
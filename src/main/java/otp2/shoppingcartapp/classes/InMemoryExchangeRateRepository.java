@@ -0,0 +1,27 @@
+package otp2.shoppingcartapp.classes;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory {@link ExchangeRateRepository}; {@link #publish} replaces the rates.
+ */
+public class InMemoryExchangeRateRepository implements ExchangeRateRepository {
+
+    private final AtomicReference<ExchangeRateTable> latest = new AtomicReference<>(ExchangeRateTable.EMPTY);
+
+    /**
+     * Stores a new version of the rates.
+     *
+     * @param version version of the rates
+     * @param rates   units of each currency per one unit of the base currency
+     */
+    public void publish(long version, Map<String, Double> rates) {
+        latest.set(new ExchangeRateTable(version, rates));
+    }
+
+    @Override
+    public ExchangeRateTable loadLatest() {
+        return latest.get();
+    }
+}
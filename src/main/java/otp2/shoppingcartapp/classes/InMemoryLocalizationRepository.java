@@ -0,0 +1,53 @@
+package otp2.shoppingcartapp.classes;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lock-free in-memory {@link LocalizationRepository}.
+ * <p>
+ * Every language maps to an immutable snapshot that is replaced with a
+ * compare-and-set on update, so lookups never block and never copy.
+ */
+public class InMemoryLocalizationRepository implements LocalizationRepository {
+
+    private final ConcurrentHashMap<String, Map<String, String>> byLanguage = new ConcurrentHashMap<>();
+
+    @Override
+    public Map<String, String> findByLanguage(String language) {
+        return byLanguage.getOrDefault(language, Map.of());
+    }
+
+    /**
+     * Replaces all strings of one language.
+     *
+     * @param language ISO language code
+     * @param strings  key–value pairs, copied by this method
+     */
+    public void putAll(String language, Map<String, String> strings) {
+        byLanguage.put(language, Map.copyOf(strings));
+    }
+
+    /**
+     * Adds or replaces a single string.
+     *
+     * @param language ISO language code
+     * @param key      localization key
+     * @param value    translated value
+     */
+    public void put(String language, String key, String value) {
+        while (true) {
+            Map<String, String> current = byLanguage.get(language);
+            Map<String, String> next = new HashMap<>(current == null ? Map.of() : current);
+            next.put(key, value);
+            Map<String, String> snapshot = Map.copyOf(next);
+            boolean swapped = current == null
+                    ? byLanguage.putIfAbsent(language, snapshot) == null
+                    : byLanguage.replace(language, current, snapshot);
+            if (swapped) {
+                return;
+            }
+        }
+    }
+}
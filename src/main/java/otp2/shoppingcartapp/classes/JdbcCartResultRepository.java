@@ -0,0 +1,251 @@
+package otp2.shoppingcartapp.classes;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link CartResultRepository} backed by the MariaDB tables:
+ * <ul>
+ *     <li><code>cart_results</code> – one row per saved cart</li>
+ *     <li><code>cart_items</code> – one row per item in a cart</li>
+ *     <li><code>cart_adjustments</code> – one row per pricing adjustment of a cart</li>
+ * </ul>
+ * Saves go to the primary database; history queries use the read side of
+ * {@link ReadWriteRouter} and are served by replicas when they are configured.
+ */
+public class JdbcCartResultRepository implements CartResultRepository {
+
+    private static final String INSERT_RESULT_SQL =
+            "INSERT INTO cart_results (customer_id, total_price, language, item_count, currency) " +
+                    "VALUES (?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO cart_items (cart_result_id, item_index, price) " +
+                    "VALUES (?, ?, ?)";
+
+    private static final String INSERT_ADJUSTMENT_SQL =
+            "INSERT INTO cart_adjustments (cart_result_id, adjustment_index, rule_type, label, amount) " +
+                    "VALUES (?, ?, ?, ?, ?)";
+
+    /**
+     * Latest carts (optionally of one customer) joined with their items.
+     * The inner query picks the carts via the (customer_id, created_at) index,
+     * the outer join reads the items in clustered-key order.
+     */
+    private static final String HISTORY_SQL =
+            "SELECT r.id, r.customer_id, r.total_price, r.language, r.created_at, r.currency, i.price " +
+                    "FROM (SELECT id, customer_id, total_price, language, created_at, currency FROM cart_results " +
+                    "%s ORDER BY created_at DESC, id DESC LIMIT ?) r " +
+                    "LEFT JOIN cart_items i ON i.cart_result_id = r.id " +
+                    "ORDER BY r.created_at DESC, r.id DESC, i.item_index";
+
+    /** Source of write connections (the primary). */
+    private final ConnectionSource writes;
+    /** Source of read connections (replicas or primary). */
+    private final ConnectionSource reads;
+
+    /**
+     * Creates a repository using the default {@link ReadWriteRouter}.
+     */
+    public JdbcCartResultRepository() {
+        this(ReadWriteRouter.getDefault().writer(), ReadWriteRouter.getDefault().reader());
+    }
+
+    /**
+     * Creates a repository for the given connection sources.
+     *
+     * @param writes source of connections for saving carts
+     * @param reads  source of connections for history queries
+     */
+    public JdbcCartResultRepository(ConnectionSource writes, ConnectionSource reads) {
+        this.writes = writes;
+        this.reads = reads;
+    }
+
+    /**
+     * Persists a completed shopping cart into the database.
+     * <p>
+     * The method:
+     * <ol>
+     *     <li>Inserts one row into <code>cart_results</code> with the total price,
+     *     language, item count and currency</li>
+     *     <li>Retrieves the generated cart ID</li>
+     *     <li>Inserts one row per item into <code>cart_items</code></li>
+     *     <li>Inserts one row per pricing adjustment into <code>cart_adjustments</code></li>
+     * </ol>
+     * All rows are written in one transaction.
+     *
+     * @param cart the cart to store
+     * @return the generated cart ID
+     * @throws StorageException if the database is not reachable or the insert fails
+     */
+    @Override
+    public long save(CartResult cart) {
+        String dbUrl = writes.getDescription();
+
+        CartSaveStageEvent connect = CartSaveStageEvent.start("connect", cart.getItemCount());
+        try (Connection conn = writes.getConnection()) {
+            connect.commit();
+            conn.setAutoCommit(false);
+            try {
+                long id = insertCart(conn, cart);
+                CartSaveStageEvent commit = CartSaveStageEvent.start("commit", cart.getItemCount());
+                conn.commit();
+                commit.cartId = id;
+                commit.commit();
+                System.out.println("✅ Shopping cart result + items saved to database at " + dbUrl);
+                return id;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new StorageException("Failed to connect/save shopping cart at " + dbUrl, e);
+        }
+    }
+
+    private static long insertCart(Connection conn, CartResult cart) throws SQLException {
+        // luodaan ostoskoritulos
+        long cartResultId;
+        CartSaveStageEvent stage = CartSaveStageEvent.start("insert-result", cart.getItemCount());
+
+        // Insert root cart result and get its generated ID
+        try (PreparedStatement stmt = conn.prepareStatement(
+                INSERT_RESULT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setQueryTimeout(DatabaseConfig.getQueryTimeoutSeconds());
+
+            if (cart.getCustomerId() != null) {
+                stmt.setInt(1, cart.getCustomerId());
+            } else {
+                stmt.setNull(1, Types.INTEGER);
+            }
+
+            stmt.setDouble(2, cart.getTotalPrice());
+            stmt.setString(3, cart.getLanguage());
+            stmt.setInt(4, cart.getItemCount());
+            stmt.setString(5, cart.getCurrency());
+
+            stmt.executeUpdate();
+
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                if (rs.next()) {
+                    cartResultId = rs.getLong(1);
+                } else {
+                    throw new SQLException("No generated key for cart_results");
+                }
+            }
+        }
+
+        stage.cartId = cartResultId;
+        stage.commit();
+
+        // tallennetaan jokainen itemi cart_items-tauluun
+        stage = CartSaveStageEvent.start("insert-items", cart.getItemCount());
+        stage.cartId = cartResultId;
+        try (PreparedStatement itemStmt = conn.prepareStatement(INSERT_ITEM_SQL)) {
+            itemStmt.setQueryTimeout(DatabaseConfig.getQueryTimeoutSeconds());
+            for (int i = 0; i < cart.getItemCount(); i++) {
+                itemStmt.setLong(1, cartResultId);
+                itemStmt.setInt(2, i + 1);
+                itemStmt.setDouble(3, cart.getPrice(i));
+                itemStmt.addBatch();
+            }
+            itemStmt.executeBatch();
+        }
+
+        // hinnoittelun oikaisut (verot, alennukset) samaan transaktioon
+        if (!cart.getAdjustments().isEmpty()) {
+            try (PreparedStatement adjStmt = conn.prepareStatement(INSERT_ADJUSTMENT_SQL)) {
+                adjStmt.setQueryTimeout(DatabaseConfig.getQueryTimeoutSeconds());
+                int index = 1;
+                for (CartAdjustment adjustment : cart.getAdjustments()) {
+                    adjStmt.setLong(1, cartResultId);
+                    adjStmt.setInt(2, index++);
+                    adjStmt.setString(3, adjustment.getType().name());
+                    adjStmt.setString(4, adjustment.getLabel());
+                    adjStmt.setDouble(5, adjustment.getAmount());
+                    adjStmt.addBatch();
+                }
+                adjStmt.executeBatch();
+            }
+        }
+        stage.commit();
+
+        return cartResultId;
+    }
+
+    /**
+     * Reads the latest carts with their items from the read side.
+     *
+     * @param customerId only carts of this customer; {@code null} for all carts
+     * @param limit      maximum number of carts
+     * @return carts, newest first
+     * @throws StorageException if the database is not reachable
+     */
+    @Override
+    public List<CartResult> findHistory(Integer customerId, int limit) {
+        String sql = String.format(HISTORY_SQL, customerId != null ? "WHERE customer_id = ?" : "");
+        List<CartResult> carts = new ArrayList<>();
+
+        try (Connection conn = reads.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setQueryTimeout(DatabaseConfig.getQueryTimeoutSeconds());
+            int p = 1;
+            if (customerId != null) {
+                stmt.setInt(p++, customerId);
+            }
+            stmt.setInt(p, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                long currentId = -1;
+                Integer currentCustomer = null;
+                double currentTotal = 0;
+                String currentLanguage = null;
+                Timestamp currentCreated = null;
+                String currentCurrency = null;
+                double[] prices = new double[16];
+                int count = 0;
+
+                while (rs.next()) {
+                    long id = rs.getLong(1);
+                    if (id != currentId) {
+                        if (currentId != -1) {
+                            carts.add(toCart(currentId, currentCreated, prices, count,
+                                    currentTotal, currentLanguage, currentCustomer, currentCurrency));
+                        }
+                        currentId = id;
+                        int customer = rs.getInt(2);
+                        currentCustomer = rs.wasNull() ? null : customer;
+                        currentTotal = rs.getDouble(3);
+                        currentLanguage = rs.getString(4);
+                        currentCreated = rs.getTimestamp(5);
+                        currentCurrency = rs.getString(6);
+                        count = 0;
+                    }
+                    double price = rs.getDouble(7);
+                    if (!rs.wasNull()) {
+                        if (count == prices.length) {
+                            prices = Arrays.copyOf(prices, count * 2);
+                        }
+                        prices[count++] = price;
+                    }
+                }
+                if (currentId != -1) {
+                    carts.add(toCart(currentId, currentCreated, prices, count,
+                            currentTotal, currentLanguage, currentCustomer, currentCurrency));
+                }
+            }
+        } catch (SQLException e) {
+            throw new StorageException("Failed to read cart history at " + reads.getDescription(), e);
+        }
+        return carts;
+    }
+
+    private static CartResult toCart(long id, Timestamp created, double[] prices, int count,
+                                     double total, String language, Integer customerId, String currency) {
+        return new CartResult(id, created != null ? created.toInstant() : null,
+                Arrays.copyOf(prices, count), total, language, customerId).withCurrency(currency);
+    }
+}
@@ -0,0 +1,198 @@
+package otp2.shoppingcartapp.classes;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link CartStatisticsRepository} backed by the MariaDB table
+ * <code>cart_stats_snapshots</code>.
+ * <p>
+ * Each row stores the serialized {@link QuantileSketch}es, so any percentile can
+ * be computed later, plus the p50/p90/p99 of the totals as plain columns for ad-hoc
+ * SQL and the histogram counts as comma-separated text. Rows are per application
+ * instance; {@link #findLatest} merges the newest row of every instance. Instance
+ * IDs are stable per client (see {@link CartStatistics#defaultInstanceId()}), so the
+ * number of instances merged does not grow with every restart.
+ */
+public class JdbcCartStatisticsRepository implements CartStatisticsRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO cart_stats_snapshots (taken_at, language, instance_id, cart_count, " +
+                    "total_p50, total_p90, total_p99, total_sketch, item_sketch, total_histogram, item_histogram) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String COLUMNS =
+            "s.id, s.taken_at, s.language, s.instance_id, s.total_sketch, s.item_sketch, " +
+                    "s.total_histogram, s.item_histogram";
+
+    private static final String HISTORY_SQL =
+            "SELECT " + COLUMNS + " FROM cart_stats_snapshots s " +
+                    "WHERE s.language = ? ORDER BY s.taken_at DESC, s.id DESC LIMIT ?";
+
+    /** Newest row of every instance, found via the (language, instance_id, taken_at) index. */
+    private static final String LATEST_SQL =
+            "SELECT " + COLUMNS + " FROM cart_stats_snapshots s " +
+                    "JOIN (SELECT instance_id, MAX(taken_at) AS taken_at FROM cart_stats_snapshots " +
+                    "WHERE language = ? GROUP BY instance_id) l " +
+                    "ON s.instance_id = l.instance_id AND s.taken_at = l.taken_at " +
+                    "WHERE s.language = ? ORDER BY s.id DESC";
+
+    /** Newest row of every language of one instance. */
+    private static final String LATEST_OF_INSTANCE_SQL =
+            "SELECT " + COLUMNS + " FROM cart_stats_snapshots s " +
+                    "JOIN (SELECT language, MAX(taken_at) AS taken_at FROM cart_stats_snapshots " +
+                    "WHERE instance_id = ? GROUP BY language) l " +
+                    "ON s.language = l.language AND s.taken_at = l.taken_at " +
+                    "WHERE s.instance_id = ? ORDER BY s.id DESC";
+
+    /** Source of write connections (the primary). */
+    private final ConnectionSource writes;
+    /** Source of read connections (replicas or primary). */
+    private final ConnectionSource reads;
+
+    /**
+     * Creates a repository using the default {@link ReadWriteRouter}.
+     */
+    public JdbcCartStatisticsRepository() {
+        this(ReadWriteRouter.getDefault().writer(), ReadWriteRouter.getDefault().reader());
+    }
+
+    /**
+     * Creates a repository for the given connection sources.
+     *
+     * @param writes source of connections for saving snapshots
+     * @param reads  source of connections for queries
+     */
+    public JdbcCartStatisticsRepository(ConnectionSource writes, ConnectionSource reads) {
+        this.writes = writes;
+        this.reads = reads;
+    }
+
+    /**
+     * Inserts all snapshots in one batch.
+     *
+     * @throws StorageException if the database is not reachable or the insert fails
+     */
+    @Override
+    public void saveAll(List<CartStatisticsSnapshot> snapshots) {
+        try (Connection conn = writes.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            stmt.setQueryTimeout(DatabaseConfig.getQueryTimeoutSeconds());
+            for (CartStatisticsSnapshot s : snapshots) {
+                stmt.setTimestamp(1, Timestamp.from(s.getTakenAt()));
+                stmt.setString(2, s.getLanguage());
+                stmt.setString(3, s.getInstanceId());
+                stmt.setLong(4, s.getCartCount());
+                setPercentile(stmt, 5, s.getTotalPercentile(50));
+                setPercentile(stmt, 6, s.getTotalPercentile(90));
+                setPercentile(stmt, 7, s.getTotalPercentile(99));
+                stmt.setBytes(8, s.getTotals().toBytes());
+                stmt.setBytes(9, s.getItemCounts().toBytes());
+                stmt.setString(10, joinCounts(s.getTotalHistogram().getCounts()));
+                stmt.setString(11, joinCounts(s.getItemHistogram().getCounts()));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            System.out.println("✅ " + snapshots.size() + " cart statistics snapshots saved to " + writes.getDescription());
+        } catch (SQLException e) {
+            throw new StorageException("Failed to save cart statistics at " + writes.getDescription(), e);
+        }
+    }
+
+    private static void setPercentile(PreparedStatement stmt, int index, double value) throws SQLException {
+        if (Double.isNaN(value)) {
+            stmt.setNull(index, Types.DOUBLE);
+        } else {
+            stmt.setDouble(index, value);
+        }
+    }
+
+    @Override
+    public CartStatisticsSnapshot findLatest(String language) {
+        List<CartStatisticsSnapshot> latest = new ArrayList<>();
+        Set<String> instances = new HashSet<>();
+        for (CartStatisticsSnapshot snapshot : query(LATEST_SQL, language, language)) {
+            if (instances.add(snapshot.getInstanceId())) { // sama aikaleima kahdesti: uusin rivi riittää
+                latest.add(snapshot);
+            }
+        }
+        return CartStatisticsSnapshot.merge(language, latest);
+    }
+
+    @Override
+    public List<CartStatisticsSnapshot> findLatestOf(String instanceId) {
+        List<CartStatisticsSnapshot> latest = new ArrayList<>();
+        Set<String> languages = new HashSet<>();
+        for (CartStatisticsSnapshot snapshot : query(LATEST_OF_INSTANCE_SQL, instanceId, instanceId)) {
+            if (languages.add(snapshot.getLanguage())) {
+                latest.add(snapshot);
+            }
+        }
+        return latest;
+    }
+
+    @Override
+    public List<CartStatisticsSnapshot> findHistory(String language, int limit) {
+        return query(HISTORY_SQL, language, limit);
+    }
+
+    private List<CartStatisticsSnapshot> query(String sql, Object... params) {
+        List<CartStatisticsSnapshot> snapshots = new ArrayList<>();
+        try (Connection conn = reads.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setQueryTimeout(DatabaseConfig.getQueryTimeoutSeconds());
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    snapshots.add(toSnapshot(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new StorageException("Failed to read cart statistics at " + reads.getDescription(), e);
+        }
+        return snapshots;
+    }
+
+    private static CartStatisticsSnapshot toSnapshot(ResultSet rs) throws SQLException {
+        try {
+            FixedHistogram totalHistogram = new FixedHistogram(CartStatistics.TOTAL_BUCKETS);
+            totalHistogram.setCounts(splitCounts(rs.getString(7)));
+            FixedHistogram itemHistogram = new FixedHistogram(CartStatistics.ITEM_BUCKETS);
+            itemHistogram.setCounts(splitCounts(rs.getString(8)));
+            return new CartStatisticsSnapshot(
+                    rs.getTimestamp(2).toInstant(),
+                    rs.getString(3),
+                    rs.getString(4),
+                    QuantileSketch.fromBytes(rs.getBytes(5)),
+                    QuantileSketch.fromBytes(rs.getBytes(6)),
+                    totalHistogram, itemHistogram);
+        } catch (IllegalArgumentException e) {
+            throw new StorageException("Corrupt cart statistics snapshot id=" + rs.getLong(1), e);
+        }
+    }
+
+    static String joinCounts(long[] counts) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(counts[i]);
+        }
+        return sb.toString();
+    }
+
+    static long[] splitCounts(String text) {
+        String[] parts = text.split(",");
+        long[] counts = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            counts[i] = Long.parseLong(parts[i].trim());
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,58 @@
+package otp2.shoppingcartapp.classes;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link ExchangeRateRepository} backed by the MariaDB table <code>exchange_rates</code>.
+ * <p>
+ * New rates are published by inserting a complete set of rows with a higher
+ * <code>version</code>; the newest version is read in one primary-key range scan.
+ */
+public class JdbcExchangeRateRepository implements ExchangeRateRepository {
+
+    private static final String LATEST_SQL =
+            "SELECT version, currency, units_per_base FROM exchange_rates " +
+                    "WHERE version = (SELECT MAX(version) FROM exchange_rates)";
+
+    private final ConnectionSource reads;
+
+    /**
+     * Creates a repository reading from the read side of the default {@link ReadWriteRouter}.
+     */
+    public JdbcExchangeRateRepository() {
+        this(ReadWriteRouter.getDefault().reader());
+    }
+
+    /**
+     * Creates a repository for the given connection source.
+     *
+     * @param reads source of connections
+     */
+    public JdbcExchangeRateRepository(ConnectionSource reads) {
+        this.reads = reads;
+    }
+
+    @Override
+    public ExchangeRateTable loadLatest() {
+        try (Connection conn = reads.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(LATEST_SQL)) {
+            stmt.setQueryTimeout(DatabaseConfig.getQueryTimeoutSeconds());
+            long version = 0;
+            Map<String, Double> rates = new HashMap<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    version = rs.getLong(1);
+                    rates.put(rs.getString(2), rs.getDouble(3));
+                }
+            }
+            return rates.isEmpty() ? ExchangeRateTable.EMPTY : new ExchangeRateTable(version, rates);
+        } catch (SQLException e) {
+            throw new StorageException("Failed to load exchange rates at " + reads.getDescription(), e);
+        }
+    }
+}
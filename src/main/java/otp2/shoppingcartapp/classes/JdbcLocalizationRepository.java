@@ -0,0 +1,67 @@
+package otp2.shoppingcartapp.classes;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link LocalizationRepository} backed by the MariaDB table <code>localization_strings</code>.
+ * <p>
+ * The table is read-only for the application, so lookups use the read side of
+ * {@link ReadWriteRouter} and are served by replicas when they are configured.
+ */
+public class JdbcLocalizationRepository implements LocalizationRepository {
+
+    /** Source of read connections (replicas or primary). */
+    private final ConnectionSource reads;
+
+    /**
+     * Creates a repository reading through the default {@link ReadWriteRouter}.
+     */
+    public JdbcLocalizationRepository() {
+        this(ReadWriteRouter.getDefault().reader());
+    }
+
+    /**
+     * Creates a repository reading from the given connection source.
+     *
+     * @param reads source of read connections
+     */
+    public JdbcLocalizationRepository(ConnectionSource reads) {
+        this.reads = reads;
+    }
+
+    /**
+     * Loads localized strings for the given language from the database.
+     * <p>
+     * The method queries the <code>localization_strings</code> table
+     * and returns all key–value pairs for the given language code.
+     *
+     * @param language the language code (e.g. "en", "fr")
+     * @return a map of localization key to translated value
+     * @throws StorageException if the database is not reachable
+     */
+    @Override
+    public Map<String, String> findByLanguage(String language) {
+        Map<String, String> strings = new HashMap<>();
+        String dbUrl = reads.getDescription();
+
+        try (Connection conn = reads.getConnection()) {
+            String query = "SELECT `key`, value FROM localization_strings WHERE language = ?";
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setQueryTimeout(DatabaseConfig.getQueryTimeoutSeconds());
+                stmt.setString(1, language);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        strings.put(rs.getString("key"), rs.getString("value"));
+                    }
+                }
+            }
+            System.out.println("✅ Loaded localization strings for language: " + language + " from " + dbUrl);
+        } catch (SQLException e) {
+            throw new StorageException("Database connection failed: " + dbUrl, e);
+        }
+
+        return strings;
+    }
+}
@@ -0,0 +1,41 @@
+package otp2.shoppingcartapp.classes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one phase of a language switch in the GUI:
+ * {@code bundle} (resource bundle load), {@code db} (localization fetch)
+ * or {@code relabel} (updating the controls).
+ */
+@Name("otp2.LanguagePhase")
+@Label("Language Switch Phase")
+@Category({"OTP2 Shopping Cart", "Localization"})
+@Description("One phase of switching the UI language")
+@StackTrace(false)
+public class LanguagePhaseEvent extends jdk.jfr.Event {
+
+    @Label("Language")
+    String language;
+
+    @Label("Phase")
+    String phase;
+
+    /**
+     * Creates the event and starts its timer.
+     *
+     * @param language language code being switched to
+     * @param phase    phase name
+     * @return the started event; call {@link #commit()} when the phase ends
+     */
+    static LanguagePhaseEvent start(String language, String phase) {
+        LanguagePhaseEvent event = new LanguagePhaseEvent();
+        event.language = language;
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+}
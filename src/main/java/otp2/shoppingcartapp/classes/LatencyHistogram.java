@@ -0,0 +1,199 @@
+package otp2.shoppingcartapp.classes;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe log-linear latency histogram.
+ * <p>
+ * Values (nanoseconds) are recorded into buckets whose width grows with the
+ * magnitude of the value, so the relative error of every reported percentile
+ * stays below roughly 3 % while the whole histogram uses a fixed amount of memory.
+ * Recording is lock-free and allocation-free, which makes the class usable both
+ * from load-generator worker threads and from the JavaFX application thread.
+ */
+public class LatencyHistogram {
+
+    /** Bits of precision kept within each power of two. */
+    private static final int SUB_BUCKET_BITS = 5;
+    /** Half of the sub-bucket count; every power of two above the linear range is split into this many buckets. */
+    private static final int HALF = 1 << SUB_BUCKET_BITS;
+    /** Values below this limit have a bucket of their own. */
+    private static final int LINEAR = HALF << 1;
+    /** Total number of buckets, enough for any non-negative {@code long}. */
+    private static final int BUCKET_COUNT = LINEAR + (63 - SUB_BUCKET_BITS) * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalSum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one latency value.
+     *
+     * @param nanos the measured duration in nanoseconds; negative values are recorded as zero
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketIndex(value));
+        totalCount.incrementAndGet();
+        totalSum.addAndGet(value);
+        min.accumulateAndGet(value, Math::min);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the sample count
+     */
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Returns the smallest recorded value, or 0 if nothing was recorded.
+     *
+     * @return minimum in nanoseconds
+     */
+    public long getMin() {
+        return getCount() == 0 ? 0 : min.get();
+    }
+
+    /**
+     * Returns the largest recorded value.
+     *
+     * @return maximum in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the arithmetic mean of the recorded values.
+     *
+     * @return mean in nanoseconds, 0 if nothing was recorded
+     */
+    public double getMean() {
+        long n = getCount();
+        return n == 0 ? 0.0 : (double) totalSum.get() / n;
+    }
+
+    /**
+     * Returns the value at the given percentile.
+     * <p>
+     * The result is the upper bound of the bucket that contains the requested
+     * rank, capped at the largest recorded value.
+     *
+     * @param percentile percentile between 0 and 100 (e.g. {@code 99.9})
+     * @return the latency in nanoseconds, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long n = getCount();
+        if (n == 0) {
+            return 0;
+        }
+        double p = Math.min(100.0, Math.max(0.0, percentile));
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Clears all recorded values.
+     * <p>
+     * Not atomic with respect to concurrent {@link #record(long)} calls;
+     * intended to be used between measurement phases (e.g. after warm-up).
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalSum.set(0);
+        min.set(Long.MAX_VALUE);
+        max.set(0);
+    }
+
+    /**
+     * Returns a one-line summary with count, mean and the common percentiles in milliseconds.
+     *
+     * @return human readable summary
+     */
+    public String summary() {
+        return String.format(Locale.ROOT, "n=%d mean=%.2fms p50=%.2fms p95=%.2fms p99=%.2fms p999=%.2fms max=%.2fms",
+                getCount(),
+                getMean() / 1_000_000.0,
+                toMillis(getValueAtPercentile(50)),
+                toMillis(getValueAtPercentile(95)),
+                toMillis(getValueAtPercentile(99)),
+                toMillis(getValueAtPercentile(99.9)),
+                toMillis(getMax()));
+    }
+
+    /**
+     * Writes the non-empty buckets as CSV lines
+     * ({@code name,bucket_upper_us,count,cumulative_percent}).
+     *
+     * @param name   label written in the first column, e.g. the operation name
+     * @param writer target writer; not closed by this method
+     * @throws IOException if writing fails
+     */
+    public void writeBuckets(String name, Writer writer) throws IOException {
+        long n = getCount();
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = counts.get(i);
+            if (c == 0) {
+                continue;
+            }
+            seen += c;
+            writer.write(String.format(Locale.ROOT, "%s,%d,%d,%.4f%n",
+                    name,
+                    TimeUnit.NANOSECONDS.toMicros(bucketUpperBound(i)),
+                    c,
+                    n == 0 ? 0.0 : 100.0 * seen / n));
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Maps a value to its bucket: values below {@link #LINEAR} map to themselves,
+     * larger values keep their top {@code SUB_BUCKET_BITS + 1} bits.
+     */
+    static int bucketIndex(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) - HALF;
+        return LINEAR + (shift - 1) * HALF + sub;
+    }
+
+    /** Largest value that maps to the given bucket. */
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int k = index - LINEAR;
+        int shift = k / HALF + 1;
+        long sub = (k % HALF) + HALF;
+        long upper = ((sub + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
@@ -0,0 +1,29 @@
+package otp2.shoppingcartapp.classes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one {@link LocalizationService#getLocalizedStrings(java.util.Locale)} call.
+ */
+@Name("otp2.LocalizationFetch")
+@Label("Localization Fetch")
+@Category({"OTP2 Shopping Cart", "Localization"})
+@Description("Loading the localized strings of one locale from storage")
+@StackTrace(false)
+public class LocalizationFetchEvent extends jdk.jfr.Event {
+
+    @Label("Locale")
+    String locale;
+
+    @Label("Row Count")
+    @Description("Number of strings returned")
+    int rowCount;
+
+    @Label("Failed")
+    @Description("Storage failed or the circuit was open; the UI fell back to the bundle")
+    boolean failed;
+}
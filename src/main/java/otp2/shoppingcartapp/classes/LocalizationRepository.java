@@ -0,0 +1,25 @@
+package otp2.shoppingcartapp.classes;
+
+import java.util.Map;
+
+/**
+ * Lookup abstraction for localized UI strings.
+ * <p>
+ * Implementations:
+ * <ul>
+ *     <li>{@link JdbcLocalizationRepository} – MariaDB table <code>localization_strings</code></li>
+ *     <li>{@link InMemoryLocalizationRepository} – lock-free in-process storage for tests and benchmarks</li>
+ * </ul>
+ */
+public interface LocalizationRepository {
+
+    /**
+     * Returns all key–value pairs for one language.
+     *
+     * @param language ISO language code (e.g. "en", "fr")
+     * @return map of localization key to translated value; empty if the language is unknown.
+     *         The map must not be modified by the caller.
+     * @throws StorageException if the storage cannot be reached
+     */
+    Map<String, String> findByLanguage(String language);
+}
@@ -1,110 +1,76 @@
 package otp2.shoppingcartapp.classes;
 
-import io.github.cdimascio.dotenv.Dotenv;
-import java.sql.*;
 import java.util.*;
 
 /**
- * Service responsible for loading localized strings from the database.
+ * Service responsible for loading localized strings.
  * <p>
- * Configuration (DB host, port, name, user, password) is read from:
- * <ol>
- *     <li>Real environment variables ({@link System#getenv(String)})</li>
- *     <li>A <code>.env</code> file (via dotenv)</li>
- *     <li>Hard-coded defaults, if neither is set</li>
- * </ol>
- * The localized strings are stored in the <code>localization_strings</code> table.
+ * The strings are read through a {@link LocalizationRepository}, which is
+ * injected by the caller – {@link JdbcLocalizationRepository} in production
+ * (table <code>localization_strings</code>) or {@link InMemoryLocalizationRepository}
+ * in tests and benchmarks.
+ * <p>
+ * All lookups run through a {@link CircuitBreaker}: while the database is down
+ * the service returns an empty map immediately and the UI falls back to the
+ * bundled texts instead of waiting for a timeout on every language switch.
  */
 public class LocalizationService {
 
-    /**
-     * Dotenv configuration used to read values from a local .env file.
-     * <p>
-     * if the file is not present (e.g. in production).
-     */
-    private static final Dotenv DOTENV = Dotenv.configure()
-            .ignoreIfMissing()
-            .load();
+    /** Repository used to look up the strings. */
+    private final LocalizationRepository repository;
+
+    /** Circuit breaker guarding the repository. */
+    private final CircuitBreaker circuitBreaker;
 
     /**
-     * Returns a configuration value from environment variables or .env file.
-     * <p>
-     * The lookup order is:
-     * <ol>
-     *     <li>System environment variable</li>
-     *     <li>.env file value</li>
-     *     <li>Provided default value</li>
-     * </ol>
+     * Creates the service with a circuit breaker configured from the environment.
      *
-     * @param key          the environment variable key
-     * @param defaultValue the default value to use if none is defined
-     * @return the resolved value
+     * @param repository repository used to look up localized strings
      */
-    private static String getEnv(String key, String defaultValue) {
-        // 1) oikein ympäristömuuttujat (esim. Docker, OS)
-        String fromEnv = System.getenv(key);
-        if (fromEnv != null && !fromEnv.isEmpty()) {
-            return fromEnv;
-        }
-        // 2) .env-tiedosto
-        String fromFile = DOTENV.get(key);
-        if (fromFile != null && !fromFile.isEmpty()) {
-            return fromFile;
-        }
-        // 3) oletusarvo
-        return defaultValue;
+    public LocalizationService(LocalizationRepository repository) {
+        this(repository, CircuitBreaker.fromEnvironment("localization"));
     }
 
-    /** Database name used for loading localization strings. */
-    private static final String DB_NAME     = getEnv("DB_NAME", "shopping_cart_db");
-    /** Database username. */
-    private static final String DB_USER     = getEnv("DB_USER", "root");
-    /** Database password. */
-    private static final String DB_PASSWORD = getEnv("DB_PASSWORD", "");
-    /** Database host, typically {@code localhost}. */
-    private static final String DB_HOST     = getEnv("DB_HOST", "localhost");
-    /** Database port, e.g. {@code 3306}. */
-    private static final String DB_PORT     = getEnv("DB_PORT", "3306");
-
     /**
-     * Builds the JDBC URL for the MariaDB database, including common flags.
+     * Creates the service.
      *
-     * @return JDBC URL string
+     * @param repository     repository used to look up localized strings
+     * @param circuitBreaker circuit breaker guarding the repository
      */
-    private static String getDatabaseUrl() {
-        return "jdbc:mariadb://" + DB_HOST + ":" + DB_PORT + "/" + DB_NAME
-                + "?useSSL=false&allowPublicKeyRetrieval=true";
+    public LocalizationService(LocalizationRepository repository, CircuitBreaker circuitBreaker) {
+        this.repository = Objects.requireNonNull(repository, "repository");
+        this.circuitBreaker = Objects.requireNonNull(circuitBreaker, "circuitBreaker");
+    }
+
+    /** @return the circuit breaker guarding the repository, e.g. for showing its state */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
     }
 
     /**
-     * Loads localized strings for the given locale from the database.
-     * <p>
-     * The method queries the <code>localization_strings</code> table
-     * and returns all key–value pairs for the given language code.
+     * Loads localized strings for the given locale.
      *
      * @param locale the locale whose language will be used (e.g. "en", "fr")
      * @return a map of localization key to translated value;
-     *         empty map if the database is not reachable or no rows are found
+     *         empty map if the storage is not reachable, the circuit is open
+     *         or no rows are found
      */
-    public static Map<String, String> getLocalizedStrings(Locale locale) {
-        Map<String, String> strings = new HashMap<>();
-        String lang = locale.getLanguage();
-        String dbUrl = getDatabaseUrl();
-
-        try (Connection conn = DriverManager.getConnection(dbUrl, DB_USER, DB_PASSWORD)) {
-            String query = "SELECT `key`, value FROM localization_strings WHERE language = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setString(1, lang);
-                ResultSet rs = stmt.executeQuery();
-                while (rs.next()) {
-                    strings.put(rs.getString("key"), rs.getString("value"));
-                }
+    public Map<String, String> getLocalizedStrings(Locale locale) {
+        LocalizationFetchEvent event = new LocalizationFetchEvent();
+        event.begin();
+        try {
+            Map<String, String> strings = circuitBreaker.call(() -> repository.findByLanguage(locale.getLanguage()));
+            event.rowCount = strings.size();
+            return strings;
+        } catch (StorageException e) {
+            event.failed = true;
+            System.err.println("❌ " + e.getMessage());
+            return Collections.emptyMap();
+        } finally {
+            if (event.shouldCommit()) {
+                event.locale = locale.toString();
+                event.commit();
             }
-            System.out.println("✅ Loaded localization strings for language: " + lang + " from " + dbUrl);
-        } catch (SQLException e) {
-            System.err.println("❌ Database connection failed: " + dbUrl);
         }
-
-        return strings;
     }
 }
@@ -0,0 +1,222 @@
+package otp2.shoppingcartapp.classes;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exception-free parser for the numbers typed into the UI (item counts and prices).
+ * <p>
+ * Results are returned as a {@code long}: a non-negative value on success, or one of
+ * the negative result codes ({@link #EMPTY}, {@link #INVALID}, {@link #TOO_MANY_DECIMALS},
+ * {@link #OUT_OF_RANGE}). Prices are parsed straight into exact minor units of the cart
+ * currency (cents, or whole units for currencies without decimals such as VND), so no
+ * binary floating point rounding happens while parsing. Parsing allocates nothing.
+ * <p>
+ * The parser is locale-aware:
+ * <ul>
+ *     <li>Digits of any Unicode script are accepted (e.g. Eastern Arabic / Urdu
+ *     {@code ۱۲۳}), as long as one number does not mix scripts</li>
+ *     <li>The decimal separator of the locale is used, e.g. {@code ,} for fr and vi</li>
+ *     <li>Grouping separators of the locale are accepted between groups of three digits,
+ *     e.g. {@code 1,234.50} (en), {@code 1 234,50} (fr), {@code 1.234,50} (vi)</li>
+ *     <li>As before, {@code .} and {@code ,} are both accepted as decimal separator when
+ *     they cannot be a grouping separator, so {@code 2,50} still works in English</li>
+ * </ul>
+ * Instances are immutable and thread-safe.
+ */
+public final class NumberInputParser {
+
+    /** The input was empty or blank. */
+    public static final long EMPTY = -1;
+    /** The input is not a number. */
+    public static final long INVALID = -2;
+    /** A price has more decimals than its currency has minor units. */
+    public static final long TOO_MANY_DECIMALS = -3;
+    /** The number is larger than {@link #MAX_COUNT} or {@link #MAX_PRICE_MINOR}. */
+    public static final long OUT_OF_RANGE = -4;
+
+    /** Largest supported number of decimals of a price (e.g. 3 for BHD). */
+    public static final int MAX_PRICE_SCALE = 3;
+    /** Largest accepted item count. */
+    public static final long MAX_COUNT = Integer.MAX_VALUE;
+    /** Largest accepted price in minor units; inside the exact integer range of a double. */
+    public static final long MAX_PRICE_MINOR = 100_000_000_000_000L;
+
+    /** Arabic decimal separator, typed together with Eastern Arabic digits. */
+    private static final char ARABIC_DECIMAL = '\u066B';
+    /** Arabic thousands separator. */
+    private static final char ARABIC_GROUPING = '\u066C';
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1000};
+
+    private static final Map<String, NumberInputParser> CACHE = new ConcurrentHashMap<>();
+
+    /** Parser with {@code .} as decimal and {@code ,} as grouping separator. */
+    public static final NumberInputParser ROOT = forLocale(Locale.ROOT);
+
+    private final char decimalSeparator;
+    private final char groupingSeparator;
+    /** Grouping is a space: plain, no-break and narrow no-break spaces are all accepted. */
+    private final boolean spaceGrouping;
+
+    private NumberInputParser(char decimalSeparator, char groupingSeparator) {
+        this.decimalSeparator = decimalSeparator;
+        this.groupingSeparator = groupingSeparator;
+        this.spaceGrouping = isSpace(groupingSeparator);
+    }
+
+    /**
+     * Returns the parser for a locale. Parsers are cached per language tag.
+     *
+     * @param locale locale of the UI
+     * @return the parser
+     */
+    public static NumberInputParser forLocale(Locale locale) {
+        return CACHE.computeIfAbsent(locale.toLanguageTag(), tag -> {
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+            return new NumberInputParser(symbols.getDecimalSeparator(), symbols.getGroupingSeparator());
+        });
+    }
+
+    /**
+     * Returns whether a result of {@link #parseCount} or {@link #parsePrice} is a value
+     * rather than an error code.
+     *
+     * @param result parse result
+     * @return {@code true} for a parsed value
+     */
+    public static boolean isValue(long result) {
+        return result >= 0;
+    }
+
+    /** @return decimal separator of the locale */
+    public char getDecimalSeparator() {
+        return decimalSeparator;
+    }
+
+    /**
+     * Parses a non-negative whole number, e.g. an item count.
+     *
+     * @param input text typed by the user; leading and trailing spaces are ignored
+     * @return the number, or {@link #EMPTY}, {@link #INVALID} or {@link #OUT_OF_RANGE}
+     */
+    public long parseCount(CharSequence input) {
+        return parse(input, 0, MAX_COUNT);
+    }
+
+    /**
+     * Parses a non-negative price into minor units, e.g. {@code "12,5"} → {@code 1250}
+     * with scale 2. With scale 0 (e.g. VND) a decimal separator makes the price
+     * {@link #INVALID}, so {@code "25,50"} is not read as 2550 dong.
+     *
+     * @param input text typed by the user; leading and trailing spaces are ignored
+     * @param scale decimals of the currency, see {@link Currencies#minorUnitDigits(String)}
+     * @return the price in minor units, or {@link #EMPTY}, {@link #INVALID},
+     *         {@link #TOO_MANY_DECIMALS} or {@link #OUT_OF_RANGE}
+     * @throws IllegalArgumentException if the scale is negative or above {@link #MAX_PRICE_SCALE}
+     */
+    public long parsePrice(CharSequence input, int scale) {
+        if (scale < 0 || scale > MAX_PRICE_SCALE) {
+            throw new IllegalArgumentException("Unsupported price scale: " + scale);
+        }
+        return parse(input, scale, MAX_PRICE_MINOR);
+    }
+
+    private long parse(CharSequence s, int scale, long max) {
+        if (s == null) {
+            return EMPTY;
+        }
+        int start = 0;
+        int end = s.length();
+        while (start < end && isSpace(s.charAt(start))) {
+            start++;
+        }
+        while (end > start && isSpace(s.charAt(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            return EMPTY;
+        }
+
+        long value = 0;
+        int zero = -1;          // merkistön nolla-merkki, ettei skriptejä sekoiteta
+        int intDigits = 0;
+        int fractionDigits = -1; // -1 = ei desimaalierotinta
+        boolean grouped = false;
+        boolean overflow = false;
+
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            int digit = Character.digit(c, 10);
+            if (digit >= 0) {
+                if (zero < 0) {
+                    zero = c - digit;
+                } else if (zero != c - digit) {
+                    return INVALID;
+                }
+                if (fractionDigits >= 0) {
+                    if (fractionDigits == scale) {
+                        return scale == 0 ? INVALID : TOO_MANY_DECIMALS;
+                    }
+                    fractionDigits++;
+                } else {
+                    intDigits++;
+                }
+                if (!overflow) {
+                    value = value * 10 + digit;
+                    overflow = value > max;
+                }
+                continue;
+            }
+            if (fractionDigits >= 0) {
+                return INVALID;
+            }
+            if (isGrouping(c) && (grouped || (intDigits > 0 && intDigits <= 3)) && threeDigitsFollow(s, i, end)) {
+                grouped = true;
+                continue;
+            }
+            if (scale > 0 && isDecimal(c, grouped)) {
+                fractionDigits = 0;
+                continue;
+            }
+            return INVALID;
+        }
+
+        if (intDigits == 0 && fractionDigits <= 0) {
+            return INVALID;
+        }
+        if (overflow) {
+            return OUT_OF_RANGE;
+        }
+        value *= POWERS_OF_TEN[scale - Math.max(fractionDigits, 0)];
+        return value > max ? OUT_OF_RANGE : value;
+    }
+
+    /** @return whether exactly three digits follow position {@code i} up to a non-digit */
+    private static boolean threeDigitsFollow(CharSequence s, int i, int end) {
+        if (i + 3 >= end) {
+            return false;
+        }
+        for (int k = i + 1; k <= i + 3; k++) {
+            if (Character.digit(s.charAt(k), 10) < 0) {
+                return false;
+            }
+        }
+        return i + 4 == end || Character.digit(s.charAt(i + 4), 10) < 0;
+    }
+
+    private boolean isGrouping(char c) {
+        return c == groupingSeparator || c == ARABIC_GROUPING || (spaceGrouping && isSpace(c));
+    }
+
+    /** The lenient {@code .}/{@code ,} is only a decimal separator in ungrouped numbers. */
+    private boolean isDecimal(char c, boolean grouped) {
+        return c == decimalSeparator || c == ARABIC_DECIMAL || (!grouped && (c == '.' || c == ','));
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\u00A0' || c == '\u202F' || c == '\t';
+    }
+}
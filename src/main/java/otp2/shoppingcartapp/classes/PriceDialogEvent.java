@@ -0,0 +1,30 @@
+package otp2.shoppingcartapp.classes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one round-trip of the price input dialog, from showing the
+ * dialog until the user confirms or cancels it.
+ */
+@Name("otp2.PriceDialog")
+@Label("Price Dialog")
+@Category({"OTP2 Shopping Cart", "UI"})
+@Description("One round-trip of the item price dialog")
+@StackTrace(false)
+public class PriceDialogEvent extends jdk.jfr.Event {
+
+    @Label("Item Index")
+    int itemIndex;
+
+    @Label("Attempt")
+    @Description("1 for the first input, higher after invalid input")
+    int attempt;
+
+    @Label("Outcome")
+    @Description("ok, invalid or cancelled")
+    String outcome;
+}
@@ -0,0 +1,355 @@
+package otp2.shoppingcartapp.classes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Pricing rules compiled into a flat evaluation plan.
+ * <p>
+ * {@link #compile(List)} orders the rules by stage (item promotions, cart discounts,
+ * tax) once and stores them in parallel primitive arrays. Evaluating a cart is then a
+ * single loop over those arrays: no rule objects, no boxing and no allocation per item.
+ * An {@link Evaluator} owns the scratch buffers and can be reused for any number of
+ * carts of one currency; {@link #priceAll(String, ExchangeRateTable, long[], int[], long[], long[])}
+ * prices many carts in bulk.
+ * <p>
+ * Prices, adjustments and totals are {@code long} minor units of the cart currency
+ * (see {@link Currencies#minorUnitDigits(String)}). Every rule rounds its adjustment to
+ * whole minor units, so the adjustments add up exactly to the difference between the
+ * item sum and the final total.
+ */
+public class PricingPlan {
+
+    /** Plan without rules: the total is the plain sum of the prices. */
+    public static final PricingPlan EMPTY = compile(List.of());
+
+    private final PricingRule[] rules;
+    private final PricingRule.Type[] types;
+    private final String[] labels;
+    private final double[] first;
+    private final double[] second;
+    /** Currency of the amounts of threshold rules, {@code null} for the other rules. */
+    private final String[] currencies;
+    private final boolean needsSortedPrices;
+
+    private PricingPlan(List<PricingRule> ordered) {
+        int n = ordered.size();
+        rules = ordered.toArray(new PricingRule[0]);
+        types = new PricingRule.Type[n];
+        labels = new String[n];
+        first = new double[n];
+        second = new double[n];
+        currencies = new String[n];
+        boolean sorted = false;
+        for (int i = 0; i < n; i++) {
+            PricingRule rule = ordered.get(i);
+            types[i] = rule.getType();
+            labels[i] = rule.getLabel();
+            first[i] = rule.getFirst();
+            second[i] = rule.getSecond();
+            currencies[i] = rule.getCurrency();
+            sorted |= rule.getType() == PricingRule.Type.MULTI_BUY;
+        }
+        needsSortedPrices = sorted;
+    }
+
+    /**
+     * Compiles the rules into an evaluation plan. Rules of the same type keep
+     * their configured order.
+     *
+     * @param rules configured rules
+     * @return the compiled plan
+     */
+    public static PricingPlan compile(List<PricingRule> rules) {
+        List<PricingRule> ordered = new ArrayList<>(rules);
+        ordered.sort(Comparator.comparing(PricingRule::getType));
+        return new PricingPlan(ordered);
+    }
+
+    /**
+     * Compiles the rules configured in {@code PRICING_RULES} (see {@link PricingRule}).
+     * Without the setting the plan is {@link #EMPTY}.
+     *
+     * @return the compiled plan
+     * @throws IllegalArgumentException if the setting is malformed
+     */
+    public static PricingPlan fromEnvironment() {
+        return compile(PricingRule.parseList(DatabaseConfig.getEnv("PRICING_RULES", "")));
+    }
+
+    /** @return number of rules in the plan */
+    public int size() {
+        return types.length;
+    }
+
+    /**
+     * Returns the type of a compiled rule.
+     *
+     * @param rule index in evaluation order
+     * @return the rule type
+     */
+    public PricingRule.Type getType(int rule) {
+        return types[rule];
+    }
+
+    /**
+     * Returns the label of a compiled rule.
+     *
+     * @param rule index in evaluation order
+     * @return the rule label
+     */
+    public String getLabel(int rule) {
+        return labels[rule];
+    }
+
+    /**
+     * Returns a new evaluator for carts in the currency of the threshold rules
+     * (no exchange rates needed). Evaluators are not thread-safe.
+     *
+     * @param currency ISO 4217 code of the cart prices
+     * @return the evaluator
+     */
+    public Evaluator newEvaluator(String currency) {
+        return newEvaluator(currency, ExchangeRateTable.EMPTY);
+    }
+
+    /**
+     * Returns a new evaluator for carts of one currency. The amounts of threshold rules
+     * are converted from the rule currency with {@code rates} and rounded to minor units
+     * of the cart currency. A threshold rule whose currency has no rate in {@code rates}
+     * is not applied (and a warning is logged). Evaluators are not thread-safe.
+     *
+     * @param currency ISO 4217 code of the cart prices
+     * @param rates    exchange rates, e.g. {@link ExchangeRateService#current()}
+     * @return the evaluator
+     */
+    public Evaluator newEvaluator(String currency, ExchangeRateTable rates) {
+        return new Evaluator(currency, rates, labels);
+    }
+
+    /**
+     * Returns a new evaluator like {@link #newEvaluator(String, ExchangeRateTable)} whose
+     * adjustments are labelled in the language of {@code messages}.
+     *
+     * @param currency ISO 4217 code of the cart prices
+     * @param rates    exchange rates for threshold rules in other currencies
+     * @param messages returns the localized pattern of a message key,
+     *                 see {@link PricingRule#getLabel(UnaryOperator)}
+     * @return the evaluator
+     */
+    public Evaluator newEvaluator(String currency, ExchangeRateTable rates, UnaryOperator<String> messages) {
+        String[] localized = new String[rules.length];
+        for (int r = 0; r < rules.length; r++) {
+            localized[r] = rules[r].getLabel(messages);
+        }
+        return new Evaluator(currency, rates, localized);
+    }
+
+    /**
+     * Prices many carts whose item prices are stored back to back in one array.
+     *
+     * @param currency      ISO 4217 code of the prices
+     * @param rates         exchange rates for threshold rules in other currencies
+     * @param prices        item prices of all carts in minor units
+     * @param offsets       start index of every cart in {@code prices}, plus the end
+     *                      index as last element (length = carts + 1)
+     * @param totalsOut     receives the final total of every cart (length ≥ carts)
+     * @param ruleTotalsOut optional; if not {@code null}, receives the sum of every rule's
+     *                      adjustments over all carts (length ≥ {@link #size()})
+     */
+    public void priceAll(String currency, ExchangeRateTable rates, long[] prices, int[] offsets,
+                         long[] totalsOut, long[] ruleTotalsOut) {
+        Evaluator evaluator = newEvaluator(currency, rates);
+        if (ruleTotalsOut != null) {
+            Arrays.fill(ruleTotalsOut, 0, size(), 0L);
+        }
+        for (int c = 0; c + 1 < offsets.length; c++) {
+            totalsOut[c] = evaluator.price(prices, offsets[c], offsets[c + 1]);
+            if (ruleTotalsOut != null) {
+                for (int r = 0; r < size(); r++) {
+                    ruleTotalsOut[r] += evaluator.adjustments[r];
+                }
+            }
+        }
+    }
+
+    /**
+     * Reusable evaluation state: rule amounts in minor units of the currency,
+     * scratch buffer for promotions and the adjustments of the last priced cart.
+     */
+    public final class Evaluator {
+
+        private final String currency;
+        /** Labels of the recorded adjustments. */
+        private final String[] adjustmentLabels;
+        /** Threshold rules: minimum subtotal and amount off, in minor units. */
+        private final long[] minThreshold = new long[types.length];
+        private final long[] amountOff = new long[types.length];
+        private final long[] adjustments = new long[types.length];
+        private long[] scratch = new long[16];
+        private long subtotal;
+
+        private Evaluator(String currency, ExchangeRateTable rates, String[] adjustmentLabels) {
+            this.currency = currency;
+            this.adjustmentLabels = adjustmentLabels;
+            for (int r = 0; r < types.length; r++) {
+                if (types[r] != PricingRule.Type.THRESHOLD_DISCOUNT) {
+                    continue;
+                }
+                double factor;
+                try {
+                    factor = rates.factor(currencies[r], currency);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("❌ Pricing rule '" + labels[r] + "' not applied to " + currency
+                            + " carts: " + e.getMessage());
+                    minThreshold[r] = Long.MAX_VALUE;
+                    continue;
+                }
+                minThreshold[r] = Currencies.toMinorUnits(first[r] * factor, currency);
+                amountOff[r] = Currencies.toMinorUnits(second[r] * factor, currency);
+            }
+        }
+
+        /** @return ISO 4217 code of the priced carts */
+        public String getCurrency() {
+            return currency;
+        }
+
+        /**
+         * Prices a cart given as a list of prices.
+         *
+         * @param prices item prices in minor units
+         * @return the final total in minor units
+         */
+        public long price(List<Long> prices) {
+            int n = prices.size();
+            if (!needsSortedPrices) {
+                long sum = 0;
+                for (int i = 0; i < n; i++) {
+                    sum += prices.get(i);
+                }
+                return applyRules(sum, scratch, 0);
+            }
+            ensureScratch(n);
+            for (int i = 0; i < n; i++) {
+                scratch[i] = prices.get(i);
+            }
+            return priceScratch(n);
+        }
+
+        /**
+         * Prices the items {@code prices[from..to)}.
+         *
+         * @param prices item prices in minor units
+         * @param from   first item (inclusive)
+         * @param to     last item (exclusive)
+         * @return the final total in minor units
+         */
+        public long price(long[] prices, int from, int to) {
+            int n = to - from;
+            if (!needsSortedPrices) {
+                long sum = 0;
+                for (int i = from; i < to; i++) {
+                    sum += prices[i];
+                }
+                return applyRules(sum, scratch, 0);
+            }
+            ensureScratch(n);
+            System.arraycopy(prices, from, scratch, 0, n);
+            return priceScratch(n);
+        }
+
+        private long priceScratch(int n) {
+            long sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += scratch[i];
+            }
+            Arrays.sort(scratch, 0, n);
+            return applyRules(sum, scratch, n);
+        }
+
+        private void ensureScratch(int n) {
+            if (scratch.length < n) {
+                scratch = new long[Math.max(n, scratch.length * 2)];
+            }
+        }
+
+        /**
+         * Runs the compiled rules.
+         *
+         * @param sum    plain sum of the item prices
+         * @param sorted item prices in ascending order (only read by multi-buy rules)
+         * @param count  number of valid entries in {@code sorted}
+         */
+        private long applyRules(long sum, long[] sorted, int count) {
+            subtotal = sum;
+            long running = sum;
+            int freed = 0; // sorted[0..freed) on jo ilmaisia aiemman multi-buy-säännön jäljiltä
+            for (int r = 0; r < types.length; r++) {
+                long adjustment;
+                switch (types[r]) {
+                    case MULTI_BUY: {
+                        // cheapest items of every full group are free; items freed by an
+                        // earlier multi-buy rule neither count nor are freed again
+                        int free = ((count - freed) / (int) first[r]) * (int) second[r];
+                        long freeSum = 0;
+                        for (int i = freed; i < freed + free; i++) {
+                            freeSum += sorted[i];
+                        }
+                        freed += free;
+                        adjustment = -Math.min(freeSum, running);
+                        break;
+                    }
+                    case PERCENTAGE_DISCOUNT:
+                        adjustment = -Math.round(running * first[r] / 100.0);
+                        break;
+                    case THRESHOLD_DISCOUNT:
+                        adjustment = running >= minThreshold[r] ? -Math.min(amountOff[r], running) : 0;
+                        break;
+                    case TAX:
+                    default:
+                        adjustment = Math.round(running * first[r] / 100.0);
+                        break;
+                }
+                adjustments[r] = adjustment;
+                running += adjustment;
+            }
+            return running;
+        }
+
+        /** @return item sum of the last priced cart in minor units */
+        public long getSubtotal() {
+            return subtotal;
+        }
+
+        /**
+         * Returns one adjustment of the last priced cart.
+         *
+         * @param rule index in evaluation order
+         * @return signed amount in minor units
+         */
+        public long getAdjustment(int rule) {
+            return adjustments[rule];
+        }
+
+        /**
+         * Returns the non-zero adjustments of the last priced cart as objects,
+         * e.g. for saving them with the cart. Their amounts are converted from
+         * minor units to amounts of the currency.
+         *
+         * @return adjustments in evaluation order
+         */
+        public List<CartAdjustment> getAdjustments() {
+            List<CartAdjustment> list = new ArrayList<>();
+            for (int r = 0; r < adjustments.length; r++) {
+                if (adjustments[r] != 0) {
+                    list.add(new CartAdjustment(types[r], adjustmentLabels[r], Currencies.toAmount(adjustments[r], currency)));
+                }
+            }
+            return list;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package otp2.shoppingcartapp.classes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.function.UnaryOperator;
+
+/**
+ * One configured pricing rule (tax, discount or promotion).
+ * <p>
+ * Rules are only a description; {@link PricingPlan#compile(List)} turns a list of
+ * rules into a flat evaluation plan. Rules can be written as text, e.g. in the
+ * {@code PRICING_RULES} setting:
+ * <ul>
+ *     <li>{@code multibuy:3:1} – in every 3 items the cheapest 1 is free</li>
+ *     <li>{@code percent:10} – 10 % off the subtotal</li>
+ *     <li>{@code threshold:50:5:EUR} – 5 € off when the subtotal is at least 50 €; the
+ *     currency defaults to {@link Currencies#DEFAULT_CURRENCY}</li>
+ *     <li>{@code tax:24} – 24 % tax added to the discounted subtotal</li>
+ * </ul>
+ * The amounts of a threshold rule are in the rule's currency. Carts in another
+ * currency get them converted with the current exchange rates
+ * (see {@link PricingPlan#newEvaluator(String, ExchangeRateTable)}).
+ */
+public class PricingRule {
+
+    /**
+     * Rule type. The declaration order is also the evaluation stage order:
+     * item promotions first, then cart discounts, tax last.
+     */
+    public enum Type { MULTI_BUY, PERCENTAGE_DISCOUNT, THRESHOLD_DISCOUNT, TAX }
+
+    private final Type type;
+    private final double first;
+    private final double second;
+    private final String currency;
+
+    private PricingRule(Type type, double first, double second, String currency) {
+        this.type = type;
+        this.first = first;
+        this.second = second;
+        this.currency = currency;
+    }
+
+    /**
+     * "Buy {@code groupSize}, get {@code freeItems} free": for every full group of
+     * {@code groupSize} items, the cheapest {@code freeItems} items of the cart are free.
+     * Items already freed by an earlier multi-buy rule are not counted or freed again.
+     *
+     * @param groupSize items per group, at least 2
+     * @param freeItems free items per group, less than {@code groupSize}
+     * @return the rule
+     */
+    public static PricingRule multiBuy(int groupSize, int freeItems) {
+        if (groupSize < 2 || freeItems < 1 || freeItems >= groupSize) {
+            throw new IllegalArgumentException("multibuy needs groupSize >= 2 and 0 < freeItems < groupSize");
+        }
+        return new PricingRule(Type.MULTI_BUY, groupSize, freeItems, null);
+    }
+
+    /**
+     * Percentage discount on the subtotal.
+     *
+     * @param percent discount in percent (0–100)
+     * @return the rule
+     */
+    public static PricingRule percentageDiscount(double percent) {
+        if (percent < 0 || percent > 100) {
+            throw new IllegalArgumentException("percent must be between 0 and 100");
+        }
+        return new PricingRule(Type.PERCENTAGE_DISCOUNT, percent, 0, null);
+    }
+
+    /**
+     * Fixed discount in {@link Currencies#DEFAULT_CURRENCY} when the subtotal reaches a threshold.
+     *
+     * @param threshold minimum subtotal
+     * @param amountOff amount subtracted (never more than the subtotal)
+     * @return the rule
+     */
+    public static PricingRule thresholdDiscount(double threshold, double amountOff) {
+        return thresholdDiscount(threshold, amountOff, Currencies.DEFAULT_CURRENCY);
+    }
+
+    /**
+     * Fixed discount when the subtotal reaches a threshold.
+     *
+     * @param threshold minimum subtotal
+     * @param amountOff amount subtracted (never more than the subtotal)
+     * @param currency  ISO 4217 code of {@code threshold} and {@code amountOff}
+     * @return the rule
+     * @throws IllegalArgumentException if an amount is negative or the currency is unknown
+     */
+    public static PricingRule thresholdDiscount(double threshold, double amountOff, String currency) {
+        if (threshold < 0 || amountOff < 0) {
+            throw new IllegalArgumentException("threshold and amount must not be negative");
+        }
+        return new PricingRule(Type.THRESHOLD_DISCOUNT, threshold, amountOff, Currencies.normalize(currency));
+    }
+
+    /**
+     * Tax added on top of the discounted subtotal.
+     *
+     * @param ratePercent tax rate in percent
+     * @return the rule
+     */
+    public static PricingRule tax(double ratePercent) {
+        if (ratePercent < 0) {
+            throw new IllegalArgumentException("tax rate must not be negative");
+        }
+        return new PricingRule(Type.TAX, ratePercent, 0, null);
+    }
+
+    /**
+     * Parses a comma separated list of rules, e.g. {@code "multibuy:3:1, tax:24"}.
+     *
+     * @param specs rule list; blank for no rules
+     * @return the parsed rules in the given order
+     * @throws IllegalArgumentException if a rule is malformed
+     */
+    public static List<PricingRule> parseList(String specs) {
+        List<PricingRule> rules = new ArrayList<>();
+        for (String spec : specs.split(",")) {
+            if (!spec.isBlank()) {
+                rules.add(parse(spec));
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * Parses one rule such as {@code "threshold:50:5"} or {@code "threshold:50:5:EUR"}.
+     *
+     * @param spec rule text
+     * @return the parsed rule
+     * @throws IllegalArgumentException if the rule is malformed
+     */
+    public static PricingRule parse(String spec) {
+        String[] parts = spec.trim().toLowerCase(Locale.ROOT).split(":");
+        try {
+            switch (parts[0]) {
+                case "multibuy":
+                    return multiBuy(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+                case "percent":
+                    return percentageDiscount(Double.parseDouble(parts[1]));
+                case "threshold":
+                    return thresholdDiscount(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]),
+                            parts.length > 3 ? parts[3] : Currencies.DEFAULT_CURRENCY);
+                case "tax":
+                    return tax(Double.parseDouble(parts[1]));
+                default:
+                    throw new IllegalArgumentException("Unknown pricing rule: " + spec);
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed pricing rule: " + spec, e);
+        }
+    }
+
+    /** @return rule type */
+    public Type getType() {
+        return type;
+    }
+
+    /** @return first parameter (group size, percent, threshold or tax rate) */
+    double getFirst() {
+        return first;
+    }
+
+    /** @return second parameter (free items or amount off), 0 if unused */
+    double getSecond() {
+        return second;
+    }
+
+    /** @return currency of the amounts of a threshold rule, {@code null} for rules without amounts */
+    public String getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Returns the message key of the label pattern, e.g. {@code "ruleTax"}. The patterns
+     * are in {@code MessagesBundle} and take the arguments of {@link #getLabel(UnaryOperator)}.
+     *
+     * @return message key
+     */
+    public String getLabelKey() {
+        switch (type) {
+            case MULTI_BUY:
+                return "ruleMultiBuy";
+            case PERCENTAGE_DISCOUNT:
+                return "ruleDiscount";
+            case THRESHOLD_DISCOUNT:
+                return "ruleThreshold";
+            case TAX:
+            default:
+                return "ruleTax";
+        }
+    }
+
+    /**
+     * Returns the label in the default language of {@code MessagesBundle},
+     * e.g. {@code "Tax 24%"}.
+     *
+     * @return label
+     */
+    public String getLabel() {
+        ResourceBundle bundle = ResourceBundle.getBundle("MessagesBundle", Locale.ROOT);
+        return getLabel(bundle::getString);
+    }
+
+    /**
+     * Returns the label with the pattern looked up by {@link #getLabelKey()}. The pattern
+     * gets the rule amounts as {@code %1$s} and {@code %2$s}; a threshold rule gets the
+     * amount off, the currency and the minimum subtotal.
+     *
+     * @param messages returns the localized pattern of a message key
+     * @return label stored with the recorded adjustment
+     */
+    public String getLabel(UnaryOperator<String> messages) {
+        String pattern = messages.apply(getLabelKey());
+        switch (type) {
+            case MULTI_BUY:
+                return String.format(Locale.ROOT, pattern, trim(first), trim(second));
+            case THRESHOLD_DISCOUNT:
+                return String.format(Locale.ROOT, pattern, trim(second), currency, trim(first));
+            case PERCENTAGE_DISCOUNT:
+            case TAX:
+            default:
+                return String.format(Locale.ROOT, pattern, trim(first));
+        }
+    }
+
+    private static String trim(double value) {
+        return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    @Override
+    public String toString() {
+        return getLabel();
+    }
+}
@@ -0,0 +1,327 @@
+package otp2.shoppingcartapp.classes;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Mergeable streaming quantile sketch (merging t-digest).
+ * <p>
+ * Values are buffered and periodically merged into a sorted list of centroids
+ * (mean, weight). A centroid may only span one unit of the scale function
+ * {@code k(q) = compression / (2π) · asin(2q - 1)}, so centroids near the median
+ * are large while the tails stay almost exact. Memory is bounded by the compression
+ * (at most about {@code compression} centroids),
+ * independent of the number of values; a quantile query walks the centroids once.
+ * Two sketches can be merged, e.g. to combine per-language sketches or snapshots
+ * from several processes.
+ * <p>
+ * The class is thread-safe; all methods synchronize on the sketch.
+ */
+public class QuantileSketch {
+
+    /** Default compression; gives roughly 0.1 % rank error at the tails. */
+    public static final double DEFAULT_COMPRESSION = 100;
+
+    private static final int FORMAT_VERSION = 1;
+    /** Version, compression, weight, min, max and centroid count. */
+    private static final int HEADER_BYTES = 4 + 8 * 4 + 4;
+    private static final int CENTROID_BYTES = 16;
+    /** Largest compression accepted from serialized data. */
+    private static final double MAX_COMPRESSION = 10_000;
+
+    private final double compression;
+
+    private double[] means;
+    private double[] weights;
+    private int centroids;
+
+    private final double[] buffer;
+    private int buffered;
+
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Creates a sketch with {@link #DEFAULT_COMPRESSION}.
+     */
+    public QuantileSketch() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates a sketch.
+     *
+     * @param compression accuracy parameter; higher is more accurate and uses more memory
+     */
+    public QuantileSketch(double compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("compression must be at least 10");
+        }
+        this.compression = compression;
+        int capacity = (int) Math.ceil(2 * compression) + 10;
+        means = new double[capacity];
+        weights = new double[capacity];
+        buffer = new double[(int) (5 * compression)];
+    }
+
+    /**
+     * Adds one value.
+     *
+     * @param value the value; NaN is ignored
+     */
+    public synchronized void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (buffered == buffer.length) {
+            compress();
+        }
+        buffer[buffered++] = value;
+        totalWeight++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds all values of another sketch to this one.
+     *
+     * @param other sketch to merge; not modified
+     */
+    public void merge(QuantileSketch other) {
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot merge a sketch into itself");
+        }
+        double[] otherMeans;
+        double[] otherWeights;
+        double otherMin;
+        double otherMax;
+        synchronized (other) {
+            other.compress();
+            otherMeans = Arrays.copyOf(other.means, other.centroids);
+            otherWeights = Arrays.copyOf(other.weights, other.centroids);
+            otherMin = other.min;
+            otherMax = other.max;
+        }
+        synchronized (this) {
+            compress();
+            mergeCentroids(otherMeans, otherWeights, otherMeans.length);
+            min = Math.min(min, otherMin);
+            max = Math.max(max, otherMax);
+        }
+    }
+
+    /** Merges the buffered values into the centroids. */
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        Arrays.sort(buffer, 0, buffered);
+        double[] ones = new double[buffered];
+        Arrays.fill(ones, 1.0);
+        int n = buffered;
+        buffered = 0;
+        // puskuri on jo laskettu totalWeight-arvoon
+        totalWeight -= n;
+        mergeCentroids(Arrays.copyOf(buffer, n), ones, n);
+    }
+
+    /**
+     * Merges sorted (mean, weight) pairs into the centroids and re-clusters them
+     * so that no centroid spans more than one unit of {@link #scale}.
+     */
+    private void mergeCentroids(double[] inMeans, double[] inWeights, int count) {
+        int total = centroids + count;
+        if (total == 0) {
+            return;
+        }
+        double[] allMeans = new double[total];
+        double[] allWeights = new double[total];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < centroids || j < count) {
+            if (j >= count || (i < centroids && means[i] <= inMeans[j])) {
+                allMeans[k] = means[i];
+                allWeights[k++] = weights[i++];
+            } else {
+                allMeans[k] = inMeans[j];
+                allWeights[k++] = inWeights[j++];
+            }
+        }
+        for (int w = 0; w < count; w++) {
+            totalWeight += inWeights[w];
+        }
+
+        int out = 0;
+        double soFar = 0;
+        double kLeft = scale(0);
+        double curMean = allMeans[0];
+        double curWeight = allWeights[0];
+        for (int x = 1; x < total; x++) {
+            double proposed = curWeight + allWeights[x];
+            if (scale((soFar + proposed) / totalWeight) - kLeft <= 1.0) {
+                curMean += (allMeans[x] - curMean) * allWeights[x] / proposed;
+                curWeight = proposed;
+            } else {
+                out = emit(out, curMean, curWeight);
+                soFar += curWeight;
+                kLeft = scale(soFar / totalWeight);
+                curMean = allMeans[x];
+                curWeight = allWeights[x];
+            }
+        }
+        centroids = emit(out, curMean, curWeight);
+    }
+
+    /**
+     * Scale function k1: a centroid may span at most one unit of k. The slope is
+     * steep near q = 0 and q = 1, so the tails get small centroids.
+     */
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1.0, q) - 1);
+    }
+
+    private int emit(int index, double mean, double weight) {
+        if (index == means.length) {
+            means = Arrays.copyOf(means, index * 2);
+            weights = Arrays.copyOf(weights, index * 2);
+        }
+        means[index] = mean;
+        weights[index] = weight;
+        return index + 1;
+    }
+
+    /** @return number of values added */
+    public synchronized long getCount() {
+        return (long) totalWeight;
+    }
+
+    /** @return smallest value, NaN if empty */
+    public synchronized double getMin() {
+        return totalWeight == 0 ? Double.NaN : min;
+    }
+
+    /** @return largest value, NaN if empty */
+    public synchronized double getMax() {
+        return totalWeight == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * Estimates the value at a quantile.
+     *
+     * @param q quantile between 0 and 1 (e.g. {@code 0.99})
+     * @return the estimate, NaN if the sketch is empty
+     */
+    public synchronized double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("q must be between 0 and 1");
+        }
+        compress();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        if (centroids == 1) {
+            return means[0];
+        }
+        double index = q * totalWeight;
+        if (index < weights[0] / 2) {
+            // alku: interpoloidaan minimin ja ensimmäisen keskiön välillä
+            return min + (means[0] - min) * index / (weights[0] / 2);
+        }
+        double cumulative = 0;
+        for (int i = 0; i < centroids - 1; i++) {
+            double left = cumulative + weights[i] / 2;
+            double right = cumulative + weights[i] + weights[i + 1] / 2;
+            if (index <= right) {
+                return means[i] + (means[i + 1] - means[i]) * (index - left) / (right - left);
+            }
+            cumulative += weights[i];
+        }
+        double lastCenter = totalWeight - weights[centroids - 1] / 2;
+        double tail = (index - lastCenter) / (weights[centroids - 1] / 2);
+        return means[centroids - 1] + (max - means[centroids - 1]) * Math.min(1.0, tail);
+    }
+
+    /** @return number of centroids after merging the buffer, a measure of memory use */
+    public synchronized int getCentroidCount() {
+        compress();
+        return centroids;
+    }
+
+    /**
+     * Serializes the sketch, e.g. for a persisted snapshot.
+     *
+     * @return the encoded sketch
+     */
+    public synchronized byte[] toBytes() {
+        compress();
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + centroids * CENTROID_BYTES);
+        buf.putInt(FORMAT_VERSION);
+        buf.putDouble(compression);
+        buf.putDouble(totalWeight);
+        buf.putDouble(min);
+        buf.putDouble(max);
+        buf.putInt(centroids);
+        for (int i = 0; i < centroids; i++) {
+            buf.putDouble(means[i]);
+            buf.putDouble(weights[i]);
+        }
+        return buf.array();
+    }
+
+    /**
+     * Restores a sketch written by {@link #toBytes()}.
+     *
+     * @param bytes encoded sketch
+     * @return the sketch
+     * @throws IllegalArgumentException if the data is not a sketch, or is truncated,
+     *                                  oversized or inconsistent
+     */
+    public static QuantileSketch fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length < HEADER_BYTES) {
+            throw new IllegalArgumentException("Quantile sketch data is truncated");
+        }
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        if (buf.getInt() != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported quantile sketch format");
+        }
+        double compression = buf.getDouble();
+        if (!(compression >= 10 && compression <= MAX_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid quantile sketch compression: " + compression);
+        }
+        double totalWeight = buf.getDouble();
+        double min = buf.getDouble();
+        double max = buf.getDouble();
+        int n = buf.getInt();
+        if (n < 0 || n > buf.remaining() / CENTROID_BYTES || n > 4 * compression + 10) {
+            throw new IllegalArgumentException("Invalid quantile sketch centroid count: " + n);
+        }
+        if (buf.remaining() != n * CENTROID_BYTES) {
+            throw new IllegalArgumentException("Quantile sketch data has " + buf.remaining()
+                    + " bytes for " + n + " centroids");
+        }
+        QuantileSketch sketch = new QuantileSketch(compression);
+        sketch.means = new double[Math.max(n, sketch.means.length)];
+        sketch.weights = new double[sketch.means.length];
+        double weightSum = 0;
+        for (int i = 0; i < n; i++) {
+            sketch.means[i] = buf.getDouble();
+            sketch.weights[i] = buf.getDouble();
+            if (!(sketch.weights[i] > 0) || Double.isNaN(sketch.means[i])
+                    || (i > 0 && sketch.means[i] < sketch.means[i - 1])) {
+                throw new IllegalArgumentException("Invalid quantile sketch centroid " + i);
+            }
+            weightSum += sketch.weights[i];
+        }
+        if (Math.abs(weightSum - totalWeight) > 1e-6 * Math.max(1, totalWeight)
+                || (n > 0 && !(min <= sketch.means[0] && max >= sketch.means[n - 1]))) {
+            throw new IllegalArgumentException("Inconsistent quantile sketch totals");
+        }
+        sketch.totalWeight = totalWeight;
+        sketch.min = min;
+        sketch.max = max;
+        sketch.centroids = n;
+        return sketch;
+    }
+}
@@ -0,0 +1,215 @@
+package otp2.shoppingcartapp.classes;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes read-only queries to replicas and writes to the primary database.
+ * <p>
+ * Reads are balanced round-robin over the replicas that are currently healthy.
+ * A replica that refuses a connection is taken out of rotation immediately; a
+ * background health check probes all replicas periodically and puts recovered
+ * ones back. If no replica is available the read falls back to the primary, so
+ * localization and history queries keep working with zero replicas configured.
+ */
+public class ReadWriteRouter implements AutoCloseable {
+
+    /** Seconds a health check waits for {@link Connection#isValid(int)}. */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    /** One read replica and its last known health. */
+    private static final class Replica {
+        final ConnectionSource source;
+        volatile boolean healthy = true;
+
+        Replica(ConnectionSource source) {
+            this.source = source;
+        }
+    }
+
+    private final ConnectionSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ConnectionSource reader = new ConnectionSource() {
+        @Override
+        public Connection getConnection() throws SQLException {
+            return openRead();
+        }
+
+        @Override
+        public String getDescription() {
+            return describeReads();
+        }
+    };
+
+    private ScheduledExecutorService healthChecker;
+
+    /**
+     * Creates a router.
+     *
+     * @param primary  the primary database; receives all writes
+     * @param replicas read replicas; may be empty
+     */
+    public ReadWriteRouter(ConnectionSource primary, List<? extends ConnectionSource> replicas) {
+        this.primary = primary;
+        for (ConnectionSource replica : replicas) {
+            this.replicas.add(new Replica(replica));
+        }
+    }
+
+    /**
+     * Lazily created router configured from the environment and shared by the
+     * JDBC repositories, so the application runs only one health check thread.
+     */
+    private static final class DefaultHolder {
+        static final ReadWriteRouter INSTANCE = createDefault();
+
+        private static ReadWriteRouter createDefault() {
+            ReadWriteRouter router = new ReadWriteRouter(
+                    DatabaseConfig.fromEnvironment(), DatabaseConfig.replicasFromEnvironment());
+            router.startHealthChecks(Long.parseLong(DatabaseConfig.getEnv("DB_REPLICA_CHECK_MS", "5000")));
+            return router;
+        }
+    }
+
+    /**
+     * Returns the shared router built from {@code DB_HOST}/{@code DB_WRITE_HOST}
+     * and {@code DB_READ_HOSTS}.
+     *
+     * @return the default router
+     */
+    public static ReadWriteRouter getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Creates a router over the same databases as {@link #getDefault()} whose
+     * connections have no socket timeout, for long running reads such as the cart
+     * history export. It runs no health checks.
+     *
+     * @return a new router
+     */
+    public static ReadWriteRouter withoutSocketTimeouts() {
+        List<DatabaseConfig> replicas = new ArrayList<>();
+        for (DatabaseConfig replica : DatabaseConfig.replicasFromEnvironment()) {
+            replicas.add(replica.withoutSocketTimeout());
+        }
+        return new ReadWriteRouter(DatabaseConfig.fromEnvironment().withoutSocketTimeout(), replicas);
+    }
+
+    /** @return connection source for writes (always the primary) */
+    public ConnectionSource writer() {
+        return primary;
+    }
+
+    /** @return connection source for reads (healthy replicas, else the primary) */
+    public ConnectionSource reader() {
+        return reader;
+    }
+
+    private Connection openRead() throws SQLException {
+        int n = replicas.size();
+        if (n > 0) {
+            int start = Math.floorMod(nextReplica.getAndIncrement(), n);
+            for (int i = 0; i < n; i++) {
+                Replica replica = replicas.get((start + i) % n);
+                if (!replica.healthy) {
+                    continue;
+                }
+                try {
+                    return replica.source.getConnection();
+                } catch (SQLException e) {
+                    markDown(replica);
+                }
+            }
+        }
+        return primary.getConnection();
+    }
+
+    private void markDown(Replica replica) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            System.err.println("❌ Read replica down, routing reads elsewhere: " + replica.source.getDescription());
+        }
+    }
+
+    /**
+     * Probes every replica once and updates its health.
+     */
+    void checkHealth() {
+        for (Replica replica : replicas) {
+            boolean ok;
+            try (Connection conn = replica.source.getConnection()) {
+                ok = conn.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                ok = false;
+            }
+            if (ok && !replica.healthy) {
+                System.out.println("✅ Read replica back in rotation: " + replica.source.getDescription());
+                replica.healthy = true;
+            } else if (!ok) {
+                markDown(replica);
+            }
+        }
+    }
+
+    /**
+     * Starts probing the replicas on a daemon thread. Does nothing without replicas.
+     *
+     * @param intervalMillis time between two health checks
+     */
+    public synchronized void startHealthChecks(long intervalMillis) {
+        if (replicas.isEmpty() || healthChecker != null) {
+            return;
+        }
+        healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-replica-health");
+            t.setDaemon(true);
+            return t;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** @return number of replicas currently in rotation */
+    public int getHealthyReplicaCount() {
+        int healthy = 0;
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+    private String describeReads() {
+        if (replicas.isEmpty()) {
+            return primary.getDescription();
+        }
+        StringBuilder sb = new StringBuilder("replicas[");
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(i);
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(replica.source.getDescription()).append(replica.healthy ? "" : " (down)");
+        }
+        return sb.append("] fallback ").append(primary.getDescription()).toString();
+    }
+
+    /**
+     * Stops the health check thread.
+     */
+    @Override
+    public synchronized void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+            healthChecker = null;
+        }
+    }
+}
@@ -0,0 +1,504 @@
+package otp2.shoppingcartapp.classes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Applies the versioned SQL migrations bundled under
+ * <code>/otp2/shoppingcartapp/db/migration</code> to a MariaDB database.
+ * <p>
+ * Every applied version is recorded in the <code>schema_migrations</code> table
+ * together with a checksum of its script, so each migration runs exactly once and
+ * edits to an already applied script are detected. The checksum ignores line endings
+ * and trailing whitespace, so a checkout with CRLF line endings (Windows) matches. A named database lock prevents
+ * two application instances from migrating at the same time.
+ * <p>
+ * The class also maintains the monthly range partitions of <code>cart_results</code>
+ * (see {@link #ensurePartitions(int)}) and upgrades hand-made tables from before the
+ * migrations, which V1 and V2 skip because they already exist: <code>cart_results</code>
+ * gets the partitioned layout of V2, and <code>localization_strings</code> and
+ * <code>cart_items</code> get the primary keys of V1 and V2. A table that cannot be
+ * upgraded stops the migration with a {@link StorageException}.
+ */
+public class SchemaMigrator {
+
+    /** Classpath folder of the migration scripts. */
+    private static final String MIGRATION_PATH = "/otp2/shoppingcartapp/db/migration/";
+
+    /** Migration scripts in the order they are applied. New scripts are appended here. */
+    static final List<String> MIGRATION_FILES = List.of(
+            "V1__create_localization_strings.sql",
+            "V2__create_cart_tables.sql",
+            "V3__add_cart_history_index.sql",
+            "V4__create_cart_adjustments.sql",
+            "V5__create_cart_stats_snapshots.sql",
+            "V6__add_currency_and_exchange_rates.sql",
+            "V7__add_stats_snapshot_instance.sql"
+    );
+
+    /**
+     * Earlier checksums of rewritten scripts that are still accepted, because the
+     * rewrite leaves an already migrated database in an equivalent state. The stored
+     * checksum is updated to the current one. V2 used to create a fixed
+     * <code>p_history</code> partition; partitions are now created from the current date.
+     */
+    private static final Map<Integer, Set<Long>> SUPERSEDED_CHECKSUMS = Map.of(
+            2, Set.of(4178642832L)
+    );
+
+    private static final String LOCK_NAME = "otp2_schema_migration";
+
+    private static final String CREATE_HISTORY_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS schema_migrations (" +
+                    "version INT NOT NULL PRIMARY KEY, " +
+                    "description VARCHAR(200) NOT NULL, " +
+                    "checksum BIGINT NOT NULL, " +
+                    "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)";
+
+    /** Connection settings of the database to migrate. */
+    private final DatabaseConfig config;
+
+    /**
+     * Creates a migrator for the given database. Its connections have no socket
+     * timeout, since an ALTER TABLE on a large table may run for minutes.
+     *
+     * @param config database connection settings
+     */
+    public SchemaMigrator(DatabaseConfig config) {
+        this.config = config.withoutSocketTimeout();
+    }
+
+    /**
+     * One versioned migration script.
+     */
+    static final class Migration {
+        final int version;
+        final String description;
+        final String sql;
+        final long checksum;
+
+        Migration(int version, String description, String sql) {
+            this.version = version;
+            this.description = description;
+            this.sql = sql;
+            CRC32 crc = new CRC32();
+            crc.update(normalize(sql).getBytes(StandardCharsets.UTF_8));
+            this.checksum = crc.getValue();
+        }
+
+        /** @return whether a recorded checksum belongs to this script */
+        boolean matches(long recorded) {
+            return recorded == checksum
+                    || SUPERSEDED_CHECKSUMS.getOrDefault(version, Set.of()).contains(recorded);
+        }
+    }
+
+    /**
+     * Normalizes a script for the checksum: CRLF and CR line endings become LF and
+     * trailing whitespace is removed from every line. A script with LF line endings
+     * and no trailing whitespace is returned unchanged.
+     *
+     * @param sql script text
+     * @return normalized text
+     */
+    static String normalize(String sql) {
+        String[] lines = sql.split("\\R", -1);
+        StringBuilder sb = new StringBuilder(sql.length());
+        for (int i = 0; i < lines.length; i++) {
+            if (i > 0) {
+                sb.append('\n');
+            }
+            sb.append(lines[i].stripTrailing());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads all bundled migration scripts.
+     *
+     * @return migrations ordered by version
+     * @throws IllegalStateException if a script is missing or badly named
+     */
+    static List<Migration> loadMigrations() {
+        List<Migration> migrations = new ArrayList<>();
+        for (String file : MIGRATION_FILES) {
+            int separator = file.indexOf("__");
+            if (!file.startsWith("V") || separator < 0 || !file.endsWith(".sql")) {
+                throw new IllegalStateException("Bad migration file name: " + file);
+            }
+            int version = Integer.parseInt(file.substring(1, separator));
+            String description = file.substring(separator + 2, file.length() - 4).replace('_', ' ');
+            try (InputStream in = SchemaMigrator.class.getResourceAsStream(MIGRATION_PATH + file)) {
+                if (in == null) {
+                    throw new IllegalStateException("Migration not found on classpath: " + file);
+                }
+                migrations.add(new Migration(version, description,
+                        new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read migration " + file, e);
+            }
+        }
+        return migrations;
+    }
+
+    /**
+     * Splits a script into single statements.
+     * <p>
+     * Lines starting with {@code --} are comments; a statement ends with a
+     * semicolon at the end of a line.
+     *
+     * @param script SQL script
+     * @return the statements without the trailing semicolons
+     */
+    static List<String> splitStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            if (trimmed.endsWith(";")) {
+                current.append(trimmed, 0, trimmed.length() - 1);
+                statements.add(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(trimmed).append('\n');
+            }
+        }
+        if (current.length() > 0) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(config.getDatabaseUrl(), config.getUser(), config.getPassword());
+    }
+
+    /**
+     * Applies all pending migrations and creates the upcoming monthly partitions.
+     *
+     * @return number of migrations applied by this call
+     * @throws StorageException if the database is not reachable, a migration fails
+     *                          or an applied script has been modified
+     */
+    public int migrate() {
+        List<Migration> migrations = loadMigrations();
+        try (Connection conn = connect()) {
+            acquireLock(conn);
+            try {
+                try (Statement st = conn.createStatement()) {
+                    st.execute(CREATE_HISTORY_TABLE_SQL);
+                }
+                upgradeLegacyCartTable(conn);
+                upgradeLegacyPrimaryKey(conn, "localization_strings", List.of("language", "key"));
+                upgradeLegacyPrimaryKey(conn, "cart_items", List.of("cart_result_id", "item_index"));
+                Map<Integer, Long> applied = appliedChecksums(conn);
+                int count = 0;
+                for (Migration m : migrations) {
+                    Long checksum = applied.get(m.version);
+                    if (checksum != null) {
+                        if (!m.matches(checksum)) {
+                            throw new StorageException("Migration V" + m.version
+                                    + " has been modified after it was applied");
+                        }
+                        if (checksum != m.checksum) {
+                            updateChecksum(conn, m);
+                        }
+                        continue;
+                    }
+                    apply(conn, m);
+                    count++;
+                    System.out.println("✅ Applied migration V" + m.version + " " + m.description);
+                }
+                ensurePartitions(conn, 3);
+                return count;
+            } finally {
+                releaseLock(conn);
+            }
+        } catch (SQLException e) {
+            throw new StorageException("Schema migration failed at " + config.getDatabaseUrl(), e);
+        }
+    }
+
+    /**
+     * Returns a human readable list of applied and pending migrations.
+     *
+     * @return one line per migration
+     * @throws StorageException if the database is not reachable
+     */
+    public List<String> status() {
+        List<String> lines = new ArrayList<>();
+        try (Connection conn = connect()) {
+            try (Statement st = conn.createStatement()) {
+                st.execute(CREATE_HISTORY_TABLE_SQL);
+            }
+            Map<Integer, Long> applied = appliedChecksums(conn);
+            for (Migration m : loadMigrations()) {
+                Long checksum = applied.get(m.version);
+                String state = checksum == null ? "pending"
+                        : m.matches(checksum) ? "applied" : "MODIFIED";
+                lines.add(String.format("V%-3d %-8s %s", m.version, state, m.description));
+            }
+        } catch (SQLException e) {
+            throw new StorageException("Cannot read schema status at " + config.getDatabaseUrl(), e);
+        }
+        return lines;
+    }
+
+    /**
+     * Makes sure <code>cart_results</code> has a partition for the current month
+     * and the given number of following months.
+     *
+     * @param monthsAhead number of future months to prepare
+     * @return number of partitions created
+     * @throws StorageException if the database is not reachable
+     */
+    public int ensurePartitions(int monthsAhead) {
+        try (Connection conn = connect()) {
+            return ensurePartitions(conn, monthsAhead);
+        } catch (SQLException e) {
+            throw new StorageException("Partition maintenance failed at " + config.getDatabaseUrl(), e);
+        }
+    }
+
+    private int ensurePartitions(Connection conn, int monthsAhead) throws SQLException {
+        Set<String> names = new HashSet<>();
+        LocalDate highestBound = LocalDate.MIN;
+        String sql = "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'cart_results' AND PARTITION_NAME IS NOT NULL";
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+                String bound = rs.getString(2).replace("'", "").trim();
+                if (!bound.equalsIgnoreCase("MAXVALUE")) {
+                    LocalDate date = LocalDate.parse(bound.substring(0, 10));
+                    if (date.isAfter(highestBound)) {
+                        highestBound = date;
+                    }
+                }
+            }
+        }
+        if (!names.contains("p_future")) {
+            return 0; // taulua ei ole osioitu (vanha käsin luotu taulu)
+        }
+
+        int created = 0;
+        YearMonth month = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++, month = month.plusMonths(1)) {
+            LocalDate upper = month.plusMonths(1).atDay(1);
+            if (!upper.isAfter(highestBound)) {
+                continue;
+            }
+            String name = String.format("p%d%02d", month.getYear(), month.getMonthValue());
+            try (Statement st = conn.createStatement()) {
+                st.execute("ALTER TABLE cart_results REORGANIZE PARTITION p_future INTO ("
+                        + "PARTITION " + name + " VALUES LESS THAN ('" + upper + "'), "
+                        + "PARTITION p_future VALUES LESS THAN (MAXVALUE))");
+            }
+            highestBound = upper;
+            created++;
+            System.out.println("✅ Created partition cart_results." + name);
+        }
+        return created;
+    }
+
+    /**
+     * Brings a <code>cart_results</code> table created by hand before the migrations
+     * existed to the layout of V2, which skips the table because it already exists:
+     * <ul>
+     *     <li>a missing <code>created_at</code> column is added; existing rows get the
+     *     time of the upgrade</li>
+     *     <li>foreign keys from or to the table are dropped, because partitioned
+     *     InnoDB tables cannot have them</li>
+     *     <li>the primary key becomes (id, created_at) and the table is partitioned
+     *     by <code>created_at</code> with a single <code>p_future</code> partition, from
+     *     which {@link #ensurePartitions} splits the monthly partitions</li>
+     * </ul>
+     * A missing or already partitioned table is left alone, so the upgrade runs at
+     * most once and also repairs databases on which V3 failed because of the legacy table.
+     *
+     * @return whether the table was upgraded
+     */
+    private static boolean upgradeLegacyCartTable(Connection conn) throws SQLException {
+        String partitionSql = "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'cart_results'";
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(partitionSql)) {
+            if (!rs.next() || rs.getString(1) != null) {
+                return false; // taulua ei ole tai se on jo osioitu
+            }
+        }
+        System.out.println("✅ Upgrading legacy table cart_results to the partitioned layout");
+
+        String columnSql = "SELECT COUNT(*) FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'cart_results' AND COLUMN_NAME = 'created_at'";
+        boolean hasCreatedAt;
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(columnSql)) {
+            hasCreatedAt = rs.next() && rs.getInt(1) > 0;
+        }
+
+        List<String> foreignKeys = new ArrayList<>();
+        String fkSql = "SELECT TABLE_NAME, CONSTRAINT_NAME FROM information_schema.REFERENTIAL_CONSTRAINTS " +
+                "WHERE CONSTRAINT_SCHEMA = DATABASE() " +
+                "AND (TABLE_NAME = 'cart_results' OR REFERENCED_TABLE_NAME = 'cart_results')";
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(fkSql)) {
+            while (rs.next()) {
+                foreignKeys.add("ALTER TABLE `" + rs.getString(1) + "` DROP FOREIGN KEY `" + rs.getString(2) + "`");
+            }
+        }
+
+        try (Statement st = conn.createStatement()) {
+            for (String dropForeignKey : foreignKeys) {
+                st.execute(dropForeignKey);
+            }
+            if (!hasCreatedAt) {
+                st.execute("ALTER TABLE cart_results "
+                        + "ADD COLUMN created_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)");
+            }
+            st.execute("ALTER TABLE cart_results DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at) "
+                    + "PARTITION BY RANGE COLUMNS (created_at) (PARTITION p_future VALUES LESS THAN (MAXVALUE))");
+        } catch (SQLException e) {
+            throw new StorageException("Cannot upgrade the legacy cart_results table: it needs a primary key "
+                    + "on id and every other unique key must include created_at (" + e.getMessage() + ")", e);
+        }
+        return true;
+    }
+
+    /**
+     * Gives a table created by hand before the migrations the clustered primary key
+     * of its migration: (language, key) for <code>localization_strings</code> (one
+     * language is one range scan) and (cart_result_id, item_index) for
+     * <code>cart_items</code> (the items of a cart are stored together).
+     * <p>
+     * A surrogate <code>AUTO_INCREMENT</code> key column, e.g. <code>id</code>, is
+     * dropped; other columns are kept. A missing table, or one that already has the
+     * key, is left alone.
+     *
+     * @param table      table name
+     * @param keyColumns columns of the expected primary key, in order
+     * @return whether the key was changed
+     * @throws StorageException if a key column is missing or the key values are not unique
+     */
+    private static boolean upgradeLegacyPrimaryKey(Connection conn, String table, List<String> keyColumns)
+            throws SQLException {
+        Set<String> columns = new HashSet<>();
+        List<String> surrogates = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT COLUMN_NAME, EXTRA FROM information_schema.COLUMNS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String column = rs.getString(1);
+                    columns.add(column);
+                    if (rs.getString(2).toLowerCase().contains("auto_increment") && !keyColumns.contains(column)) {
+                        surrogates.add(column);
+                    }
+                }
+            }
+        }
+        if (columns.isEmpty()) {
+            return false; // taulua ei vielä ole, migraatio luo sen
+        }
+        List<String> primaryKey = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT COLUMN_NAME FROM information_schema.STATISTICS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = 'PRIMARY' ORDER BY SEQ_IN_INDEX")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    primaryKey.add(rs.getString(1));
+                }
+            }
+        }
+        if (primaryKey.equals(keyColumns)) {
+            return false;
+        }
+        for (String column : keyColumns) {
+            if (!columns.contains(column)) {
+                throw new StorageException("Cannot upgrade the legacy " + table + " table: column "
+                        + column + " is missing");
+            }
+        }
+        System.out.println("✅ Upgrading legacy table " + table + " to the primary key " + keyColumns);
+
+        StringBuilder alter = new StringBuilder("ALTER TABLE `").append(table).append('`');
+        if (!primaryKey.isEmpty()) {
+            alter.append(" DROP PRIMARY KEY,");
+        }
+        for (String surrogate : surrogates) {
+            alter.append(" DROP COLUMN `").append(surrogate).append("`,");
+        }
+        alter.append(" ADD PRIMARY KEY (`").append(String.join("`, `", keyColumns)).append("`)");
+        try (Statement st = conn.createStatement()) {
+            st.execute(alter.toString());
+        } catch (SQLException e) {
+            throw new StorageException("Cannot upgrade the legacy " + table + " table: the values of "
+                    + keyColumns + " must be unique and not null (" + e.getMessage() + ")", e);
+        }
+        return true;
+    }
+
+    private static Map<Integer, Long> appliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version, checksum FROM schema_migrations")) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+        return applied;
+    }
+
+    private static void apply(Connection conn, Migration m) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            for (String statement : splitStatements(m.sql)) {
+                st.execute(statement);
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO schema_migrations (version, description, checksum) VALUES (?, ?, ?)")) {
+            ps.setInt(1, m.version);
+            ps.setString(2, m.description);
+            ps.setLong(3, m.checksum);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void updateChecksum(Connection conn, Migration m) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE schema_migrations SET checksum = ? WHERE version = ?")) {
+            ps.setLong(1, m.checksum);
+            ps.setInt(2, m.version);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT GET_LOCK(?, 30)")) {
+            ps.setString(1, LOCK_NAME);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Could not acquire schema migration lock");
+                }
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.execute();
+        }
+    }
+}
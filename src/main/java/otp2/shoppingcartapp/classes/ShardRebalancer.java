@@ -0,0 +1,246 @@
+package otp2.shoppingcartapp.classes;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Moves the stored carts of customers whose shard changed after a shard was added
+ * or removed.
+ * <p>
+ * {@link ShardRouter} sends a moved customer's new carts (and history reads) to the
+ * new shard at once, but the customer's older carts stay where they were. This step
+ * copies them, with their items and adjustments, to the shard the router now picks
+ * and then deletes them from the old shard. Shards that were removed from
+ * {@code DB_SHARDS} are passed as retired shards: they are only read from, and every
+ * cart on them is moved. While it runs, the repository should read customer history
+ * from every shard ({@code DB_SHARDS_REBALANCING=true}, see
+ * {@link ShardedCartResultRepository}); afterwards that setting can be removed.
+ * <p>
+ * Each customer is moved in batches of at most {@value #BATCH_SIZE} carts. The IDs
+ * of a batch are read from the source first; the batch is copied in one transaction
+ * on the target and then deleted, by the same IDs, in one transaction on the source.
+ * A cart saved on the source in the meantime (e.g. by an instance that still uses
+ * the old shard list) is therefore never deleted without having been copied; it is
+ * moved by the next run. The copy keeps the cart IDs (unique over all shards) and
+ * skips rows that already exist, so an interrupted run can simply be repeated.
+ * Anonymous carts have no owning shard and are not moved.
+ */
+public class ShardRebalancer {
+
+    /** Largest number of carts copied and deleted in one transaction. */
+    static final int BATCH_SIZE = 500;
+
+    private static final String RESULT_COLUMNS =
+            "id, customer_id, total_price, language, item_count, created_at, currency";
+    private static final String ITEM_COLUMNS = "cart_result_id, item_index, price";
+    private static final String ADJUSTMENT_COLUMNS =
+            "cart_result_id, adjustment_index, rule_type, label, amount";
+
+    private final ShardRouter router;
+    private final List<? extends ConnectionSource> shards;
+    private final List<? extends ConnectionSource> retired;
+
+    /**
+     * Creates the rebalancer for shards that were only added.
+     *
+     * @param router the router with the new shard list
+     * @param shards one connection source per shard, in the router's shard order
+     */
+    public ShardRebalancer(ShardRouter router, List<? extends ConnectionSource> shards) {
+        this(router, shards, List.of());
+    }
+
+    /**
+     * Creates the rebalancer.
+     *
+     * @param router  the router with the new shard list
+     * @param shards  one connection source per shard, in the router's shard order
+     * @param retired shards removed from the router; all their carts are moved away
+     */
+    public ShardRebalancer(ShardRouter router, List<? extends ConnectionSource> shards,
+                           List<? extends ConnectionSource> retired) {
+        if (router.getShardCount() != shards.size()) {
+            throw new IllegalArgumentException("Router has " + router.getShardCount()
+                    + " shards but " + shards.size() + " connection sources were given");
+        }
+        this.router = router;
+        this.shards = List.copyOf(shards);
+        this.retired = List.copyOf(retired);
+    }
+
+    /**
+     * Creates a rebalancer for the databases listed in {@code DB_SHARDS}, keyed
+     * the same way as {@link ShardedCartResultRepository#fromEnvironment()}, that
+     * also empties the removed shards listed in {@code DB_SHARDS_RETIRED}. Its
+     * connections have no socket timeout.
+     *
+     * @return the rebalancer
+     * @throws IllegalStateException if {@code DB_SHARDS} is not set
+     */
+    public static ShardRebalancer fromEnvironment() {
+        List<DatabaseConfig> configs = DatabaseConfig.shardsFromEnvironment();
+        if (configs.isEmpty()) {
+            throw new IllegalStateException("Rebalancing requires DB_SHARDS");
+        }
+        List<String> keys = new ArrayList<>();
+        List<DatabaseConfig> shards = new ArrayList<>();
+        for (DatabaseConfig config : configs) {
+            keys.add(config.getHost() + ":" + config.getPort());
+            shards.add(config.withoutSocketTimeout());
+        }
+        List<DatabaseConfig> retired = new ArrayList<>();
+        for (DatabaseConfig config : DatabaseConfig.retiredShardsFromEnvironment()) {
+            retired.add(config.withoutSocketTimeout());
+        }
+        return new ShardRebalancer(new ShardRouter(keys, ShardRouter.DEFAULT_VIRTUAL_NODES), shards, retired);
+    }
+
+    /**
+     * Moves every customer whose carts are not on the shard the router picks,
+     * including every customer with carts on a retired shard.
+     *
+     * @return number of customers moved (a customer moved off several shards counts once per shard)
+     * @throws StorageException if a shard cannot be read or written
+     */
+    public int rebalance() {
+        int moved = 0;
+        for (int source = 0; source < shards.size(); source++) {
+            for (int customerId : customersOn(shards.get(source))) {
+                int target = router.shardFor(customerId);
+                if (target != source) {
+                    moveCustomer(customerId, shards.get(source), shards.get(target));
+                    moved++;
+                }
+            }
+        }
+        for (ConnectionSource source : retired) {
+            for (int customerId : customersOn(source)) {
+                moveCustomer(customerId, source, shards.get(router.shardFor(customerId)));
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    private static List<Integer> customersOn(ConnectionSource source) {
+        List<Integer> customers = new ArrayList<>();
+        try (Connection conn = source.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(
+                     "SELECT DISTINCT customer_id FROM cart_results WHERE customer_id IS NOT NULL")) {
+            while (rs.next()) {
+                customers.add(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            throw new StorageException("Failed to list customers at " + source.getDescription(), e);
+        }
+        return customers;
+    }
+
+    /**
+     * Copies the carts of one customer to the target shard, then deletes the copied
+     * carts from the source shard.
+     *
+     * @param customerId customer to move
+     * @param from       shard holding the carts
+     * @param to         shard the router picks for the customer
+     * @throws StorageException if a shard cannot be read or written
+     */
+    private void moveCustomer(int customerId, ConnectionSource from, ConnectionSource to) {
+        try (Connection src = from.getConnection()) {
+            List<Long> ids = cartIdsOf(src, customerId);
+            try (Connection dst = to.getConnection()) {
+                for (int start = 0; start < ids.size(); start += BATCH_SIZE) {
+                    moveBatch(src, dst, ids.subList(start, Math.min(start + BATCH_SIZE, ids.size())));
+                }
+            }
+            System.out.println("✅ Moved " + ids.size() + " cart(s) of customer " + customerId
+                    + " from " + from.getDescription() + " to " + to.getDescription());
+        } catch (SQLException e) {
+            throw new StorageException("Failed to move carts of customer " + customerId
+                    + " from " + from.getDescription() + " to " + to.getDescription(), e);
+        }
+    }
+
+    private static List<Long> cartIdsOf(Connection src, int customerId) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (PreparedStatement ps = src.prepareStatement("SELECT id FROM cart_results WHERE customer_id = ?")) {
+            ps.setQueryTimeout(DatabaseConfig.getQueryTimeoutSeconds());
+            ps.setInt(1, customerId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static void moveBatch(Connection src, Connection dst, List<Long> ids) throws SQLException {
+        dst.setAutoCommit(false);
+        try {
+            copyRows(src, dst, "cart_results", RESULT_COLUMNS, "id", ids);
+            copyRows(src, dst, "cart_items", ITEM_COLUMNS, "cart_result_id", ids);
+            copyRows(src, dst, "cart_adjustments", ADJUSTMENT_COLUMNS, "cart_result_id", ids);
+            dst.commit();
+        } catch (SQLException e) {
+            dst.rollback();
+            throw e;
+        }
+
+        // kopio on tallessa, vasta nyt poistetaan lähteestä samat id:t
+        src.setAutoCommit(false);
+        try {
+            deleteRows(src, "cart_items", "cart_result_id", ids);
+            deleteRows(src, "cart_adjustments", "cart_result_id", ids);
+            deleteRows(src, "cart_results", "id", ids);
+            src.commit();
+        } catch (SQLException e) {
+            src.rollback();
+            throw e;
+        }
+    }
+
+    private static String in(String idColumn, int count) {
+        return idColumn + " IN (" + String.join(", ", Collections.nCopies(count, "?")) + ")";
+    }
+
+    private static void copyRows(Connection src, Connection dst, String table, String columns,
+                                 String idColumn, List<Long> ids) throws SQLException {
+        int columnCount = columns.split(",").length;
+        String placeholders = String.join(", ", Collections.nCopies(columnCount, "?"));
+        try (PreparedStatement select = src.prepareStatement(
+                     "SELECT " + columns + " FROM " + table + " WHERE " + in(idColumn, ids.size()));
+             PreparedStatement insert = dst.prepareStatement(
+                     "INSERT IGNORE INTO " + table + " (" + columns + ") VALUES (" + placeholders + ")")) {
+            select.setQueryTimeout(DatabaseConfig.getQueryTimeoutSeconds());
+            insert.setQueryTimeout(DatabaseConfig.getQueryTimeoutSeconds());
+            for (int i = 0; i < ids.size(); i++) {
+                select.setLong(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    for (int c = 1; c <= columnCount; c++) {
+                        insert.setObject(c, rs.getObject(c));
+                    }
+                    insert.addBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static void deleteRows(Connection conn, String table, String idColumn, List<Long> ids)
+            throws SQLException {
+        try (PreparedStatement delete = conn.prepareStatement(
+                "DELETE FROM " + table + " WHERE " + in(idColumn, ids.size()))) {
+            delete.setQueryTimeout(DatabaseConfig.getQueryTimeoutSeconds());
+            for (int i = 0; i < ids.size(); i++) {
+                delete.setLong(i + 1, ids.get(i));
+            }
+            delete.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package otp2.shoppingcartapp.classes;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maps customers to database shards with a consistent hash ring.
+ * <p>
+ * Every shard is placed on the ring at a number of virtual node positions derived
+ * from its key (e.g. {@code host:port}), so the load spreads evenly and adding or
+ * removing a shard moves only about {@code 1/N} of the customers. The stored carts of
+ * those customers are moved by {@link ShardRebalancer}. The ring is two
+ * sorted primitive arrays searched with a binary search. Carts without a customer
+ * have no affinity and are spread round-robin.
+ */
+public class ShardRouter {
+
+    /** Default number of ring positions per shard. */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final int shardCount;
+    /** Ring positions in ascending order. */
+    private final long[] points;
+    /** Shard index owning the position at the same index in {@link #points}. */
+    private final int[] owners;
+    private final AtomicInteger nextAnonymous = new AtomicInteger();
+
+    /**
+     * Builds the ring.
+     *
+     * @param shardKeys    stable identity of every shard, e.g. {@code "db-shard-1:3306"}
+     * @param virtualNodes ring positions per shard
+     */
+    public ShardRouter(List<String> shardKeys, int virtualNodes) {
+        if (shardKeys.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes must be positive");
+        }
+        shardCount = shardKeys.size();
+        int n = shardCount * virtualNodes;
+        long[] hashes = new long[n];
+        Integer[] order = new Integer[n];
+        for (int s = 0; s < shardCount; s++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                int i = s * virtualNodes + v;
+                hashes[i] = hash(shardKeys.get(s) + "#" + v);
+                order[i] = i;
+            }
+        }
+        // kehä rakennetaan kerran, haku käyttää vain järjestettyjä taulukoita
+        Arrays.sort(order, Comparator.comparingLong(i -> hashes[i]));
+        points = new long[n];
+        owners = new int[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = order[i] / virtualNodes;
+        }
+    }
+
+    /** @return number of shards */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Returns the shard of a customer.
+     *
+     * @param customerId customer ID; {@code null} picks the next shard round-robin
+     * @return shard index between 0 and {@link #getShardCount()} - 1
+     */
+    public int shardFor(Integer customerId) {
+        if (customerId == null) {
+            return Math.floorMod(nextAnonymous.getAndIncrement(), shardCount);
+        }
+        return shardForHash(mix(customerId));
+    }
+
+    private int shardForHash(long hash) {
+        int i = Arrays.binarySearch(points, hash);
+        if (i < 0) {
+            i = -i - 1;
+            if (i == points.length) {
+                i = 0; // kehän ympäri
+            }
+        }
+        return owners[i];
+    }
+
+    /** 64-bit FNV-1a of the UTF-8 bytes, finished with {@link #mix(long)}. */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    /** MurmurHash3 finalizer; spreads consecutive IDs over the whole ring. */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
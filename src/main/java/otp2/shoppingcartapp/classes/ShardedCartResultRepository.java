@@ -0,0 +1,154 @@
+package otp2.shoppingcartapp.classes;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link CartResultRepository} that spreads carts over several database shards.
+ * <p>
+ * A cart is stored on the shard chosen by {@link ShardRouter#shardFor(Integer)}:
+ * all carts of one customer live on the same shard, anonymous carts are spread
+ * round-robin. The history of one customer is therefore read from a single shard,
+ * while the history of all carts is read from every shard in parallel and merged
+ * newest first.
+ * <p>
+ * When a shard is added or removed, {@link ShardRouter} moves about {@code 1/N} of
+ * the customers to another shard, but their stored carts stay where they were until
+ * {@link ShardRebalancer} moves them. Until then a moved customer's history would be
+ * read from the new, still empty shard. With {@code DB_SHARDS_REBALANCING=true} the
+ * history of one customer is therefore read from every shard and merged (duplicates
+ * of a cart that is being copied are dropped); turn it off again once the rebalancer
+ * has finished.
+ * <p>
+ * Cart IDs come from the auto-increment of each shard. To keep them unique over
+ * the whole cluster, every shard must be started with
+ * {@code auto_increment_increment} ≥ number of shards and its own
+ * {@code auto_increment_offset} (see docker-compose.yml).
+ */
+public class ShardedCartResultRepository implements CartResultRepository {
+
+    /** Newest first, like the single-database history query. */
+    private static final Comparator<CartResult> NEWEST_FIRST =
+            Comparator.comparing(CartResult::getCreatedAt, Comparator.nullsFirst(Comparator.<Instant>naturalOrder()))
+                    .thenComparingLong(CartResult::getId)
+                    .reversed();
+
+    private final ShardRouter router;
+    private final List<CartResultRepository> shards;
+    private final ExecutorService fanOut;
+    /** Read customer history from all shards while carts are being rebalanced. */
+    private final boolean rebalancing;
+
+    /**
+     * Creates the repository.
+     *
+     * @param router routes customers to shard indexes
+     * @param shards one repository per shard, in the router's shard order
+     */
+    public ShardedCartResultRepository(ShardRouter router, List<? extends CartResultRepository> shards) {
+        this(router, shards, false);
+    }
+
+    /**
+     * Creates the repository.
+     *
+     * @param router      routes customers to shard indexes
+     * @param shards      one repository per shard, in the router's shard order
+     * @param rebalancing {@code true} to read customer history from all shards,
+     *                    while {@link ShardRebalancer} moves carts
+     */
+    public ShardedCartResultRepository(ShardRouter router, List<? extends CartResultRepository> shards,
+                                       boolean rebalancing) {
+        if (router.getShardCount() != shards.size()) {
+            throw new IllegalArgumentException("Router has " + router.getShardCount()
+                    + " shards but " + shards.size() + " repositories were given");
+        }
+        this.router = router;
+        this.shards = List.copyOf(shards);
+        this.rebalancing = rebalancing;
+        this.fanOut = Executors.newFixedThreadPool(shards.size(), r -> {
+            Thread t = new Thread(r, "cart-shard-reader");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Creates JDBC shards for the databases listed in {@code DB_SHARDS}, each behind
+     * its own {@link ConnectionPool}. {@code DB_SHARDS_REBALANCING=true} turns on
+     * fan-out reads of customer history.
+     *
+     * @return the repository
+     * @throws IllegalStateException if {@code DB_SHARDS} is not set
+     */
+    public static ShardedCartResultRepository fromEnvironment() {
+        List<DatabaseConfig> configs = DatabaseConfig.shardsFromEnvironment();
+        if (configs.isEmpty()) {
+            throw new IllegalStateException("STORAGE_BACKEND=sharded requires DB_SHARDS");
+        }
+        List<String> keys = new ArrayList<>();
+        List<CartResultRepository> repositories = new ArrayList<>();
+        for (DatabaseConfig config : configs) {
+            keys.add(config.getHost() + ":" + config.getPort());
+            ConnectionPool pool = ConnectionPool.fromEnvironment(config);
+            repositories.add(new JdbcCartResultRepository(pool, pool));
+        }
+        return new ShardedCartResultRepository(
+                new ShardRouter(keys, ShardRouter.DEFAULT_VIRTUAL_NODES), repositories,
+                Boolean.parseBoolean(DatabaseConfig.getEnv("DB_SHARDS_REBALANCING", "false")));
+    }
+
+    @Override
+    public long save(CartResult cart) {
+        return shards.get(router.shardFor(cart.getCustomerId())).save(cart);
+    }
+
+    /**
+     * Reads the latest carts. With a customer only that customer's shard is queried
+     * (all shards while rebalancing), otherwise all shards are queried in parallel and
+     * the results are merged.
+     *
+     * @throws StorageException if a queried shard fails
+     */
+    @Override
+    public List<CartResult> findHistory(Integer customerId, int limit) {
+        if (customerId != null && !rebalancing) {
+            return shards.get(router.shardFor(customerId)).findHistory(customerId, limit);
+        }
+        List<CompletableFuture<List<CartResult>>> futures = new ArrayList<>();
+        for (CartResultRepository shard : shards) {
+            futures.add(CompletableFuture.supplyAsync(() -> shard.findHistory(customerId, limit), fanOut));
+        }
+        List<CartResult> merged = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        try {
+            for (CompletableFuture<List<CartResult>> future : futures) {
+                for (CartResult cart : future.join()) {
+                    if (seen.add(cart.getId())) { // kesken siirron sama kori voi olla kahdella shardilla
+                        merged.add(cart);
+                    }
+                }
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof StorageException) {
+                throw (StorageException) e.getCause();
+            }
+            throw new StorageException("Failed to read cart history from shards", e.getCause());
+        }
+        merged.sort(NEWEST_FIRST);
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    /** @return number of shards */
+    public int getShardCount() {
+        return shards.size();
+    }
+}
@@ -1,8 +1,11 @@
 package otp2.shoppingcartapp.classes;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
 import java.io.IOException;
@@ -13,13 +16,58 @@ import java.util.Objects;
  * <p>
  * This class:
  * <ul>
- *     <li>Loads the main FXML layout</li>
+ *     <li>Starts a continuous JFR recording if {@code JFR_RECORDING} is set (see {@link FlightRecording})</li>
+ *     <li>Applies pending database migrations ({@code DB_MIGRATE_ON_STARTUP}, default {@code true})</li>
+ *     <li>Creates the storage repositories selected by {@code STORAGE_BACKEND}, loads
+ *     the exchange rates and reloads them every {@code EXCHANGE_RATES_REFRESH_S}
+ *     seconds (default 300)</li>
+ *     <li>Loads the main FXML layout and injects the services into the controller</li>
+ *     <li>Starts the {@link FxStallDetector} and adds its {@link DebugOverlay} (F12)</li>
+ *     <li>Feeds saved carts into {@link CartStatistics} (totals converted to
+ *     {@link Currencies#DEFAULT_CURRENCY}) and persists a snapshot every
+ *     {@code STATS_SNAPSHOT_S} seconds (default 300) under a stable instance ID
+ *     ({@code STATS_INSTANCE_ID}, else the host name), resuming from its last snapshot</li>
  *     <li>Applies the global CSS stylesheet</li>
  *     <li>Creates and shows the primary stage</li>
  * </ul>
  */
 public class ShoppingCartApplication extends Application {
 
+    /** Watchdog of the JavaFX application thread; created in {@link #start(Stage)}. */
+    private FxStallDetector stallDetector;
+    /** Streaming statistics of the saved carts; created in {@link #start(Stage)}. */
+    private CartStatistics cartStatistics;
+    /** Exchange rates loaded after the migrations in {@link #init()} and refreshed periodically. */
+    private ExchangeRateService exchangeRates;
+
+    /**
+     * Starts the optional flight recording, brings the database schema
+     * up to date, loads the exchange rates and starts their periodic refresh
+     * before the window is shown.
+     * <p>
+     * Runs on the JavaFX launcher thread, not on the application thread.
+     * Failures are logged and the application starts anyway; the services
+     * then fall back to the bundled texts and report failed saves.
+     */
+    @Override
+    public void init() {
+        FlightRecording.startFromEnvironment();
+
+        StorageBackend backend = StorageBackend.fromEnvironment();
+        boolean migrate = Boolean.parseBoolean(DatabaseConfig.getEnv("DB_MIGRATE_ON_STARTUP", "true"));
+        if (migrate) {
+            for (DatabaseConfig target : backend.getSchemaTargets()) {
+                try {
+                    new SchemaMigrator(target).migrate();
+                } catch (StorageException e) {
+                    System.err.println("❌ " + e.getMessage());
+                }
+            }
+        }
+        exchangeRates = ExchangeRateService.loaded(backend.createExchangeRateRepository());
+        exchangeRates.startRefreshing(Long.parseLong(DatabaseConfig.getEnv("EXCHANGE_RATES_REFRESH_S", "300")));
+    }
+
     /**
      * Initializes and displays the primary JavaFX stage.
      * <p>
@@ -34,7 +82,41 @@ public class ShoppingCartApplication extends Application {
         FXMLLoader fxmlLoader = new FXMLLoader(
                 ShoppingCartApplication.class.getResource("/otp2/shoppingcartapp/ui/cart-view.fxml")
         );
-        Scene scene = new Scene(fxmlLoader.load(), 400, 600);
+        StorageBackend backend = StorageBackend.fromEnvironment();
+        LocalizationService localizationService =
+                new LocalizationService(backend.createLocalizationRepository());
+        ShoppingCartResultService cartResultService =
+                new ShoppingCartResultService(backend.createCartResultRepository());
+        cartStatistics = new CartStatistics(CartStatistics.defaultInstanceId(), exchangeRates);
+        CartStatisticsRepository statisticsRepository = backend.createCartStatisticsRepository();
+        try {
+            cartStatistics.resume(statisticsRepository);
+        } catch (StorageException e) {
+            // ilman jatkamista uusi snapshot korvaisi instanssin aiemmat luvut: käytetään uutta id:tä
+            System.err.println("❌ " + e.getMessage());
+            cartStatistics = new CartStatistics(exchangeRates);
+        }
+        cartResultService.addSaveListener(cartStatistics::record);
+        cartStatistics.startSnapshots(statisticsRepository,
+                Long.parseLong(DatabaseConfig.getEnv("STATS_SNAPSHOT_S", "300")));
+        PricingPlan pricingPlan = PricingPlan.fromEnvironment();
+        FxStallDetector detector = FxStallDetector.fromEnvironment(Platform::runLater);
+        stallDetector = detector;
+        fxmlLoader.setControllerFactory(type -> {
+            if (type == ShoppingCartController.class) {
+                return new ShoppingCartController(localizationService, cartResultService, pricingPlan,
+                        exchangeRates, detector);
+            }
+            try {
+                return type.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot create controller " + type.getName(), e);
+            }
+        });
+        Parent layout = fxmlLoader.load();
+        StackPane root = new StackPane(layout);
+        new DebugOverlay(detector).install(root);
+        Scene scene = new Scene(root, 400, 600);
         scene.getStylesheets().add(
                 Objects.requireNonNull(
                         ShoppingCartApplication.class.getResource("/otp2/shoppingcartapp/ui/cart.css")
@@ -43,6 +125,25 @@ public class ShoppingCartApplication extends Application {
         stage.setTitle("Shopping Cart App");
         stage.setScene(scene);
         stage.show();
+        detector.start();
+    }
+
+    /**
+     * Stops the stall detector, the statistics snapshots and the exchange rate
+     * refresh and logs the final responsiveness report.
+     */
+    @Override
+    public void stop() {
+        if (exchangeRates != null) {
+            exchangeRates.close();
+        }
+        if (cartStatistics != null) {
+            cartStatistics.close();
+        }
+        if (stallDetector != null) {
+            stallDetector.close();
+            System.out.println(stallDetector.report());
+        }
     }
 
     /**
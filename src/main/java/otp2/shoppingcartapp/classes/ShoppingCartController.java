@@ -38,9 +38,9 @@ public class ShoppingCartController {
     @FXML private Label lblTotal;
 
     /**
-     * List of item prices currently entered by the user.
+     * List of item prices currently entered by the user, in minor units of {@link #cartCurrency}.
      */
-    private final List<Double> prices = new ArrayList<>();
+    private final List<Long> prices = new ArrayList<>();
 
     /**
      * Resource bundle used for loading localized strings from properties files.
@@ -54,15 +54,113 @@ public class ShoppingCartController {
     private Map<String, String> dbStrings = Collections.emptyMap();
 
     /**
-     * Last calculated total value of the shopping cart.
+     * Last calculated total value of the shopping cart, in minor units of {@link #cartCurrency}.
      */
-    private double lastTotal = 0.0;
+    private long lastTotal = 0;
 
     /**
      * The current language code used for localization (e.g. {@code "en"}, {@code "fr"}).
      */
     private String currentLanguageCode = "en";
 
+    /**
+     * Parser for counts and prices using the digits and separators of the current language.
+     */
+    private NumberInputParser numberParser = NumberInputParser.forLocale(Locale.ENGLISH);
+
+    /**
+     * Locale of the current language; used for formatting amounts.
+     */
+    private Locale currentLocale = Locale.US;
+
+    /**
+     * Currency of the entered prices. Set from the current language when the items
+     * are entered (like the labels of the pricing adjustments), so a later language
+     * switch does not relabel an existing cart.
+     */
+    private String cartCurrency = Currencies.DEFAULT_CURRENCY;
+
+    /**
+     * Service used to load localized strings from the database.
+     */
+    private final LocalizationService localizationService;
+
+    /**
+     * Service used to persist the shopping cart results.
+     */
+    private final ShoppingCartResultService cartResultService;
+
+    /**
+     * Configured pricing rules (tax, discounts, promotions).
+     */
+    private final PricingPlan pricingPlan;
+
+    /**
+     * Exchange rates for pricing rules whose amounts are in another currency than the cart.
+     */
+    private final ExchangeRateService exchangeRates;
+
+    /**
+     * Evaluator of {@link #pricingPlan} for the currency of the cart, with the exchange
+     * rates current when the items were entered. Only used on the JavaFX application thread.
+     */
+    private PricingPlan.Evaluator pricing;
+
+    /**
+     * Watchdog of the JavaFX thread; collects the durations of the event handlers.
+     */
+    private final FxStallDetector stallDetector;
+
+    /**
+     * Time spent in modal dialogs ({@code showAndWait}) since the current event handler
+     * started; left out of the handler durations. Only used on the JavaFX application thread.
+     */
+    private long dialogNanos;
+
+    /**
+     * Adjustments applied to the last calculated total; saved together with the cart.
+     */
+    private List<CartAdjustment> lastAdjustments = List.of();
+
+    /**
+     * Creates the controller with repositories chosen by the {@code STORAGE_BACKEND} setting.
+     * <p>
+     * Used when the FXML is loaded without a controller factory.
+     */
+    public ShoppingCartController() {
+        this(StorageBackend.fromEnvironment());
+    }
+
+    private ShoppingCartController(StorageBackend backend) {
+        this(new LocalizationService(backend.createLocalizationRepository()),
+                new ShoppingCartResultService(backend.createCartResultRepository()),
+                PricingPlan.fromEnvironment(),
+                ExchangeRateService.loaded(backend.createExchangeRateRepository()),
+                FxStallDetector.fromEnvironment(Runnable::run));
+    }
+
+    /**
+     * Creates the controller with injected services.
+     *
+     * @param localizationService service for loading localized strings
+     * @param cartResultService   service for saving cart results
+     * @param pricingPlan         compiled pricing rules applied when calculating the total
+     * @param exchangeRates       rates for converting the amounts of pricing rules to the cart currency
+     * @param stallDetector       receives the durations of the event handlers
+     */
+    public ShoppingCartController(LocalizationService localizationService,
+                                  ShoppingCartResultService cartResultService,
+                                  PricingPlan pricingPlan,
+                                  ExchangeRateService exchangeRates,
+                                  FxStallDetector stallDetector) {
+        this.localizationService = Objects.requireNonNull(localizationService, "localizationService");
+        this.cartResultService = Objects.requireNonNull(cartResultService, "cartResultService");
+        this.pricingPlan = Objects.requireNonNull(pricingPlan, "pricingPlan");
+        this.exchangeRates = Objects.requireNonNull(exchangeRates, "exchangeRates");
+        this.pricing = pricingPlan.newEvaluator(cartCurrency, exchangeRates.current());
+        this.stallDetector = Objects.requireNonNull(stallDetector, "stallDetector");
+    }
+
     /**
      * Returns a localized string for the given key.
      * <p>
@@ -101,7 +199,7 @@ public class ShoppingCartController {
             comboLanguage.getSelectionModel().select("EN");
         }
         setLanguage("en", "US");
-        lblTotal.setText("Total: 0.00 €");
+        lblTotal.setText("Total: " + money(0));
         btnCalculate.setDisable(true);
 
         if (btnSaveToDb != null) {
@@ -149,8 +247,20 @@ public class ShoppingCartController {
         currentLanguageCode = lang;
 
         Locale locale = new Locale(lang, country);
+        numberParser = NumberInputParser.forLocale(locale);
+        currentLocale = locale;
+        if (prices.isEmpty()) {
+            cartCurrency = Currencies.forLanguage(lang);
+        }
+        LanguagePhaseEvent phase = LanguagePhaseEvent.start(lang, "bundle");
         rb = ResourceBundle.getBundle("MessagesBundle", locale);
-        dbStrings = LocalizationService.getLocalizedStrings(locale);
+        phase.commit();
+
+        phase = LanguagePhaseEvent.start(lang, "db");
+        dbStrings = localizationService.getLocalizedStrings(locale);
+        phase.commit();
+
+        phase = LanguagePhaseEvent.start(lang, "relabel");
 
         if (lblPrompt != null && lblPrompt.getScene() != null) {
             Stage stage = (Stage) lblPrompt.getScene().getWindow();
@@ -185,6 +295,7 @@ public class ShoppingCartController {
                 lblTotal.setNodeOrientation(NodeOrientation.LEFT_TO_RIGHT);
             }
         }
+        phase.commit();
     }
 
     /**
@@ -202,73 +313,110 @@ public class ShoppingCartController {
 
     @FXML
     public void onEnterItems(ActionEvent e) {
-        prices.clear();
-        listItems.getItems().clear();
-        lblTotal.setText("Total: 0.00 €");
-        lastTotal = 0.0;
-        if (btnSaveToDb != null) {
-            btnSaveToDb.setDisable(true);
-        }
-
-        int count;
+        long started = System.nanoTime();
+        dialogNanos = 0;
         try {
-            count = Integer.parseInt(txtItemCount.getText().trim());
-            if (count <= 0) throw new NumberFormatException();
-        } catch (NumberFormatException ex) {
-            showInfo(tr("errInvalidCount"));
-            return;
-        }
+            prices.clear();
+            listItems.getItems().clear();
+            cartCurrency = Currencies.forLanguage(currentLanguageCode);
+            pricing = pricingPlan.newEvaluator(cartCurrency, exchangeRates.current(), this::tr);
+            lblTotal.setText("Total: " + money(0));
+            lastTotal = 0;
+            lastAdjustments = List.of();
+            if (btnSaveToDb != null) {
+                btnSaveToDb.setDisable(true);
+            }
 
-        for (int i = 1; i <= count; i++) {
-            Double price = askForPrice(i);
-            if (price == null) {
-                showInfo(String.format(tr("msgCancelled"), (i - 1)));
-                break;
+            long count = numberParser.parseCount(txtItemCount.getText());
+            if (count <= 0) {
+                showInfo(tr("errInvalidCount"));
+                return;
             }
-            prices.add(price);
-            listItems.getItems().add(
-                    String.format("%s %d: %.2f €", tr("itemWord"), i, price)
-            );
-        }
 
-        btnCalculate.setDisable(prices.isEmpty());
+            for (int i = 1; i <= count; i++) {
+                Long price = askForPrice(i);
+                if (price == null) {
+                    showInfo(String.format(tr("msgCancelled"), (i - 1)));
+                    break;
+                }
+                prices.add(price);
+                listItems.getItems().add(
+                        String.format("%s %d: %s", tr("itemWord"), i, money(price))
+                );
+            }
+
+            btnCalculate.setDisable(prices.isEmpty());
+        } finally {
+            recordHandler("onEnterItems", started);
+        }
     }
 
     /**
      * Handles the action for calculating the total price of all entered items.
      * <p>
      * If no items have been entered, an information dialog is shown.
-     * Otherwise, the total is calculated, displayed and stored for saving to DB.
+     * Otherwise, the total is calculated with the configured pricing rules,
+     * the applied adjustments are listed below the items, and total and
+     * adjustments are stored for saving to DB.
      *
      * @param e the action event fired by the "Calculate" button
      */
 
     @FXML
     public void onCalculate(ActionEvent e) {
-        if (prices.isEmpty()) {
-            showInfo(tr("errNoItems"));
-            return;
-        }
-        double total = calculateTotal(prices);
-        lastTotal = total;
-        lblTotal.setText(String.format("Total: %.2f €", total));
+        long started = System.nanoTime();
+        dialogNanos = 0;
+        try {
+            if (prices.isEmpty()) {
+                showInfo(tr("errNoItems"));
+                return;
+            }
+            long total = pricing.price(prices);
+            lastTotal = total;
+            lastAdjustments = pricing.getAdjustments();
+
+            // näytetään oikaisut tuotteiden perässä (poistetaan edellisen laskennan rivit)
+            listItems.getItems().remove(prices.size(), listItems.getItems().size());
+            for (CartAdjustment adjustment : lastAdjustments) {
+                listItems.getItems().add(
+                        String.format("%s: %s", adjustment.getLabel(),
+                                Currencies.formatSigned(adjustment.getAmount(), cartCurrency, currentLocale))
+                );
+            }
+            lblTotal.setText("Total: " + money(total));
 
-        if (btnSaveToDb != null) {
-            btnSaveToDb.setDisable(false);
+            if (btnSaveToDb != null) {
+                btnSaveToDb.setDisable(false);
+            }
+        } finally {
+            recordHandler("onCalculate", started);
         }
     }
 
+    /**
+     * Formats an amount in the currency of the cart, e.g. {@code "12.50 €"} or {@code "25.000 ₫"}.
+     *
+     * @param minorUnits the amount in minor units of the cart currency
+     * @return the formatted amount
+     */
+
+    private String money(long minorUnits) {
+        return Currencies.format(Currencies.toAmount(minorUnits, cartCurrency), cartCurrency, currentLocale);
+    }
+
     /**
      * Shows a dialog to ask the user to enter the price for one item.
      * <p>
-     * The dialog validates that the input is a non-negative number.
+     * The dialog validates that the input is a non-negative number with at most as
+     * many decimals as the cart currency has (none for VND), written with the digits
+     * and separators of the current language (see {@link NumberInputParser}).
      * If the user cancels the dialog, {@code null} is returned.
      *
      * @param index the index of the item (1-based), used in the dialog title and message
-     * @return the entered price, or {@code null} if the user cancels
+     * @return the entered price in minor units of the cart currency, or {@code null} if the user cancels
      */
 
-    private Double askForPrice(int index) {
+    private Long askForPrice(int index) {
         TextInputDialog dialog = new TextInputDialog();
         dialog.setTitle(String.format("%s %d", tr("itemWord"), index));
         dialog.setHeaderText(null);
@@ -282,35 +430,32 @@ public class ShoppingCartController {
                 getClass().getResource("/otp2/shoppingcartapp/ui/dialog.css").toExternalForm()
         );
 
-        while (true) {
+        for (int attempt = 1; ; attempt++) {
+            PriceDialogEvent event = new PriceDialogEvent();
+            event.itemIndex = index;
+            event.attempt = attempt;
+            event.begin();
+            long shown = System.nanoTime();
             var res = dialog.showAndWait();
-            if (res.isEmpty()) return null;
-            try {
-                double p = Double.parseDouble(res.get().trim().replace(',', '.'));
-                if (p < 0) throw new NumberFormatException();
-                return p;
-            } catch (NumberFormatException ex) {
-                showInfo(tr("errInvalidPrice"));
-                dialog.getEditor().setText("");
+            dialogNanos += System.nanoTime() - shown;
+            if (res.isEmpty()) {
+                event.outcome = "cancelled";
+                event.commit();
+                return null;
             }
+            long minorUnits = numberParser.parsePrice(res.get(), Currencies.minorUnitDigits(cartCurrency));
+            if (NumberInputParser.isValue(minorUnits)) {
+                event.outcome = "ok";
+                event.commit();
+                return minorUnits;
+            }
+            event.outcome = "invalid";
+            event.commit();
+            showInfo(tr("errInvalidPrice"));
+            dialog.getEditor().setText("");
         }
     }
 
-    /**
-     * Calculates the total sum of all prices in the given list.
-     *
-     * @param prices list of item prices
-     * @return the sum of all values in the list
-     */
-
-    private double calculateTotal(List<Double> prices) {
-        double sum = 0;
-        for (double p : prices) {
-            sum += p;
-        }
-        return sum;
-    }
-
     /**
      * Shows a simple information dialog with a localized title and the given message.
      * <p>
@@ -329,34 +474,69 @@ public class ShoppingCartController {
         dp.getStylesheets().add(
                 getClass().getResource("/otp2/shoppingcartapp/ui/dialog.css").toExternalForm()
         );
+        long shown = System.nanoTime();
         a.showAndWait();
+        dialogNanos += System.nanoTime() - shown;
+    }
+
+    /**
+     * Records the duration of an event handler without the time its modal dialogs
+     * were open, so the histogram shows how long the handler kept the FX thread busy
+     * and not how long the user took to answer.
+     *
+     * @param handler handler name
+     * @param started {@link System#nanoTime()} when the handler started
+     */
+
+    private void recordHandler(String handler, long started) {
+        stallDetector.recordHandler(handler, System.nanoTime() - started - dialogNanos);
     }
 
     /**
      * Handles saving the current shopping cart result to the database.
      * <p>
-     * If there are no items or the total is zero or less, an error message is shown.
+     * If there are no items, an error message is shown. A total of zero (e.g. a fully
+     * discounted cart) is saved like any other.
      * Otherwise, the cart result is passed to {@link ShoppingCartResultService}
      * and a confirmation message is displayed. The "Save to DB" button is then disabled.
+     * If the database is unavailable (or its circuit breaker is open) an error is shown
+     * and the button stays enabled so the user can retry.
      *
      * @param e the action event fired by the "Save to DB" button
      */
 
     @FXML
     public void onSaveToDb(ActionEvent e) {
-        if (prices.isEmpty() || lastTotal <= 0) {
-            showInfo(tr("errNoItems"));
-            return;
-        }
+        long started = System.nanoTime();
+        dialogNanos = 0;
+        try {
+            if (prices.isEmpty()) {
+                showInfo(tr("errNoItems"));
+                return;
+            }
 
-        ShoppingCartResultService.saveCartResult(
-                new ArrayList<>(prices),
-                lastTotal,
-                currentLanguageCode,
-                null
-        );
+            // tietokantaan tallennetaan summat, ei minor-yksiköitä
+            List<Double> amounts = new ArrayList<>(prices.size());
+            for (long price : prices) {
+                amounts.add(Currencies.toAmount(price, cartCurrency));
+            }
+            boolean saved = cartResultService.saveCartResult(
+                    amounts,
+                    Currencies.toAmount(lastTotal, cartCurrency),
+                    currentLanguageCode,
+                    null,
+                    lastAdjustments,
+                    cartCurrency
+            );
 
-        showInfo(tr("savedToDb"));
-        btnSaveToDb.setDisable(true);
+            if (!saved) {
+                showInfo(tr("errSaveFailed"));
+                return;
+            }
+            showInfo(tr("savedToDb"));
+            btnSaveToDb.setDisable(true);
+        } finally {
+            recordHandler("onSaveToDb", started);
+        }
     }
 }
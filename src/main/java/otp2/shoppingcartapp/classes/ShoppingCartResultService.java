@@ -1,144 +1,162 @@
 package otp2.shoppingcartapp.classes;
 
-import io.github.cdimascio.dotenv.Dotenv;
-
-import java.sql.*;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
- * Service responsible for persisting shopping cart results into the database.
+ * Service responsible for persisting shopping cart results.
+ * <p>
+ * The carts are written through a {@link CartResultRepository}, which is
+ * injected by the caller – {@link JdbcCartResultRepository} in production
+ * (tables <code>cart_results</code> and <code>cart_items</code>) or
+ * {@link InMemoryCartResultRepository} in tests and benchmarks.
  * <p>
- * Configuration is loaded from environment variables or a <code>.env</code> file.
- * The data is written to the tables:
- * <ul>
- *     <li><code>cart_results</code> – one row per saved cart</li>
- *     <li><code>cart_items</code> – one row per item in a cart</li>
- * </ul>
+ * Saves and history reads run through a {@link CircuitBreaker}, so repeated
+ * attempts while the database is down fail fast instead of each waiting for
+ * a connect timeout.
  */
 public class ShoppingCartResultService {
 
+    /** Repository used to store the carts. */
+    private final CartResultRepository repository;
+
+    /** Circuit breaker guarding the repository. */
+    private final CircuitBreaker circuitBreaker;
+
+    /** Notified of every successfully saved cart, e.g. {@link CartStatistics#record(CartResult)}. */
+    private final List<Consumer<CartResult>> saveListeners = new CopyOnWriteArrayList<>();
+
     /**
-     * Dotenv configuration used for reading DB configuration from a .env file.
+     * Creates the service with a circuit breaker configured from the environment.
+     *
+     * @param repository repository used to store carts
      */
-    private static final Dotenv DOTENV = Dotenv.configure()
-            .ignoreIfMissing()
-            .load();
+    public ShoppingCartResultService(CartResultRepository repository) {
+        this(repository, CircuitBreaker.fromEnvironment("cart-results"));
+    }
 
     /**
-     * Resolves configuration values in the following order:
-     * <ol>
-     *     <li>System environment variable</li>
-     *     <li>.env file</li>
-     *     <li>Default value</li>
-     * </ol>
+     * Creates the service.
      *
-     * @param key          the configuration key
-     * @param defaultValue default value if no other value is found
-     * @return resolved configuration value
+     * @param repository     repository used to store carts
+     * @param circuitBreaker circuit breaker guarding the repository
      */
-    private static String getEnv(String key, String defaultValue) {
-        String fromEnv = System.getenv(key);
-        if (fromEnv != null && !fromEnv.isEmpty()) {
-            return fromEnv;
-        }
-        String fromFile = DOTENV.get(key);
-        if (fromFile != null && !fromFile.isEmpty()) {
-            return fromFile;
-        }
-        return defaultValue;
+    public ShoppingCartResultService(CartResultRepository repository, CircuitBreaker circuitBreaker) {
+        this.repository = Objects.requireNonNull(repository, "repository");
+        this.circuitBreaker = Objects.requireNonNull(circuitBreaker, "circuitBreaker");
     }
 
-    /** Database host name. */
-    private static final String DB_HOST = getEnv("DB_HOST", "localhost");
-    /** Database port. */
-    private static final String DB_PORT = getEnv("DB_PORT", "3306");
-    /** Database name used to store shopping cart results. */
-    private static final String DB_NAME = getEnv("DB_NAME", "shopping_cart_db");
-    /** Database username. */
-    private static final String DB_USER = getEnv("DB_USER", "root");
-    /** Database password. */
-    private static final String DB_PASSWORD = getEnv("DB_PASSWORD", "");
+    /** @return the circuit breaker guarding the repository, e.g. for showing its state */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
 
     /**
-     * JDBC URL used for connecting to the MariaDB database.
+     * Registers a listener that receives every cart after it has been stored.
+     * Listeners run on the saving thread and must be fast; their exceptions
+     * are logged and do not affect the save.
+     *
+     * @param listener the listener
      */
-    private static final String DB_URL =
-            "jdbc:mariadb://" + DB_HOST + ":" + DB_PORT + "/" + DB_NAME;
+    public void addSaveListener(Consumer<CartResult> listener) {
+        saveListeners.add(Objects.requireNonNull(listener, "listener"));
+    }
 
     /**
-     * Persists a completed shopping cart into the database.
-     * <p>
-     * The method:
-     * <ol>
-     *     <li>Inserts one row into <code>cart_results</code> with the total price,
-     *     language and item count</li>
-     *     <li>Retrieves the generated cart ID</li>
-     *     <li>Inserts one row per item into <code>cart_items</code></li>
-     * </ol>
+     * Persists a completed shopping cart in the default currency of its language.
      *
      * @param prices      list of individual item prices
      * @param totalPrice  total price of the cart
      * @param language    language code in which the cart was created (e.g. "en")
      * @param customerId  optional customer ID; may be {@code null} for anonymous carts
+     * @return {@code true} if the cart was stored, {@code false} if the storage failed
+     *         or the circuit is open
      */
-    public static void saveCartResult(List<Double> prices,
-                                      double totalPrice,
-                                      String language,
-                                      Integer customerId) {
-
-        String insertResultSql =
-                "INSERT INTO cart_results (customer_id, total_price, language, item_count) " +
-                        "VALUES (?, ?, ?, ?)";
-
-        String insertItemSql =
-                "INSERT INTO cart_items (cart_result_id, item_index, price) " +
-                        "VALUES (?, ?, ?)";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
-
-            // luodaan ostoskoritulos
-            int cartResultId;
-
-            // Insert root cart result and get its generated ID
-            try (PreparedStatement stmt = conn.prepareStatement(
-                    insertResultSql, Statement.RETURN_GENERATED_KEYS)) {
-
-                if (customerId != null) {
-                    stmt.setInt(1, customerId);
-                } else {
-                    stmt.setNull(1, Types.INTEGER);
-                }
-
-                stmt.setDouble(2, totalPrice);
-                stmt.setString(3, language);
-                stmt.setInt(4, prices.size());
-
-                stmt.executeUpdate();
+    public boolean saveCartResult(List<Double> prices,
+                                  double totalPrice,
+                                  String language,
+                                  Integer customerId) {
+        return saveCartResult(prices, totalPrice, language, customerId, List.of());
+    }
 
-                try (ResultSet rs = stmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        cartResultId = rs.getInt(1);
-                    } else {
-                        throw new SQLException("No generated key for cart_results");
-                    }
-                }
-            }
+    /**
+     * Persists a completed shopping cart together with the pricing adjustments
+     * (tax, discounts, promotions) that produced its total. The prices are taken
+     * to be in the default currency of the language ({@link Currencies#forLanguage}).
+     *
+     * @param prices      list of individual item prices
+     * @param totalPrice  total price of the cart after all adjustments
+     * @param language    language code in which the cart was created (e.g. "en")
+     * @param customerId  optional customer ID; may be {@code null} for anonymous carts
+     * @param adjustments adjustments from {@link PricingPlan.Evaluator#getAdjustments()}
+     * @return {@code true} if the cart was stored, {@code false} if the storage failed
+     *         or the circuit is open
+     */
+    public boolean saveCartResult(List<Double> prices,
+                                  double totalPrice,
+                                  String language,
+                                  Integer customerId,
+                                  List<CartAdjustment> adjustments) {
+        return saveCartResult(prices, totalPrice, language, customerId, adjustments,
+                Currencies.forLanguage(language));
+    }
 
-            // tallennetaan jokainen itemi cart_items-tauluun
-            try (PreparedStatement itemStmt = conn.prepareStatement(insertItemSql)) {
-                for (int i = 0; i < prices.size(); i++) {
-                    itemStmt.setInt(1, cartResultId);
-                    itemStmt.setInt(2, i + 1);
-                    itemStmt.setDouble(3, prices.get(i));
-                    itemStmt.addBatch();
+    /**
+     * Persists a completed shopping cart whose prices are in the given currency.
+     *
+     * @param prices      list of individual item prices
+     * @param totalPrice  total price of the cart after all adjustments
+     * @param language    language code in which the cart was created (e.g. "en")
+     * @param customerId  optional customer ID; may be {@code null} for anonymous carts
+     * @param adjustments adjustments from {@link PricingPlan.Evaluator#getAdjustments()}
+     * @param currency    ISO 4217 code of the prices, e.g. {@code "PKR"}
+     * @return {@code true} if the cart was stored, {@code false} if the storage failed
+     *         or the circuit is open
+     * @throws IllegalArgumentException if the currency code is unknown
+     */
+    public boolean saveCartResult(List<Double> prices,
+                                  double totalPrice,
+                                  String language,
+                                  Integer customerId,
+                                  List<CartAdjustment> adjustments,
+                                  String currency) {
+        CartResult cart = new CartResult(prices, totalPrice, language, customerId)
+                .withAdjustments(adjustments)
+                .withCurrency(currency);
+        try {
+            circuitBreaker.call(() -> repository.save(cart));
+            for (Consumer<CartResult> listener : saveListeners) {
+                try {
+                    listener.accept(cart);
+                } catch (RuntimeException e) {
+                    System.err.println("❌ Save listener failed: " + e);
                 }
-                itemStmt.executeBatch();
             }
+            return true;
+        } catch (StorageException e) {
+            System.err.println("❌ " + e.getMessage());
+            return false;
+        }
+    }
 
-            System.out.println("✅ Shopping cart result + items saved to database at " + DB_URL);
-
-        } catch (SQLException e) {
-            System.err.println("❌ Failed to connect/save shopping cart at " + DB_URL);
+    /**
+     * Returns the most recently saved carts, newest first.
+     * <p>
+     * With the JDBC backend the query is served by a read replica when one is configured.
+     *
+     * @param customerId only carts of this customer; {@code null} for all carts
+     * @param limit      maximum number of carts
+     * @return the carts, or an empty list if the storage is not reachable
+     */
+    public List<CartResult> getHistory(Integer customerId, int limit) {
+        try {
+            return circuitBreaker.call(() -> repository.findHistory(customerId, limit));
+        } catch (StorageException e) {
+            System.err.println("❌ " + e.getMessage());
+            return Collections.emptyList();
         }
     }
 }
@@ -0,0 +1,96 @@
+package otp2.shoppingcartapp.classes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Selects which repository implementations the application uses.
+ * <p>
+ * The backend is read from the {@code STORAGE_BACKEND} setting
+ * ({@code jdbc} by default, {@code sharded} for carts spread over {@code DB_SHARDS},
+ * {@code memory} for running without a database).
+ */
+public enum StorageBackend {
+
+    /** MariaDB via JDBC (production). */
+    JDBC,
+    /** Carts on the MariaDB shards of {@code DB_SHARDS}, localization on the main database. */
+    SHARDED,
+    /** Lock-free in-memory storage (tests, benchmarks, load tests). */
+    MEMORY;
+
+    /**
+     * Resolves the backend from the environment or .env file.
+     *
+     * @return the configured backend, {@link #JDBC} if not set
+     */
+    public static StorageBackend fromEnvironment() {
+        return parse(DatabaseConfig.getEnv("STORAGE_BACKEND", "jdbc"));
+    }
+
+    /**
+     * Parses a backend name case-insensitively.
+     *
+     * @param name {@code jdbc}, {@code sharded} or {@code memory}
+     * @return the matching backend
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static StorageBackend parse(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /** @return a new localization repository of this backend */
+    public LocalizationRepository createLocalizationRepository() {
+        return this == MEMORY ? new InMemoryLocalizationRepository() : new JdbcLocalizationRepository();
+    }
+
+    /** @return a new cart result repository of this backend */
+    public CartResultRepository createCartResultRepository() {
+        switch (this) {
+            case MEMORY:
+                return new InMemoryCartResultRepository();
+            case SHARDED:
+                return ShardedCartResultRepository.fromEnvironment();
+            default:
+                return new JdbcCartResultRepository();
+        }
+    }
+
+    /**
+     * Returns a new statistics snapshot repository of this backend. With
+     * {@link #SHARDED} the snapshots are kept on the main database.
+     *
+     * @return the repository
+     */
+    public CartStatisticsRepository createCartStatisticsRepository() {
+        return this == MEMORY ? new InMemoryCartStatisticsRepository() : new JdbcCartStatisticsRepository();
+    }
+
+    /**
+     * Returns a new exchange rate repository of this backend. With {@link #SHARDED}
+     * the rates are read from the main database.
+     *
+     * @return the repository
+     */
+    public ExchangeRateRepository createExchangeRateRepository() {
+        return this == MEMORY ? new InMemoryExchangeRateRepository() : new JdbcExchangeRateRepository();
+    }
+
+    /**
+     * Returns the databases whose schema this backend needs: the main database,
+     * plus every shard for {@link #SHARDED}.
+     *
+     * @return databases to migrate; empty for {@link #MEMORY}
+     */
+    public List<DatabaseConfig> getSchemaTargets() {
+        List<DatabaseConfig> targets = new ArrayList<>();
+        if (this != MEMORY) {
+            targets.add(DatabaseConfig.fromEnvironment());
+        }
+        if (this == SHARDED) {
+            targets.addAll(DatabaseConfig.shardsFromEnvironment());
+        }
+        return targets;
+    }
+}
@@ -0,0 +1,32 @@
+package otp2.shoppingcartapp.classes;
+
+/**
+ * Unchecked exception thrown by repositories when the underlying storage
+ * (e.g. the MariaDB database) cannot be reached or rejects an operation.
+ * <p>
+ * Services catch this exception and degrade gracefully, so the UI keeps
+ * working even when the database is not available.
+ */
+public class StorageException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new storage exception.
+     *
+     * @param message description of the failed operation
+     * @param cause   the original exception, e.g. an {@link java.sql.SQLException}
+     */
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * Creates a new storage exception without a cause.
+     *
+     * @param message description of the failed operation
+     */
+    public StorageException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,68 @@
+package otp2.shoppingcartapp.dockerimage;
+
+import otp2.shoppingcartapp.classes.CartExportSink;
+import otp2.shoppingcartapp.classes.CartHistoryExporter;
+import otp2.shoppingcartapp.classes.ColumnarCartExportSink;
+import otp2.shoppingcartapp.classes.CsvCartExportSink;
+import otp2.shoppingcartapp.classes.ReadWriteRouter;
+import otp2.shoppingcartapp.classes.StorageException;
+
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
+
+/**
+ * Command line export of <code>cart_results</code> and <code>cart_items</code> for analytics.
+ * <p>
+ * Uses the same DB configuration as the application and reads from the replicas
+ * when {@code DB_READ_HOSTS} is set. The result is streamed, so memory use stays
+ * constant regardless of the table size.
+ * <p>
+ * Options ({@code --key=value}):
+ * <ul>
+ *     <li>{@code --out}        – target file (required)</li>
+ *     <li>{@code --format}     – {@code csv} or {@code columnar} (default csv)</li>
+ *     <li>{@code --gzip}       – compress the output (default when {@code --out} ends with .gz)</li>
+ *     <li>{@code --since}      – only carts created on or after this date (YYYY-MM-DD)</li>
+ *     <li>{@code --fetch-size} – rows per streamed batch (default 1000)</li>
+ *     <li>{@code --row-group}  – carts per row group of the columnar format (default 65536)</li>
+ * </ul>
+ */
+public class CartHistoryExport {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> o = LoadGenerator.parseArgs(args);
+        String out = o.get("out");
+        if (out == null || o.containsKey("help")) {
+            System.out.println("Usage: CartHistoryExport --out=file [--format=csv|columnar] [--gzip]"
+                    + " [--since=YYYY-MM-DD] [--fetch-size=1000] [--row-group=65536]");
+            System.exit(out == null ? 2 : 0);
+        }
+
+        boolean columnar = "columnar".equalsIgnoreCase(o.getOrDefault("format", "csv"));
+        boolean gzip = o.containsKey("gzip") || out.endsWith(".gz");
+        Instant since = o.containsKey("since")
+                ? LocalDate.parse(o.get("since")).atStartOfDay(ZoneId.systemDefault()).toInstant()
+                : null;
+        int fetchSize = Integer.parseInt(o.getOrDefault("fetch-size", String.valueOf(CartHistoryExporter.DEFAULT_FETCH_SIZE)));
+
+        CartHistoryExporter exporter = new CartHistoryExporter(ReadWriteRouter.withoutSocketTimeouts().reader(), fetchSize, 1_000_000);
+        System.out.println("=== Exporting cart history to " + out + " (" + (columnar ? "columnar" : "csv")
+                + (gzip ? ", gzip" : "") + ") ===");
+
+        WritableByteChannel channel = CartHistoryExporter.openOutput(Path.of(out), gzip);
+        try (CartExportSink sink = columnar
+                ? new ColumnarCartExportSink(channel, Integer.parseInt(o.getOrDefault("row-group",
+                        String.valueOf(ColumnarCartExportSink.DEFAULT_ROW_GROUP_SIZE))))
+                : new CsvCartExportSink(channel)) {
+            CartHistoryExporter.Stats stats = exporter.export(sink, since);
+            System.out.println("✅ Exported " + stats.summary());
+        } catch (StorageException e) {
+            System.err.println("❌ " + e.getMessage() + (e.getCause() != null ? ": " + e.getCause().getMessage() : ""));
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package otp2.shoppingcartapp.dockerimage;
+
+import otp2.shoppingcartapp.classes.CartHistoryExporter;
+import otp2.shoppingcartapp.classes.CartResult;
+import otp2.shoppingcartapp.classes.CartStatistics;
+import otp2.shoppingcartapp.classes.CartStatisticsRepository;
+import otp2.shoppingcartapp.classes.CartStatisticsSnapshot;
+import otp2.shoppingcartapp.classes.Currencies;
+import otp2.shoppingcartapp.classes.ExchangeRateService;
+import otp2.shoppingcartapp.classes.ExchangeRateTable;
+import otp2.shoppingcartapp.classes.JdbcCartStatisticsRepository;
+import otp2.shoppingcartapp.classes.ReadWriteRouter;
+import otp2.shoppingcartapp.classes.StorageBackend;
+import otp2.shoppingcartapp.classes.StorageException;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Command line access to the cart statistics snapshots.
+ * <p>
+ * Commands:
+ * <ul>
+ *     <li>{@code replay [--since=YYYY-MM-DD] [--save]} – streams the cart history from the read
+ *     side into {@link CartStatistics} (totals converted to EUR with the newest exchange rates)
+ *     and prints it. {@code --save} backfills the statistics
+ *     of an existing database: the result is stored as instance {@code replay}, which is only
+ *     allowed while no snapshots are stored (the carts would otherwise be counted twice)</li>
+ *     <li>{@code latest [--lang=en]} – prints the statistics of a language ({@code *} for all
+ *     carts, the default), merged from the newest snapshot of every instance</li>
+ *     <li>{@code revenue [--currency=EUR] [--limit=10000]} – converts the totals of the latest
+ *     carts of {@code STORAGE_BACKEND} into one currency with the newest exchange rates</li>
+ * </ul>
+ */
+public class CartStatsTool {
+
+    public static void main(String[] args) throws IOException {
+        String command = args.length > 0 ? args[0] : "";
+        Map<String, String> o = LoadGenerator.parseArgs(Arrays.copyOfRange(args, Math.min(1, args.length), args.length));
+        CartStatisticsRepository repository = new JdbcCartStatisticsRepository();
+        try {
+            switch (command) {
+                case "replay":
+                    replay(repository, o);
+                    break;
+                case "latest":
+                    latest(repository, o.getOrDefault("lang", CartStatistics.ALL_LANGUAGES));
+                    break;
+                case "revenue":
+                    revenue(Currencies.normalize(o.getOrDefault("currency", Currencies.DEFAULT_CURRENCY)),
+                            Integer.parseInt(o.getOrDefault("limit", "10000")));
+                    break;
+                default:
+                    System.out.println("Usage: CartStatsTool replay [--since=YYYY-MM-DD] [--save] | latest [--lang=en]"
+                            + " | revenue [--currency=EUR] [--limit=10000]");
+                    System.exit(2);
+            }
+        } catch (StorageException e) {
+            System.err.println("❌ " + e.getMessage() + (e.getCause() != null ? ": " + e.getCause().getMessage() : ""));
+            System.exit(1);
+        }
+    }
+
+    private static void replay(CartStatisticsRepository repository, Map<String, String> o) throws IOException {
+        Instant since = o.containsKey("since")
+                ? LocalDate.parse(o.get("since")).atStartOfDay(ZoneId.systemDefault()).toInstant()
+                : null;
+        boolean save = o.containsKey("save");
+        if (save && repository.findLatest(CartStatistics.ALL_LANGUAGES) != null) {
+            System.err.println("❌ Snapshots already exist; --save only backfills an empty statistics table");
+            System.exit(1);
+        }
+        CartHistoryExporter exporter = new CartHistoryExporter(ReadWriteRouter.withoutSocketTimeouts().reader(),
+                CartHistoryExporter.DEFAULT_FETCH_SIZE, 1_000_000);
+        ExchangeRateService rates = ExchangeRateService.loaded(
+                StorageBackend.fromEnvironment().createExchangeRateRepository());
+        try (CartStatistics statistics = new CartStatistics("replay", rates)) {
+            CartHistoryExporter.Stats stats = exporter.export(statistics, since);
+            System.out.println("✅ Replayed " + stats.summary());
+            if (save) {
+                repository.saveAll(statistics.snapshot(Instant.now()));
+            }
+            System.out.println(statistics.summary());
+        }
+    }
+
+    private static void latest(CartStatisticsRepository repository, String language) {
+        CartStatisticsSnapshot snapshot = repository.findLatest(language);
+        if (snapshot == null) {
+            System.out.println("No snapshot for language " + language);
+            return;
+        }
+        System.out.printf(Locale.ROOT, "%s language=%s carts=%d total (%s) p50=%.2f p90=%.2f p99=%.2f items p50=%.0f p99=%.0f%n",
+                snapshot.getTakenAt(), snapshot.getLanguage(), snapshot.getCartCount(), Currencies.DEFAULT_CURRENCY,
+                snapshot.getTotalPercentile(50), snapshot.getTotalPercentile(90), snapshot.getTotalPercentile(99),
+                snapshot.getItemCountPercentile(50), snapshot.getItemCountPercentile(99));
+        System.out.println("total histogram " + snapshot.getTotalHistogram());
+        System.out.println("items histogram " + snapshot.getItemHistogram());
+    }
+
+    private static void revenue(String currency, int limit) {
+        StorageBackend backend = StorageBackend.fromEnvironment();
+        List<CartResult> carts = backend.createCartResultRepository().findHistory(null, limit);
+        ExchangeRateService rates = new ExchangeRateService(backend.createExchangeRateRepository());
+        rates.refresh();
+        ExchangeRateTable table = rates.current();
+
+        double[] totals = table.convertTotals(carts, currency);
+        double sum = 0;
+        for (double total : totals) {
+            sum += total;
+        }
+        System.out.println("✅ " + carts.size() + " carts, revenue "
+                + Currencies.format(sum, currency, Locale.ROOT) + " (exchange rates v" + table.getVersion() + ")");
+    }
+}
@@ -1,8 +1,12 @@
 package otp2.shoppingcartapp.dockerimage;
 
+import otp2.shoppingcartapp.classes.Currencies;
+import otp2.shoppingcartapp.classes.ExchangeRateTable;
+
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
 
 /**
@@ -43,11 +47,21 @@ public class HeadlessCartDemo {
             total += p;
         }
 
+        String currency = Currencies.DEFAULT_CURRENCY;
         System.out.println("\nCart items:");
         for (int i = 0; i < prices.size(); i++) {
-            System.out.printf("  Item %d: %.2f €%n", i + 1, prices.get(i));
+            System.out.printf("  Item %d: %s%n", i + 1, Currencies.format(prices.get(i), currency, Locale.US));
+        }
+        System.out.println("Total: " + Currencies.format(total, currency, Locale.US));
+
+        // 3) The same total in the currency of every language (example rates, no database)
+        ExchangeRateTable rates = new ExchangeRateTable(1, Map.of("EUR", 1.0, "PKR", 310.0, "VND", 28000.0));
+        System.out.println("\nTotal per language:");
+        for (Locale locale : locales) {
+            String target = Currencies.forLanguage(locale.getLanguage());
+            System.out.println("  " + locale.toLanguageTag() + ": "
+                    + Currencies.format(rates.convert(total, currency, target), target, locale));
         }
-        System.out.printf("Total: %.2f €%n", total);
 
         System.out.println("\n=== End of demo ===");
     }
@@ -0,0 +1,373 @@
+package otp2.shoppingcartapp.dockerimage;
+
+import otp2.shoppingcartapp.classes.CartStatistics;
+import otp2.shoppingcartapp.classes.DatabaseConfig;
+import otp2.shoppingcartapp.classes.ExchangeRateRepository;
+import otp2.shoppingcartapp.classes.ExchangeRateService;
+import otp2.shoppingcartapp.classes.FlightRecording;
+import otp2.shoppingcartapp.classes.InMemoryExchangeRateRepository;
+import otp2.shoppingcartapp.classes.InMemoryLocalizationRepository;
+import otp2.shoppingcartapp.classes.LatencyHistogram;
+import otp2.shoppingcartapp.classes.LocalizationRepository;
+import otp2.shoppingcartapp.classes.LocalizationService;
+import otp2.shoppingcartapp.classes.SchemaMigrator;
+import otp2.shoppingcartapp.classes.ShoppingCartResultService;
+import otp2.shoppingcartapp.classes.StorageBackend;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless load generator for the database paths of the Shopping Cart app.
+ * <p>
+ * Every simulated user session does what a GUI user does: it switches the language
+ * through {@link LocalizationService#getLocalizedStrings(Locale)} and saves a randomized
+ * cart through {@link ShoppingCartResultService#saveCartResult}. The database is
+ * configured the same way as for the GUI ({@code DB_HOST}, {@code DB_PORT}, ...), so
+ * it can be pointed at the docker-compose MariaDB or any local stand-in. With
+ * {@code --backend=memory} the in-memory repositories are used instead, which
+ * measures the application overhead without a database.
+ * <p>
+ * The generator uses an <b>open model</b>: sessions arrive at a fixed average rate
+ * (Poisson or uniform inter-arrival times) independently of how fast the database
+ * answers, and are executed by a pool of {@code users} concurrent workers. Latency is
+ * measured from the <i>intended</i> arrival time, so time spent waiting for a free
+ * user is included and coordinated omission does not hide stalls.
+ * <p>
+ * Each session is tagged with its phase when it arrives; sessions that arrived during
+ * the warm-up are not counted, even if they finish after the measured phase started.
+ * A session fails if the localization comes back empty (storage unreachable, circuit
+ * open or no rows) or the cart is not saved. Failed sessions are counted and reported
+ * as an error rate with their own latency histogram, so fast failures do not flatter
+ * the latencies of the successful sessions.
+ * <p>
+ * Options (all optional, {@code --key=value}):
+ * <ul>
+ *     <li>{@code --backend}  – {@code jdbc}, {@code sharded} or {@code memory} (default {@code STORAGE_BACKEND}, else jdbc)</li>
+ *     <li>{@code --users}    – concurrent users (default 16)</li>
+ *     <li>{@code --rate}     – session arrivals per second (default 50)</li>
+ *     <li>{@code --arrival}  – {@code poisson} or {@code uniform} (default poisson)</li>
+ *     <li>{@code --duration} – measured seconds (default 30)</li>
+ *     <li>{@code --warmup}   – seconds run before measuring (default 5)</li>
+ *     <li>{@code --max-items} – maximum items per random cart (default 10)</li>
+ *     <li>{@code --out}      – CSV file for the exported histograms (optional)</li>
+ *     <li>{@code --migrate}  – apply pending schema migrations before the run (main database and shards)</li>
+ * </ul>
+ */
+public class LoadGenerator {
+
+    /** Locales used by the GUI language selector. */
+    private static final Locale[] LOCALES = {
+            new Locale("en", "US"),
+            new Locale("fr", "FR"),
+            new Locale("ur", "PK"),
+            new Locale("vi", "VN")
+    };
+
+    private final LocalizationService localizationService;
+    private final ShoppingCartResultService cartResultService;
+    private final int users;
+    private final double ratePerSecond;
+    private final boolean poisson;
+    private final int maxItems;
+
+    private final LatencyHistogram localizationLatency = new LatencyHistogram();
+    private final LatencyHistogram saveLatency = new LatencyHistogram();
+    private final LatencyHistogram sessionLatency = new LatencyHistogram();
+    private final LatencyHistogram failedSessionLatency = new LatencyHistogram();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failedSessions = new AtomicLong();
+    private final AtomicLong failedLocalizations = new AtomicLong();
+    private final AtomicLong failedSaves = new AtomicLong();
+
+    /**
+     * Creates a load generator.
+     *
+     * @param localizationService service exercised by the language switch
+     * @param cartResultService   service exercised by the cart save
+     * @param users               number of concurrent users (worker threads)
+     * @param ratePerSecond       average session arrival rate
+     * @param poisson             {@code true} for exponential inter-arrival times, {@code false} for a fixed interval
+     * @param maxItems            upper bound for the number of items in a randomized cart
+     */
+    public LoadGenerator(LocalizationService localizationService,
+                         ShoppingCartResultService cartResultService,
+                         int users, double ratePerSecond, boolean poisson, int maxItems) {
+        if (users <= 0 || ratePerSecond <= 0 || maxItems <= 0) {
+            throw new IllegalArgumentException("users, rate and max-items must be positive");
+        }
+        this.localizationService = localizationService;
+        this.cartResultService = cartResultService;
+        this.users = users;
+        this.ratePerSecond = ratePerSecond;
+        this.poisson = poisson;
+        this.maxItems = maxItems;
+    }
+
+    /**
+     * Runs the warm-up phase followed by the measured phase.
+     *
+     * @param warmupSeconds   seconds to run before measuring; these sessions are not recorded
+     * @param durationSeconds measured seconds
+     * @return elapsed seconds of the measured phase (including draining of in-flight sessions)
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public double run(int warmupSeconds, int durationSeconds) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(users, r -> {
+            Thread t = new Thread(r, "loadgen-user");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            if (warmupSeconds > 0) {
+                generateArrivals(pool, TimeUnit.SECONDS.toNanos(warmupSeconds), false);
+            }
+            long start = System.nanoTime();
+            generateArrivals(pool, TimeUnit.SECONDS.toNanos(durationSeconds), true);
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+            return (System.nanoTime() - start) / 1e9;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Schedules session arrivals on the calling thread for the given time window.
+     * Arrivals are never skipped: if all users are busy the session waits in the
+     * executor queue and the wait is part of its measured latency.
+     *
+     * @param measured whether the sessions belong to the measured phase
+     */
+    private void generateArrivals(ExecutorService pool, long windowNanos, boolean measured) {
+        long begin = System.nanoTime();
+        long next = begin;
+        double meanGapNanos = 1e9 / ratePerSecond;
+        while (next - begin < windowNanos) {
+            long now = System.nanoTime();
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            }
+            final long intendedStart = next;
+            pool.execute(() -> runSession(intendedStart, measured));
+            double gap = poisson
+                    ? -Math.log(1.0 - ThreadLocalRandom.current().nextDouble()) * meanGapNanos
+                    : meanGapNanos;
+            next += Math.max(1L, (long) gap);
+        }
+    }
+
+    /**
+     * One simulated user session: language switch followed by saving a random cart.
+     * Only sessions of the measured phase are recorded.
+     */
+    private void runSession(long intendedStart, boolean measured) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Locale locale = LOCALES[random.nextInt(LOCALES.length)];
+
+        long t0 = System.nanoTime();
+        boolean localized = !localizationService.getLocalizedStrings(locale).isEmpty();
+        long t1 = System.nanoTime();
+
+        int count = 1 + random.nextInt(maxItems);
+        List<Double> prices = new ArrayList<>(count);
+        double total = 0.0;
+        for (int i = 0; i < count; i++) {
+            double price = Math.round(random.nextDouble(0.10, 100.0) * 100) / 100.0;
+            prices.add(price);
+            total += price;
+        }
+        Integer customerId = random.nextBoolean() ? random.nextInt(1, 10_000) : null;
+        boolean saved = cartResultService.saveCartResult(prices, total, locale.getLanguage(), customerId);
+        long t2 = System.nanoTime();
+
+        if (!measured) {
+            return;
+        }
+        if (localized) {
+            localizationLatency.record(t1 - t0);
+        } else {
+            failedLocalizations.incrementAndGet();
+        }
+        if (saved) {
+            saveLatency.record(t2 - t1);
+        } else {
+            failedSaves.incrementAndGet();
+        }
+        if (localized && saved) {
+            sessionLatency.record(t2 - intendedStart);
+        } else {
+            failedSessionLatency.record(t2 - intendedStart);
+            failedSessions.incrementAndGet();
+        }
+        completed.incrementAndGet();
+    }
+
+    /**
+     * Prints throughput and latency percentiles to standard output.
+     *
+     * @param elapsedSeconds measured wall-clock seconds
+     */
+    public void printReport(double elapsedSeconds) {
+        long n = completed.get();
+        long failed = failedSessions.get();
+        System.out.println("\n=== Load test report ===");
+        System.out.printf(Locale.ROOT, "users=%d target_rate=%.1f/s arrival=%s%n",
+                users, ratePerSecond, poisson ? "poisson" : "uniform");
+        System.out.printf(Locale.ROOT, "sessions=%d elapsed=%.1fs throughput=%.1f sessions/s%n",
+                n, elapsedSeconds, elapsedSeconds > 0 ? n / elapsedSeconds : 0.0);
+        System.out.printf(Locale.ROOT, "errors=%d (%.2f%%) failed_localizations=%d failed_saves=%d%n",
+                failed, n > 0 ? 100.0 * failed / n : 0.0, failedLocalizations.get(), failedSaves.get());
+        System.out.println("session (from arrival): " + sessionLatency.summary());
+        System.out.println("localization:           " + localizationLatency.summary());
+        System.out.println("save cart:              " + saveLatency.summary());
+        if (failed > 0) {
+            System.out.println("failed session:         " + failedSessionLatency.summary());
+        }
+        System.out.println("circuit breakers:       localization="
+                + localizationService.getCircuitBreaker().getState()
+                + " cart-results=" + cartResultService.getCircuitBreaker().getState());
+    }
+
+    /**
+     * Exports summary percentiles and the full bucket distribution of every histogram as CSV.
+     *
+     * @param file target file, overwritten if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void exportCsv(Path file) throws IOException {
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("operation,count,mean_us,p50_us,p95_us,p99_us,p999_us,max_us\n");
+            writeSummaryRow(w, "session", sessionLatency);
+            writeSummaryRow(w, "localization", localizationLatency);
+            writeSummaryRow(w, "save", saveLatency);
+            writeSummaryRow(w, "failed_session", failedSessionLatency);
+            w.write("\noperation,bucket_upper_us,count,cumulative_percent\n");
+            sessionLatency.writeBuckets("session", w);
+            localizationLatency.writeBuckets("localization", w);
+            saveLatency.writeBuckets("save", w);
+            failedSessionLatency.writeBuckets("failed_session", w);
+        }
+    }
+
+    private static void writeSummaryRow(Writer w, String name, LatencyHistogram h) throws IOException {
+        w.write(String.format(Locale.ROOT, "%s,%d,%.1f,%d,%d,%d,%d,%d%n",
+                name,
+                h.getCount(),
+                h.getMean() / 1000.0,
+                TimeUnit.NANOSECONDS.toMicros(h.getValueAtPercentile(50)),
+                TimeUnit.NANOSECONDS.toMicros(h.getValueAtPercentile(95)),
+                TimeUnit.NANOSECONDS.toMicros(h.getValueAtPercentile(99)),
+                TimeUnit.NANOSECONDS.toMicros(h.getValueAtPercentile(99.9)),
+                TimeUnit.NANOSECONDS.toMicros(h.getMax())));
+    }
+
+    /**
+     * Parses {@code --key=value} arguments into a map.
+     */
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Fills an in-memory localization repository from the bundled MessagesBundle files,
+     * so the memory backend returns realistic string tables.
+     */
+    private static void seedFromBundles(InMemoryLocalizationRepository repository) {
+        for (Locale locale : LOCALES) {
+            ResourceBundle rb = ResourceBundle.getBundle("MessagesBundle", locale);
+            Map<String, String> strings = new HashMap<>();
+            for (String key : rb.keySet()) {
+                strings.put(key, rb.getString(key));
+            }
+            repository.putAll(locale.getLanguage(), strings);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> o = parseArgs(args);
+        if (o.containsKey("help")) {
+            System.out.println("Usage: LoadGenerator [--backend=jdbc|sharded|memory] [--users=16] [--rate=50] [--arrival=poisson|uniform]"
+                    + " [--duration=30] [--warmup=5] [--max-items=10] [--out=report.csv] [--migrate]");
+            return;
+        }
+        FlightRecording.startFromEnvironment();
+
+        StorageBackend backend = o.containsKey("backend")
+                ? StorageBackend.parse(o.get("backend"))
+                : StorageBackend.fromEnvironment();
+        if (o.containsKey("migrate")) {
+            for (DatabaseConfig target : backend.getSchemaTargets()) {
+                new SchemaMigrator(target).migrate();
+            }
+        }
+        LocalizationRepository localizationRepository = backend.createLocalizationRepository();
+        if (localizationRepository instanceof InMemoryLocalizationRepository) {
+            seedFromBundles((InMemoryLocalizationRepository) localizationRepository);
+        }
+
+        ExchangeRateRepository exchangeRateRepository = backend.createExchangeRateRepository();
+        if (exchangeRateRepository instanceof InMemoryExchangeRateRepository) {
+            // samat alkukurssit kuin migraatiossa V6
+            ((InMemoryExchangeRateRepository) exchangeRateRepository)
+                    .publish(1, Map.of("EUR", 1.0, "PKR", 310.0, "VND", 28000.0));
+        }
+
+        ShoppingCartResultService cartResultService =
+                new ShoppingCartResultService(backend.createCartResultRepository());
+        CartStatistics statistics = new CartStatistics(ExchangeRateService.loaded(exchangeRateRepository));
+        cartResultService.addSaveListener(statistics::record);
+
+        LoadGenerator generator = new LoadGenerator(
+                new LocalizationService(localizationRepository),
+                cartResultService,
+                Integer.parseInt(o.getOrDefault("users", "16")),
+                Double.parseDouble(o.getOrDefault("rate", "50")),
+                !"uniform".equalsIgnoreCase(o.getOrDefault("arrival", "poisson")),
+                Integer.parseInt(o.getOrDefault("max-items", "10"))
+        );
+
+        System.out.println("=== Shopping Cart load generator (" + backend.name().toLowerCase(Locale.ROOT) + ") ===");
+        double elapsed = generator.run(
+                Integer.parseInt(o.getOrDefault("warmup", "5")),
+                Integer.parseInt(o.getOrDefault("duration", "30"))
+        );
+        generator.printReport(elapsed);
+        System.out.println("saved carts (incl. warmup):");
+        System.out.println(statistics.summary());
+
+        String out = o.get("out");
+        if (out != null) {
+            generator.exportCsv(Path.of(out));
+            System.out.println("Histograms exported to " + out);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package otp2.shoppingcartapp.dockerimage;
+
+import otp2.shoppingcartapp.classes.DatabaseConfig;
+import otp2.shoppingcartapp.classes.SchemaMigrator;
+import otp2.shoppingcartapp.classes.StorageException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line entry point for database schema management.
+ * <p>
+ * Uses the same DB configuration as the application ({@code DB_HOST}, {@code DB_PORT}, ...)
+ * and runs the command on the main database and on every shard listed in {@code DB_SHARDS}.
+ * <ul>
+ *     <li>{@code migrate} – apply all pending migrations (default)</li>
+ *     <li>{@code status} – list applied and pending migrations</li>
+ *     <li>{@code partitions [months]} – create monthly <code>cart_results</code> partitions ahead (default 3)</li>
+ * </ul>
+ */
+public class SchemaTool {
+
+    public static void main(String[] args) {
+        String command = args.length > 0 ? args[0] : "migrate";
+        List<DatabaseConfig> targets = new ArrayList<>();
+        targets.add(DatabaseConfig.fromEnvironment());
+        targets.addAll(DatabaseConfig.shardsFromEnvironment());
+
+        try {
+            for (DatabaseConfig target : targets) {
+                if (targets.size() > 1) {
+                    System.out.println("--- " + target.getHost() + ":" + target.getPort() + " ---");
+                }
+                run(command, args, new SchemaMigrator(target));
+            }
+        } catch (StorageException e) {
+            System.err.println("❌ " + e.getMessage() + (e.getCause() != null ? ": " + e.getCause().getMessage() : ""));
+            System.exit(1);
+        }
+    }
+
+    private static void run(String command, String[] args, SchemaMigrator migrator) {
+        switch (command) {
+            case "migrate" -> {
+                int applied = migrator.migrate();
+                System.out.println("Schema up to date (" + applied + " migration(s) applied).");
+            }
+            case "status" -> migrator.status().forEach(System.out::println);
+            case "partitions" -> {
+                int months = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+                System.out.println(migrator.ensurePartitions(months) + " partition(s) created.");
+            }
+            default -> {
+                System.err.println("Usage: SchemaTool [migrate|status|partitions [months]]");
+                System.exit(2);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package otp2.shoppingcartapp.dockerimage;
+
+import otp2.shoppingcartapp.classes.ShardRebalancer;
+import otp2.shoppingcartapp.classes.StorageException;
+
+/**
+ * Command line entry point that moves stored carts to the shard {@code DB_SHARDS}
+ * now assigns to their customer, e.g. after a shard was added. After a shard was
+ * removed, list it in {@code DB_SHARDS_RETIRED} so its carts are moved as well.
+ * <p>
+ * Run the application with {@code DB_SHARDS_REBALANCING=true} until this tool has
+ * finished, so customer history is read from every shard meanwhile. The tool can
+ * be run again safely if it is interrupted.
+ */
+public class ShardRebalance {
+
+    public static void main(String[] args) {
+        try {
+            int moved = ShardRebalancer.fromEnvironment().rebalance();
+            System.out.println("Rebalancing done (" + moved + " customer(s) moved).");
+        } catch (StorageException e) {
+            System.err.println("❌ " + e.getMessage() + (e.getCause() != null ? ": " + e.getCause().getMessage() : ""));
+            System.exit(1);
+        }
+    }
+}
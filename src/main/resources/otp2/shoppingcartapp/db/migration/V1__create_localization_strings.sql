@@ -0,0 +1,10 @@
+-- Localized UI strings, read on every language switch:
+--   SELECT `key`, value FROM localization_strings WHERE language = ?
+-- The composite primary key (language, `key`) is the clustered index in InnoDB,
+-- so one language is a single contiguous range scan that also covers the value column.
+CREATE TABLE IF NOT EXISTS localization_strings (
+    language VARCHAR(10)   NOT NULL,
+    `key`    VARCHAR(100)  NOT NULL,
+    value    VARCHAR(1000) NOT NULL,
+    PRIMARY KEY (language, `key`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
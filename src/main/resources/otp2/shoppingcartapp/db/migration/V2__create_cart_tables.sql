@@ -0,0 +1,29 @@
+-- One row per saved cart. The table is range partitioned by month on created_at,
+-- so inserts always hit the newest (small) partition and old months can be
+-- archived or dropped with ALTER TABLE ... DROP PARTITION instead of DELETE.
+-- Every unique key of a partitioned table must contain the partitioning column,
+-- therefore the primary key is (id, created_at).
+-- The table starts with p_future only: SchemaMigrator#ensurePartitions splits the
+-- partition of the current month and the following months off it, so the bounds
+-- follow the date of the migration instead of a fixed date.
+CREATE TABLE IF NOT EXISTS cart_results (
+    id          BIGINT        NOT NULL AUTO_INCREMENT,
+    customer_id INT           NULL,
+    total_price DECIMAL(12,2) NOT NULL,
+    language    VARCHAR(10)   NOT NULL,
+    item_count  INT           NOT NULL,
+    created_at  DATETIME(3)   NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    PRIMARY KEY (id, created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+PARTITION BY RANGE COLUMNS (created_at) (
+    PARTITION p_future VALUES LESS THAN (MAXVALUE)
+);
+
+-- One row per item. The clustered primary key (cart_result_id, item_index)
+-- stores the items of one cart next to each other in insertion order.
+CREATE TABLE IF NOT EXISTS cart_items (
+    cart_result_id BIGINT        NOT NULL,
+    item_index     INT           NOT NULL,
+    price          DECIMAL(12,2) NOT NULL,
+    PRIMARY KEY (cart_result_id, item_index)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -0,0 +1,4 @@
+-- History reads ("latest carts of a customer") stay index range scans
+-- instead of scanning every partition.
+CREATE INDEX IF NOT EXISTS idx_cart_results_customer_created
+    ON cart_results (customer_id, created_at);
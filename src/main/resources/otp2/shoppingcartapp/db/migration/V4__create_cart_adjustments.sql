@@ -0,0 +1,11 @@
+-- Pricing adjustments (tax, discounts, promotions) applied to a saved cart.
+-- Written in the same transaction as the cart_results row; the clustered key
+-- keeps the adjustments of one cart together in evaluation order.
+CREATE TABLE IF NOT EXISTS cart_adjustments (
+    cart_result_id   BIGINT        NOT NULL,
+    adjustment_index INT           NOT NULL,
+    rule_type        VARCHAR(32)   NOT NULL,
+    label            VARCHAR(100)  NOT NULL,
+    amount           DECIMAL(12,2) NOT NULL,
+    PRIMARY KEY (cart_result_id, adjustment_index)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -0,0 +1,18 @@
+-- Periodic snapshots of the streaming cart statistics (CartStatistics).
+-- One row per language and snapshot time, plus language '*' for all carts.
+-- The sketches are serialized QuantileSketch objects; the p50/p90/p99 columns
+-- and the comma-separated histogram counts are copies for ad-hoc SQL.
+CREATE TABLE IF NOT EXISTS cart_stats_snapshots (
+    id              BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    taken_at        DATETIME(3)  NOT NULL,
+    language        VARCHAR(10)  NOT NULL,
+    cart_count      BIGINT       NOT NULL,
+    total_p50       DOUBLE       NULL,
+    total_p90       DOUBLE       NULL,
+    total_p99       DOUBLE       NULL,
+    total_sketch    MEDIUMBLOB   NOT NULL,
+    item_sketch     MEDIUMBLOB   NOT NULL,
+    total_histogram VARCHAR(255) NOT NULL,
+    item_histogram  VARCHAR(255) NOT NULL,
+    INDEX idx_stats_language_time (language, taken_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
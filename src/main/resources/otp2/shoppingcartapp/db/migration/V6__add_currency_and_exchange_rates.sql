@@ -0,0 +1,20 @@
+-- Currency of a saved cart (ISO 4217). Carts saved before this migration were in euros.
+ALTER TABLE cart_results
+    ADD COLUMN IF NOT EXISTS currency CHAR(3) NOT NULL DEFAULT 'EUR';
+
+-- Versioned exchange rates: units of a currency per one euro.
+-- New rates are published as a complete set of rows with a higher version;
+-- readers load MAX(version) and swap their in-memory table (ExchangeRateService).
+CREATE TABLE IF NOT EXISTS exchange_rates (
+    version        BIGINT         NOT NULL,
+    currency       CHAR(3)        NOT NULL,
+    units_per_base DECIMAL(20,8)  NOT NULL,
+    published_at   DATETIME(3)    NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    PRIMARY KEY (version, currency)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Initial rates so that reports work out of the box; publish current rates as version 2+.
+INSERT IGNORE INTO exchange_rates (version, currency, units_per_base) VALUES
+    (1, 'EUR', 1.0),
+    (1, 'PKR', 310.0),
+    (1, 'VND', 28000.0);
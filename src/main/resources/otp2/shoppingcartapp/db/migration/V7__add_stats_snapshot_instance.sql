@@ -0,0 +1,9 @@
+-- Every application instance writes snapshots of the carts it recorded itself.
+-- The current statistics are the newest row of every instance merged together
+-- (JdbcCartStatisticsRepository#findLatest); rows from before this migration
+-- count as one instance ''.
+ALTER TABLE cart_stats_snapshots
+    ADD COLUMN IF NOT EXISTS instance_id VARCHAR(64) NOT NULL DEFAULT '' AFTER language;
+
+CREATE INDEX IF NOT EXISTS idx_stats_language_instance_time
+    ON cart_stats_snapshots (language, instance_id, taken_at);
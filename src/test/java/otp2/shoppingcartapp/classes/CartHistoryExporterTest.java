@@ -0,0 +1,215 @@
+package otp2.shoppingcartapp.classes;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartHistoryExporterTest {
+
+    @TempDir
+    Path dir;
+
+    private static final ConnectionSource NO_DATABASE = new ConnectionSource() {
+        @Override
+        public Connection getConnection() throws SQLException {
+            throw new SQLException("no database in unit tests");
+        }
+
+        @Override
+        public String getDescription() {
+            return "none";
+        }
+    };
+
+    /** Sink that keeps the carts in memory. */
+    private static class ListSink implements CartExportSink {
+        final List<String> carts = new ArrayList<>();
+
+        @Override
+        public void writeCart(long id, Integer customerId, double totalPrice, String currency, String language,
+                              long createdAtMillis, double[] prices, int itemCount) {
+            StringBuilder sb = new StringBuilder().append(id).append(' ').append(customerId).append(' ')
+                    .append(totalPrice).append(' ').append(currency).append(' ').append(language);
+            for (int i = 0; i < itemCount; i++) {
+                sb.append(' ').append(prices[i]);
+            }
+            carts.add(sb.toString());
+        }
+
+        @Override
+        public long getBytesWritten() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /** Result set over fixed rows: id, customer_id, total_price, currency, language, created_at, item_index, price. */
+    private static ResultSet rows(Object[]... rows) {
+        int[] cursor = {-1};
+        Object[] last = {null};
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++cursor[0] < rows.length;
+                        case "wasNull":
+                            return last[0] == null;
+                        case "getLong":
+                        case "getInt":
+                        case "getDouble":
+                        case "getString":
+                        case "getTimestamp": {
+                            Object value = rows[cursor[0]][(Integer) args[0] - 1];
+                            last[0] = value;
+                            if (value == null) {
+                                return method.getReturnType().isPrimitive()
+                                        ? (method.getReturnType() == double.class ? (Object) 0.0
+                                        : method.getReturnType() == long.class ? (Object) 0L : (Object) 0)
+                                        : null;
+                            }
+                            return value;
+                        }
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    @Test
+    void rowsAreGroupedIntoCartsByItemIndex() throws Exception {
+        Timestamp ts = new Timestamp(1_700_000_000_000L);
+        ResultSet rs = rows(
+                new Object[]{1L, 5, 30.0, "EUR", "en", ts, 2, 20.0},
+                new Object[]{1L, 5, 30.0, "EUR", "en", ts, 1, 10.0},
+                new Object[]{2L, null, 0.0, "EUR", "fr", ts, null, null},
+                new Object[]{3L, 7, 45000.0, "VND", "vi", ts, 1, 45000.0});
+        ListSink sink = new ListSink();
+
+        long[] counts = new CartHistoryExporter(NO_DATABASE, 100, 0).stream(rs, sink);
+
+        assertEquals(3, counts[0]);
+        assertEquals(4, counts[1]);
+        assertEquals(List.of("1 5 30.0 EUR en 10.0 20.0", "2 null 0.0 EUR fr", "3 7 45000.0 VND vi 45000.0"),
+                sink.carts);
+    }
+
+    @Test
+    void csvSinkWritesOneLinePerItem() throws Exception {
+        Path file = dir.resolve("carts.csv");
+        try (CsvCartExportSink sink = new CsvCartExportSink(CartHistoryExporter.openOutput(file, false))) {
+            sink.writeCart(1, 5, 30.0, "EUR", "en", 0, new double[]{10.0, 20.0}, 2);
+            sink.writeCart(2, null, 0.0, "PKR", "ur", 0, new double[0], 0);
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(List.of(
+                CsvCartExportSink.HEADER.trim(),
+                "1,5,1970-01-01T00:00:00Z,en,EUR,30.0,1,10.0",
+                "1,5,1970-01-01T00:00:00Z,en,EUR,30.0,2,20.0",
+                "2,,1970-01-01T00:00:00Z,ur,PKR,0.0,,"), lines);
+    }
+
+    @Test
+    void gzipOutputIsCompressed() throws Exception {
+        Path file = dir.resolve("carts.csv.gz");
+        long bytes;
+        try (CsvCartExportSink sink = new CsvCartExportSink(CartHistoryExporter.openOutput(file, true))) {
+            for (int i = 0; i < 10_000; i++) {
+                sink.writeCart(i, 1, 9.99, "EUR", "en", 0, new double[]{9.99}, 1);
+            }
+            bytes = sink.getBytesWritten();
+        }
+
+        assertTrue(Files.size(file) < bytes / 5);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            assertEquals(bytes, in.readAllBytes().length);
+        }
+    }
+
+    @Test
+    void columnarSinkWritesRowGroups() throws Exception {
+        Path file = dir.resolve("carts.bin");
+        try (ColumnarCartExportSink sink = new ColumnarCartExportSink(CartHistoryExporter.openOutput(file, false), 2)) {
+            sink.writeCart(1, 5, 30.0, "EUR", "en", 1000, new double[]{10.0, 20.0}, 2);
+            sink.writeCart(2, null, 0.0, "EUR", "fr", 2000, new double[0], 0);
+            sink.writeCart(3, 7, 4500.0, "PKR", "en", 3000, new double[]{4500.0}, 1);
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] magic = new byte[8];
+        buf.get(magic);
+        assertEquals("OTP2CART", new String(magic, StandardCharsets.US_ASCII));
+        assertEquals(ColumnarCartExportSink.VERSION, buf.getInt());
+
+        // ensimmäinen ryhmä: kaksi koria, kaksi tuotetta, kaksi uutta kieltä, yksi valuutta
+        assertEquals(2, buf.getInt());
+        assertEquals(2, buf.getInt());
+        assertEquals(2, buf.getShort());
+        assertEquals("en", readString(buf));
+        assertEquals("fr", readString(buf));
+        assertEquals(1, buf.getShort());
+        assertEquals("EUR", readString(buf));
+        assertEquals(1, buf.getLong());
+        assertEquals(2, buf.getLong());
+        assertEquals(5, buf.getInt());
+        assertEquals(ColumnarCartExportSink.NO_CUSTOMER, buf.getInt());
+        assertEquals(30.0, buf.getDouble());
+        assertEquals(0.0, buf.getDouble());
+        assertEquals(0, buf.getShort());
+        assertEquals(0, buf.getShort());
+        assertEquals(0, buf.getShort());
+        assertEquals(1, buf.getShort());
+        assertEquals(1000, buf.getLong());
+        assertEquals(2000, buf.getLong());
+        assertEquals(2, buf.getInt());
+        assertEquals(0, buf.getInt());
+        assertEquals(10.0, buf.getDouble());
+        assertEquals(20.0, buf.getDouble());
+
+        // toinen ryhmä: yksi kori, kieli jo sanakirjassa, uusi valuutta
+        assertEquals(1, buf.getInt());
+        assertEquals(1, buf.getInt());
+        assertEquals(0, buf.getShort());
+        assertEquals(1, buf.getShort());
+        assertEquals("PKR", readString(buf));
+        assertEquals(3, buf.getLong());
+        assertEquals(7, buf.getInt());
+        assertEquals(4500.0, buf.getDouble());
+        assertEquals(1, buf.getShort());
+        assertEquals(0, buf.getShort());
+        assertEquals(3000, buf.getLong());
+        assertEquals(1, buf.getInt());
+        assertEquals(4500.0, buf.getDouble());
+
+        assertEquals(0, buf.getInt());
+        assertEquals(3, buf.getLong());
+        assertEquals(3, buf.getLong());
+        assertFalse(buf.hasRemaining());
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getShort()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,208 @@
+package otp2.shoppingcartapp.classes;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartStatisticsTest {
+
+    @Test
+    void keepsStatisticsPerLanguageAndOverall() {
+        CartStatistics statistics = new CartStatistics();
+        statistics.record("en", 1, 4.0);
+        statistics.record("en", 3, 30.0);
+        statistics.record("fr", 25, 2500.0);
+
+        assertEquals(3, statistics.getCount(CartStatistics.ALL_LANGUAGES));
+        assertEquals(2, statistics.getCount("en"));
+        assertEquals(0, statistics.getCount("vi"));
+        assertEquals(Set.of("en", "fr"), statistics.getLanguages());
+        assertArrayEquals(new long[]{1, 0, 0, 1, 0, 0, 0, 0, 0}, statistics.getTotalHistogram("en"));
+        assertArrayEquals(new long[]{0, 0, 0, 0, 0, 0, 0, 0, 1}, statistics.getTotalHistogram("fr"));
+        assertEquals(2500.0, statistics.getTotalPercentile("fr", 99), 1e-9);
+        assertEquals(25, statistics.getItemCountPercentile(CartStatistics.ALL_LANGUAGES, 100), 1e-9);
+        assertTrue(Double.isNaN(statistics.getTotalPercentile("vi", 50)));
+    }
+
+    @Test
+    void saveListenerFeedsStatistics() {
+        ShoppingCartResultService service = new ShoppingCartResultService(new InMemoryCartResultRepository());
+        InMemoryExchangeRateRepository rates = new InMemoryExchangeRateRepository();
+        rates.publish(1, Map.of("EUR", 1.0, "PKR", 300.0));
+        CartStatistics statistics = new CartStatistics(ExchangeRateService.loaded(rates));
+        service.addSaveListener(statistics::record);
+
+        // urdu-korit ovat rupioina, tilastot euroina
+        assertTrue(service.saveCartResult(List.of(1000.0, 2000.0), 3000.0, "ur", null));
+        assertTrue(service.saveCartResult(List.of(1500.0), 1500.0, "ur", 7));
+
+        assertEquals(2, statistics.getCount("ur"));
+        assertEquals(5.0, statistics.getTotalPercentile("ur", 0), 1e-9);
+        assertEquals(10.0, statistics.getTotalPercentile("ur", 100), 1e-9);
+    }
+
+    @Test
+    void totalsAreConvertedToTheDefaultCurrency() {
+        InMemoryExchangeRateRepository rates = new InMemoryExchangeRateRepository();
+        rates.publish(1, Map.of("EUR", 1.0, "PKR", 300.0, "VND", 25_000.0));
+        ShoppingCartResultService service = new ShoppingCartResultService(new InMemoryCartResultRepository());
+        CartStatistics statistics = new CartStatistics("client", ExchangeRateService.loaded(rates));
+        service.addSaveListener(statistics::record);
+
+        assertTrue(service.saveCartResult(List.of(3000.0), 3000.0, "ur", null, List.of(), "PKR"));
+        assertTrue(service.saveCartResult(List.of(250_000.0), 250_000.0, "vi", null, List.of(), "VND"));
+        // kieli vaihdettu tuotteiden syöttämisen jälkeen: vi-ryhmään tulee euromääräinen kori
+        assertTrue(service.saveCartResult(List.of(30.0), 30.0, "vi", null, List.of(), "EUR"));
+        statistics.record("en", 1, 1000.0, "JPY");
+
+        assertEquals(10.0, statistics.getTotalPercentile("ur", 100), 1e-9);
+        assertEquals(10.0, statistics.getTotalPercentile("vi", 0), 1e-9);
+        assertEquals(30.0, statistics.getTotalPercentile("vi", 100), 1e-9);
+        assertEquals(30.0, statistics.getTotalPercentile(CartStatistics.ALL_LANGUAGES, 100), 1e-9);
+        assertEquals(3, statistics.getCount(CartStatistics.ALL_LANGUAGES));
+        assertEquals(1, statistics.getUnconvertedCount());
+        assertTrue(statistics.summary().contains("1 carts left out"));
+    }
+
+    @Test
+    void failingListenerDoesNotFailTheSave() {
+        InMemoryCartResultRepository repository = new InMemoryCartResultRepository();
+        ShoppingCartResultService service = new ShoppingCartResultService(repository);
+        service.addSaveListener(cart -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertTrue(service.saveCartResult(List.of(1.0), 1.0, "en", null));
+        assertEquals(1, repository.count());
+    }
+
+    @Test
+    void replayReadsStoredHistory() {
+        InMemoryCartResultRepository repository = new InMemoryCartResultRepository();
+        repository.save(new CartResult(List.of(1.0, 2.0), 3.0, "en", null));
+        repository.save(new CartResult(List.of(9.0), 9.0, "vi", null));
+        CartStatistics statistics = new CartStatistics();
+
+        assertEquals(2, statistics.replay(repository, 100));
+        assertEquals(1, statistics.getCount("vi"));
+    }
+
+    @Test
+    void snapshotsAreStoredAndQueryable() {
+        CartStatistics statistics = new CartStatistics();
+        for (int i = 1; i <= 100; i++) {
+            statistics.record(i % 2 == 0 ? "en" : "fr", i % 5 + 1, i);
+        }
+        InMemoryCartStatisticsRepository repository = new InMemoryCartStatisticsRepository();
+        Instant first = Instant.parse("2026-01-01T10:00:00Z");
+        repository.saveAll(statistics.snapshot(first));
+        statistics.record("en", 1, 1000.0);
+        repository.saveAll(statistics.snapshot(first.plusSeconds(300)));
+
+        CartStatisticsSnapshot all = repository.findLatest(CartStatistics.ALL_LANGUAGES);
+        assertEquals(101, all.getCartCount());
+        assertEquals(first.plusSeconds(300), all.getTakenAt());
+        assertEquals(51, repository.findHistory("en", 10).get(0).getCartCount());
+        assertEquals(50, repository.findHistory("en", 10).get(1).getCartCount());
+        assertEquals(50.0, repository.findHistory("fr", 1).get(0).getTotalPercentile(50), 2.0);
+        assertNull(repository.findLatest("vi"));
+
+        // snapshot ei muutu, kun tilastoja päivitetään
+        statistics.record("en", 1, 1.0);
+        assertEquals(101, all.getCartCount());
+    }
+
+    @Test
+    void latestMergesTheNewestSnapshotOfEveryInstance() {
+        CartStatistics first = new CartStatistics("client-1");
+        CartStatistics second = new CartStatistics("client-2");
+        for (int i = 1; i <= 10; i++) {
+            first.record("en", 1, i);
+        }
+        for (int i = 1; i <= 5; i++) {
+            second.record("en", 1, 100 + i);
+        }
+        InMemoryCartStatisticsRepository repository = new InMemoryCartStatisticsRepository();
+        Instant now = Instant.parse("2026-01-01T10:00:00Z");
+        repository.saveAll(first.snapshot(now));
+        repository.saveAll(second.snapshot(now.plusSeconds(1)));
+        first.record("en", 1, 11.0);
+        repository.saveAll(first.snapshot(now.plusSeconds(300)));
+
+        CartStatisticsSnapshot latest = repository.findLatest("en");
+        assertEquals(16, latest.getCartCount());
+        assertEquals(CartStatisticsSnapshot.MERGED, latest.getInstanceId());
+        assertEquals(now.plusSeconds(300), latest.getTakenAt());
+        assertEquals(105.0, latest.getTotalPercentile(100), 0.0001);
+        assertEquals(16, latest.getTotalHistogram().getTotal());
+    }
+
+    @Test
+    void restartedInstanceResumesFromItsLastSnapshot() {
+        InMemoryCartStatisticsRepository repository = new InMemoryCartStatisticsRepository();
+        Instant now = Instant.parse("2026-01-01T10:00:00Z");
+        CartStatistics before = new CartStatistics("client-1");
+        before.record("en", 1, 10.0);
+        before.record("fr", 2, 20.0);
+        repository.saveAll(before.snapshot(now));
+        CartStatistics other = new CartStatistics("client-2");
+        other.record("en", 1, 30.0);
+        repository.saveAll(other.snapshot(now));
+
+        CartStatistics after = new CartStatistics("client-1");
+        assertEquals(2, after.resume(repository));
+        after.record("en", 3, 40.0);
+        repository.saveAll(after.snapshot(now.plusSeconds(300)));
+
+        assertEquals(3, after.getCount(CartStatistics.ALL_LANGUAGES));
+        assertEquals(2, after.getCount("en"));
+        assertEquals(4, repository.findLatest(CartStatistics.ALL_LANGUAGES).getCartCount());
+        assertEquals(3, repository.findLatest("en").getCartCount());
+        assertEquals(1, repository.findLatest("fr").getCartCount());
+        assertEquals(0, new CartStatistics("client-3").resume(repository));
+    }
+
+    @Test
+    void defaultInstanceIdIsStable() {
+        String id = CartStatistics.defaultInstanceId();
+        assertFalse(id.isEmpty());
+        assertTrue(id.length() <= 64);
+        assertEquals(id, CartStatistics.defaultInstanceId());
+    }
+
+    @Test
+    void snapshotsContinueAfterAFailedWrite() throws Exception {
+        CountDownLatch saved = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        CartStatisticsRepository flaky = new InMemoryCartStatisticsRepository() {
+            @Override
+            public void saveAll(List<CartStatisticsSnapshot> snapshots) {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new IllegalStateException("bug in the first write");
+                }
+                saved.countDown();
+            }
+        };
+        try (CartStatistics statistics = new CartStatistics()) {
+            statistics.record("en", 1, 1.0);
+            statistics.startSnapshots(flaky, 1);
+            assertTrue(saved.await(10, TimeUnit.SECONDS));
+        }
+        assertTrue(attempts.get() >= 2);
+    }
+
+    @Test
+    void histogramCountsRoundTripAsText() {
+        long[] counts = {3, 0, 12, 5};
+        assertEquals("3,0,12,5", JdbcCartStatisticsRepository.joinCounts(counts));
+        assertArrayEquals(counts, JdbcCartStatisticsRepository.splitCounts("3,0,12,5"));
+    }
+}
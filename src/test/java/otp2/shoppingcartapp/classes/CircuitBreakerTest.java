@@ -0,0 +1,128 @@
+package otp2.shoppingcartapp.classes;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private long now;
+    private CircuitBreaker breaker;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final Supplier<String> failing = () -> {
+        calls.incrementAndGet();
+        throw new StorageException("Database connection failed");
+    };
+    private final Supplier<String> working = () -> {
+        calls.incrementAndGet();
+        return "ok";
+    };
+
+    @BeforeEach
+    void setUp() {
+        now = 0;
+        breaker = new CircuitBreaker("test", 3, 1000, 4000, () -> now);
+    }
+
+    private void advanceMillis(long millis) {
+        now += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertThrows(StorageException.class, () -> breaker.call(failing));
+        }
+    }
+
+    @Test
+    void opensAfterThresholdAndFailsFast() {
+        fail(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        fail(1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        assertThrows(CircuitOpenException.class, () -> breaker.call(working));
+        assertEquals(3, calls.get(), "open circuit must not call the storage");
+    }
+
+    @Test
+    void successResetsFailureCount() {
+        fail(2);
+        assertEquals("ok", breaker.call(working));
+        fail(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void halfOpenProbeClosesCircuitOnSuccess() {
+        fail(3);
+        advanceMillis(1000);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        assertEquals("ok", breaker.call(working));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getConsecutiveFailures());
+    }
+
+    @Test
+    void failedProbeReopensWithExponentialBackoff() {
+        fail(3);
+        assertEquals(1000, breaker.getRemainingOpenMillis());
+
+        advanceMillis(1000);
+        fail(1);                                    // probe fails
+        assertEquals(2000, breaker.getRemainingOpenMillis());
+
+        advanceMillis(2000);
+        fail(1);
+        assertEquals(4000, breaker.getRemainingOpenMillis());
+
+        advanceMillis(4000);
+        fail(1);
+        assertEquals(4000, breaker.getRemainingOpenMillis(), "backoff is capped");
+    }
+
+    @Test
+    void onlyOneProbeAtATime() {
+        fail(3);
+        advanceMillis(1000);
+
+        CircuitBreaker b = breaker;
+        String nested = b.call(() -> {
+            // toinen kutsu kesken proben hylätään
+            assertThrows(CircuitOpenException.class, () -> b.call(working));
+            return "probe";
+        });
+        assertEquals("probe", nested);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void nonStorageExceptionsDoNotCount() {
+        for (int i = 0; i < 5; i++) {
+            assertThrows(IllegalStateException.class, () -> breaker.call(() -> {
+                throw new IllegalStateException("bug");
+            }));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void errorDuringProbeReleasesIt() {
+        fail(3);
+        advanceMillis(1000);
+
+        assertThrows(AssertionError.class, () -> breaker.call(() -> {
+            throw new AssertionError("probe crashed");
+        }));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals("ok", breaker.call(working));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
@@ -0,0 +1,115 @@
+package otp2.shoppingcartapp.classes;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+
+    /** Source of fake connections that count opens, closes and rollbacks. */
+    private static class FakeSource implements ConnectionSource {
+        int opened;
+        int closed;
+        int rollbacks;
+
+        @Override
+        public Connection getConnection() {
+            opened++;
+            boolean[] state = {true, false}; // autoCommit, closed
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getAutoCommit" -> state[0];
+                        case "setAutoCommit" -> {
+                            state[0] = (Boolean) args[0];
+                            yield null;
+                        }
+                        case "rollback" -> {
+                            rollbacks++;
+                            yield null;
+                        }
+                        case "isClosed" -> state[1];
+                        case "isValid" -> !state[1];
+                        case "close" -> {
+                            state[1] = true;
+                            closed++;
+                            yield null;
+                        }
+                        default -> null;
+                    });
+        }
+
+        @Override
+        public String getDescription() {
+            return "fake";
+        }
+    }
+
+    @Test
+    void returnedConnectionIsReused() throws Exception {
+        FakeSource source = new FakeSource();
+        ConnectionPool pool = new ConnectionPool(source, 2, 100);
+
+        pool.getConnection().close();
+        pool.getConnection().close();
+
+        assertEquals(1, source.opened);
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(0, pool.getActiveCount());
+    }
+
+    @Test
+    void openTransactionIsRolledBackOnReturn() throws Exception {
+        FakeSource source = new FakeSource();
+        ConnectionPool pool = new ConnectionPool(source, 1, 100);
+
+        Connection conn = pool.getConnection();
+        conn.setAutoCommit(false);
+        conn.close();
+
+        assertEquals(1, source.rollbacks);
+        assertTrue(pool.getConnection().getAutoCommit());
+    }
+
+    @Test
+    void exhaustedPoolFailsAfterTimeout() throws Exception {
+        ConnectionPool pool = new ConnectionPool(new FakeSource(), 1, 50);
+        Connection held = pool.getConnection();
+
+        assertThrows(SQLException.class, pool::getConnection);
+
+        held.close();
+        assertNotNull(pool.getConnection());
+    }
+
+    @Test
+    void returnedConnectionCannotBeUsedAgain() throws Exception {
+        ConnectionPool pool = new ConnectionPool(new FakeSource(), 1, 50);
+        Connection conn = pool.getConnection();
+        conn.close();
+        conn.close(); // toinen close ei palauta yhteyttä kahdesti
+
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, () -> conn.setAutoCommit(true));
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    void closingPoolClosesIdleConnections() throws Exception {
+        FakeSource source = new FakeSource();
+        ConnectionPool pool = new ConnectionPool(source, 2, 50);
+        Connection a = pool.getConnection();
+        Connection b = pool.getConnection();
+        a.close();
+
+        pool.close();
+        b.close();
+
+        assertEquals(2, source.closed);
+        assertThrows(SQLException.class, pool::getConnection);
+    }
+}
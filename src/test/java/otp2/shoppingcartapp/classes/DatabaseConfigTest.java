@@ -0,0 +1,31 @@
+package otp2.shoppingcartapp.classes;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseConfigTest {
+
+    private final DatabaseConfig config = new DatabaseConfig("db", "3306", "shop", "root", "secret");
+
+    @Test
+    void interactiveConnectionsHaveBothTimeouts() {
+        String url = config.getDatabaseUrl();
+
+        assertTrue(url.startsWith("jdbc:mariadb://db:3306/shop?"), url);
+        assertTrue(url.contains("connectTimeout="), url);
+        assertTrue(url.contains("socketTimeout="), url);
+    }
+
+    @Test
+    void batchToolsHaveNoSocketTimeout() {
+        DatabaseConfig batch = config.withoutSocketTimeout();
+
+        assertTrue(batch.getDatabaseUrl().contains("connectTimeout="));
+        assertFalse(batch.getDatabaseUrl().contains("socketTimeout"));
+        assertEquals("db", batch.getHost());
+        assertEquals("root", batch.getUser());
+        assertEquals("secret", batch.getPassword());
+        assertTrue(config.getDatabaseUrl().contains("socketTimeout="), "the original is unchanged");
+    }
+}
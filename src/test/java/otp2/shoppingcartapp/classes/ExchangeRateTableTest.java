@@ -0,0 +1,131 @@
+package otp2.shoppingcartapp.classes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExchangeRateTableTest {
+
+    private static final ExchangeRateTable RATES =
+            new ExchangeRateTable(3, Map.of("EUR", 1.0, "PKR", 300.0, "VND", 27000.0));
+
+    @Test
+    void convertsBetweenCurrencies() {
+        assertEquals(3000.0, RATES.convert(10.0, "EUR", "PKR"), 1e-9);
+        assertEquals(10.0, RATES.convert(3000.0, "PKR", "EUR"), 1e-9);
+        assertEquals(90.0, RATES.convert(1.0, "PKR", "VND"), 1e-9);
+        assertEquals(5.0, ExchangeRateTable.EMPTY.convert(5.0, "PKR", "PKR"));
+        assertThrows(IllegalArgumentException.class, () -> RATES.convert(1.0, "EUR", "USD"));
+        assertThrows(IllegalArgumentException.class, () -> ExchangeRateTable.EMPTY.convert(1.0, "EUR", "PKR"));
+    }
+
+    @Test
+    void rejectsInvalidRates() {
+        assertThrows(IllegalArgumentException.class, () -> new ExchangeRateTable(1, Map.of("EUR", 0.0)));
+        assertThrows(IllegalArgumentException.class, () -> new ExchangeRateTable(1, Map.of("ABC", 1.0)));
+    }
+
+    @Test
+    void convertsManyAmountsWithPrecomputedFactors() {
+        double[] factors = RATES.factorsTo("EUR");
+        int eur = RATES.indexOf("EUR");
+        int pkr = RATES.indexOf("PKR");
+        int vnd = RATES.indexOf("VND");
+        double[] amounts = {10.0, 600.0, 54000.0};
+        double[] out = new double[3];
+
+        ExchangeRateTable.convertAll(amounts, new int[]{eur, pkr, vnd}, factors, out);
+
+        assertArrayEquals(new double[]{10.0, 2.0, 2.0}, out, 1e-9);
+    }
+
+    @Test
+    void convertsCartTotals() {
+        List<CartResult> carts = List.of(
+                new CartResult(List.of(12.0), 12.0, "en", null),
+                new CartResult(List.of(1500.0), 1500.0, "ur", null).withCurrency("PKR"),
+                new CartResult(List.of(300.0), 300.0, "ur", null).withCurrency("PKR"),
+                new CartResult(List.of(27000.0), 27000.0, "vi", null).withCurrency("VND"));
+
+        assertArrayEquals(new double[]{12.0, 5.0, 1.0, 1.0}, RATES.convertTotals(carts, "EUR"), 1e-9);
+    }
+
+    @Test
+    void serviceSwapsOnlyNewerVersions() {
+        InMemoryExchangeRateRepository repository = new InMemoryExchangeRateRepository();
+        ExchangeRateService service = new ExchangeRateService(repository);
+        assertFalse(service.refresh());
+        assertSame(ExchangeRateTable.EMPTY, service.current());
+
+        repository.publish(2, Map.of("EUR", 1.0, "PKR", 300.0));
+        assertTrue(service.refresh());
+        ExchangeRateTable v2 = service.current();
+        assertEquals(2, v2.getVersion());
+
+        repository.publish(1, Map.of("EUR", 1.0, "PKR", 1.0));
+        assertFalse(service.refresh());
+        assertSame(v2, service.current());
+
+        repository.publish(3, Map.of("EUR", 1.0, "PKR", 310.0));
+        assertTrue(service.refresh());
+        assertEquals(310.0, service.current().convert(1.0, "EUR", "PKR"), 1e-9);
+        // vanha taulu ei muutu
+        assertEquals(300.0, v2.convert(1.0, "EUR", "PKR"), 1e-9);
+    }
+
+    @Test
+    void cartPricedAfterAPeriodicRefreshUsesTheNewRates() throws InterruptedException {
+        InMemoryExchangeRateRepository repository = new InMemoryExchangeRateRepository();
+        repository.publish(1, Map.of("EUR", 1.0, "PKR", 300.0));
+        PricingPlan plan = PricingPlan.compile(List.of(PricingRule.thresholdDiscount(50, 5, "EUR")));
+        List<Long> cart = List.of(1_600_000L); // 16 000 Rs
+
+        try (ExchangeRateService service = ExchangeRateService.loaded(repository)) {
+            service.startRefreshing(1);
+            // 50 € = 15 000 Rs: alennus 5 € = 1 500 Rs
+            assertEquals(1_450_000, plan.newEvaluator("PKR", service.current()).price(cart));
+
+            repository.publish(2, Map.of("EUR", 1.0, "PKR", 350.0));
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (service.current().getVersion() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+
+            assertEquals(2, service.current().getVersion());
+            // 50 € = 17 500 Rs: kynnys ei enää täyty
+            assertEquals(1_600_000, plan.newEvaluator("PKR", service.current()).price(cart));
+        }
+    }
+
+    @Test
+    void serviceKeepsRatesWhenStorageFails() {
+        AtomicBoolean down = new AtomicBoolean();
+        ExchangeRateService service = new ExchangeRateService(() -> {
+            if (down.get()) {
+                throw new StorageException("db down");
+            }
+            return RATES;
+        });
+        assertTrue(service.refresh());
+        down.set(true);
+        assertFalse(service.refresh());
+        assertSame(RATES, service.current());
+    }
+
+    @Test
+    void currenciesFollowLanguage() {
+        assertEquals("EUR", Currencies.forLanguage("en"));
+        assertEquals("EUR", Currencies.forLanguage("fr"));
+        assertEquals("PKR", Currencies.forLanguage("ur"));
+        assertEquals("VND", Currencies.forLanguage("vi"));
+        assertEquals("EUR", Currencies.forLanguage(null));
+        assertTrue(Currencies.format(25000, "VND", Locale.US).startsWith("25,000 "));
+        assertEquals("1,250.00 Rs", Currencies.format(1250, "PKR", new Locale("ur", "PK")));
+        assertEquals("-1.50 €", Currencies.formatSigned(-1.5, "EUR", Locale.FRANCE).replace(',', '.'));
+    }
+}
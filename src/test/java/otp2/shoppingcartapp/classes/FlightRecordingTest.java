@@ -0,0 +1,55 @@
+package otp2.shoppingcartapp.classes;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecordingTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void bundledSettingsEnableApplicationEvents() throws Exception {
+        Map<String, String> settings = FlightRecording.loadSettings();
+
+        assertEquals("true", settings.get("otp2.LanguagePhase#enabled"));
+        assertEquals("true", settings.get("otp2.LocalizationFetch#enabled"));
+        assertEquals("true", settings.get("otp2.CartSaveStage#enabled"));
+        assertEquals("true", settings.get("otp2.PriceDialog#enabled"));
+        // JDK:n oletusprofiili on mukana
+        assertEquals("true", settings.get("jdk.GarbageCollection#enabled"));
+    }
+
+    @Test
+    void localizationFetchIsRecordedWithLocaleAndRowCount() throws Exception {
+        InMemoryLocalizationRepository repository = new InMemoryLocalizationRepository();
+        repository.putAll("fr", Map.of("title", "Panier", "ok", "OK"));
+        LocalizationService service = new LocalizationService(repository);
+        Path file = dir.resolve("test.jfr");
+
+        try (Recording recording = new Recording(FlightRecording.loadSettings())) {
+            recording.start();
+            service.getLocalizedStrings(new Locale("fr", "FR"));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals("otp2.LocalizationFetch"))
+                .toList();
+        assertEquals(1, events.size());
+        assertEquals("fr_FR", events.get(0).getString("locale"));
+        assertEquals(2, events.get(0).getInt("rowCount"));
+        assertFalse(events.get(0).getBoolean("failed"));
+    }
+}
@@ -0,0 +1,93 @@
+package otp2.shoppingcartapp.classes;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FxStallDetectorTest {
+
+    /** Stand-in for the JavaFX application thread. */
+    private final ExecutorService ui = Executors.newSingleThreadExecutor(r -> new Thread(r, "fake-fx"));
+    private long now;
+    private final FxStallDetector detector = new FxStallDetector(ui, 250, () -> now);
+
+    @AfterEach
+    void tearDown() {
+        ui.shutdownNow();
+    }
+
+    private void drainUi() throws Exception {
+        ui.submit(() -> { }).get(5, TimeUnit.SECONDS);
+    }
+
+    private static void blockingDatabaseCall(CountDownLatch release) throws InterruptedException {
+        release.await();
+    }
+
+    @Test
+    void responsiveThreadRecordsHeartbeatsWithoutStalls() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            detector.tick();
+            now += TimeUnit.MILLISECONDS.toNanos(2);
+            drainUi();
+            now += TimeUnit.MILLISECONDS.toNanos(50);
+        }
+
+        assertEquals(5, detector.getHeartbeatHistogram().getCount());
+        assertEquals(0, detector.getStallCount());
+        assertEquals("none", detector.getLastStall());
+    }
+
+    @Test
+    void blockedThreadIsReportedOnceWithStackTrace() throws Exception {
+        // ensimmäinen sydämenlyönti kertoo mikä säie on UI-säie
+        detector.tick();
+        drainUi();
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        ui.execute(() -> {
+            blocked.countDown();
+            try {
+                blockingDatabaseCall(release);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        detector.tick();
+        now += TimeUnit.MILLISECONDS.toNanos(300);
+        Thread.sleep(50); // annetaan säikeen ehtiä await-kutsuun
+        detector.tick();
+        now += TimeUnit.MILLISECONDS.toNanos(300);
+        detector.tick();
+
+        assertEquals(1, detector.getStallCount());
+        assertTrue(detector.getLastStall().contains("blockingDatabaseCall"), detector.getLastStall());
+
+        release.countDown();
+        drainUi();
+        assertEquals(2, detector.getHeartbeatHistogram().getCount());
+        assertEquals(600, TimeUnit.NANOSECONDS.toMillis(detector.getHeartbeatHistogram().getMax()), 20);
+    }
+
+    @Test
+    void handlerDurationsAppearInReport() {
+        detector.recordHandler("onCalculate", TimeUnit.MILLISECONDS.toNanos(3));
+        detector.recordHandler("onCalculate", TimeUnit.MILLISECONDS.toNanos(5));
+        detector.recordHandler("onSaveToDb", TimeUnit.MILLISECONDS.toNanos(40));
+
+        assertEquals(2, detector.getHandlerHistogram("onCalculate").getCount());
+        assertNull(detector.getHandlerHistogram("onEnterItems"));
+        String report = detector.report();
+        assertTrue(report.contains("onCalculate"));
+        assertTrue(report.contains("onSaveToDb"));
+        assertTrue(report.contains("stalls > 250 ms: 0"));
+    }
+}
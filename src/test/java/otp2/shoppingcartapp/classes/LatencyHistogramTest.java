@@ -0,0 +1,65 @@
+package otp2.shoppingcartapp.classes;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramReturnsZeros() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getValueAtPercentile(99));
+        assertEquals(0, h.getMin());
+        assertEquals(0.0, h.getMean());
+    }
+
+    @Test
+    void percentilesStayWithinRelativeError() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) {
+            h.record(v * 1000);
+        }
+        assertEquals(100_000, h.getCount());
+        assertEquals(50_000_000, h.getValueAtPercentile(50), 50_000_000 * 0.04);
+        assertEquals(99_000_000, h.getValueAtPercentile(99), 99_000_000 * 0.04);
+        assertEquals(99_900_000, h.getValueAtPercentile(99.9), 99_900_000 * 0.04);
+        assertEquals(100_000_000, h.getMax());
+        assertEquals(1000, h.getMin());
+    }
+
+    @Test
+    void bucketBoundsAreContiguous() {
+        long previousUpper = -1;
+        for (int i = 0; i < 1500; i++) {
+            long upper = LatencyHistogram.bucketUpperBound(i);
+            assertEquals(i, LatencyHistogram.bucketIndex(previousUpper + 1));
+            assertEquals(i, LatencyHistogram.bucketIndex(upper));
+            previousUpper = upper;
+        }
+        assertTrue(LatencyHistogram.bucketIndex(Long.MAX_VALUE) > 0);
+    }
+
+    @Test
+    void resetClearsValues() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(5);
+        h.record(-3);
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getMax());
+    }
+
+    @Test
+    void writeBucketsProducesCsvLines() throws Exception {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(2_000);
+        h.record(2_000);
+        StringWriter w = new StringWriter();
+        h.writeBuckets("op", w);
+        assertTrue(w.toString().startsWith("op,2,2,100.0000"));
+    }
+}
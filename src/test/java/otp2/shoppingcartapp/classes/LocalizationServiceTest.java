@@ -1,5 +1,6 @@
 package otp2.shoppingcartapp.classes;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.Locale;
@@ -9,44 +10,65 @@ import static org.junit.jupiter.api.Assertions.*;
 
 class LocalizationServiceTest {
 
+    private InMemoryLocalizationRepository repository;
+    private LocalizationService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryLocalizationRepository();
+        repository.putAll("en", Map.of("title", "Shopping Cart App", "ok", "OK"));
+        repository.putAll("fr", Map.of("title", "Application Panier", "ok", "OK"));
+        service = new LocalizationService(repository);
+    }
+
     @Test
-    void getLocalizedStringsReturnsNonNullMapForEnglish() {
-        Map<String, String> result = LocalizationService.getLocalizedStrings(Locale.ENGLISH);
-        assertNotNull(result);
+    void getLocalizedStringsReturnsStringsForEnglish() {
+        Map<String, String> result = service.getLocalizedStrings(Locale.ENGLISH);
+        assertEquals("Shopping Cart App", result.get("title"));
+        assertEquals(2, result.size());
     }
 
     @Test
-    void getLocalizedStringsDoesNotThrowForUnknownLocale() {
-        Locale locale = new Locale("xx", "YY");
-        assertDoesNotThrow(() -> LocalizationService.getLocalizedStrings(locale));
+    void getLocalizedStringsReturnsEmptyMapForUnknownLocale() {
+        Map<String, String> result = service.getLocalizedStrings(new Locale("xx", "YY"));
+        assertNotNull(result);
+        assertTrue(result.isEmpty());
     }
 
     @Test
-    void getLocalizedStringsWorksForConfiguredLanguages() {
-        Locale fr = new Locale("fr", "FR");
-        Locale ur = new Locale("ur", "PK");
-        Locale vi = new Locale("vi", "VN");
-
-        assertNotNull(LocalizationService.getLocalizedStrings(fr));
-        assertNotNull(LocalizationService.getLocalizedStrings(ur));
-        assertNotNull(LocalizationService.getLocalizedStrings(vi));
+    void getLocalizedStringsUsesLanguageOnly() {
+        repository.put("ur", "title", "شاپنگ");
+        repository.put("vi", "title", "Ứng dụng");
+
+        assertEquals("Application Panier", service.getLocalizedStrings(new Locale("fr", "FR")).get("title"));
+        assertEquals("شاپنگ", service.getLocalizedStrings(new Locale("ur", "PK")).get("title"));
+        assertEquals("Ứng dụng", service.getLocalizedStrings(new Locale("vi", "VN")).get("title"));
     }
 
     @Test
     void testLocalizationWithDifferentLocales() {
-        Locale en = new Locale("en", "US");
-        Locale fr = new Locale("fr", "FR");
+        Map<String, String> enMap = service.getLocalizedStrings(new Locale("en", "US"));
+        Map<String, String> frMap = service.getLocalizedStrings(new Locale("fr", "FR"));
 
-        Map<String, String> enMap = LocalizationService.getLocalizedStrings(en);
-        Map<String, String> frMap = LocalizationService.getLocalizedStrings(fr);
+        assertNotEquals(enMap, frMap);
+    }
+
+    @Test
+    void putAddsToExistingLanguage() {
+        repository.put("en", "cancel", "Cancel");
 
-        assertNotNull(enMap);
-        assertNotNull(frMap);
+        Map<String, String> result = service.getLocalizedStrings(Locale.ENGLISH);
+        assertEquals(3, result.size());
+        assertEquals("Cancel", result.get("cancel"));
+    }
+
+    @Test
+    void getLocalizedStringsReturnsEmptyMapWhenStorageFails() {
+        LocalizationService failing = new LocalizationService(language -> {
+            throw new StorageException("Database connection failed");
+        });
 
-        // Jos tietokannassa on dataa molemmille kielille, niiden pitäisi tyypillisesti olla erilaisia.
-        // Mutta jos db on tyhjä, älä kaada testiä tämän takia.
-        if (!enMap.isEmpty() && !frMap.isEmpty()) {
-            assertNotEquals(enMap, frMap);
-        }
+        Map<String, String> result = assertDoesNotThrow(() -> failing.getLocalizedStrings(Locale.ENGLISH));
+        assertTrue(result.isEmpty());
     }
 }
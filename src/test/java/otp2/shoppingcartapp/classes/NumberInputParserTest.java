@@ -0,0 +1,94 @@
+package otp2.shoppingcartapp.classes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NumberInputParserTest {
+
+    private static final NumberInputParser EN = NumberInputParser.forLocale(new Locale("en", "US"));
+    private static final NumberInputParser FR = NumberInputParser.forLocale(new Locale("fr", "FR"));
+    private static final NumberInputParser UR = NumberInputParser.forLocale(new Locale("ur", "PK"));
+    private static final NumberInputParser VI = NumberInputParser.forLocale(new Locale("vi", "VN"));
+
+    @Test
+    void parsesCounts() {
+        assertEquals(3, EN.parseCount("3"));
+        assertEquals(12, EN.parseCount("  12 "));
+        assertEquals(1234, EN.parseCount("1,234"));
+        assertEquals(0, EN.parseCount("0"));
+        assertEquals(NumberInputParser.EMPTY, EN.parseCount("   "));
+        assertEquals(NumberInputParser.EMPTY, EN.parseCount(null));
+        assertEquals(NumberInputParser.INVALID, EN.parseCount("-1"));
+        assertEquals(NumberInputParser.INVALID, EN.parseCount("abc"));
+        assertEquals(NumberInputParser.INVALID, EN.parseCount("2.5"));
+        assertEquals(NumberInputParser.INVALID, EN.parseCount("3."));
+        assertEquals(NumberInputParser.OUT_OF_RANGE, EN.parseCount("99999999999999999999999"));
+    }
+
+    @Test
+    void parsesPricesIntoMinorUnits() {
+        assertEquals(1250, EN.parsePrice("12.5", 2));
+        assertEquals(1250, EN.parsePrice("12.50", 2));
+        assertEquals(1200, EN.parsePrice("12", 2));
+        assertEquals(50, EN.parsePrice(".5", 2));
+        assertEquals(123_456, EN.parsePrice("1,234.56", 2));
+        assertEquals(NumberInputParser.TOO_MANY_DECIMALS, EN.parsePrice("1.234", 2));
+        assertEquals(NumberInputParser.INVALID, EN.parsePrice("1.2.3", 2));
+        assertEquals(NumberInputParser.INVALID, EN.parsePrice(".", 2));
+        assertEquals(NumberInputParser.INVALID, EN.parsePrice("NaN", 2));
+        assertEquals(NumberInputParser.INVALID, EN.parsePrice("1e3", 2));
+        assertEquals(NumberInputParser.INVALID, EN.parsePrice("-4", 2));
+        assertEquals(NumberInputParser.OUT_OF_RANGE, EN.parsePrice("10000000000000", 2));
+    }
+
+    @Test
+    void keepsLegacyCommaLeniency() {
+        assertEquals(250, EN.parsePrice("2,50", 2));
+        assertEquals(250, EN.parsePrice("2,5", 2));
+        assertEquals(NumberInputParser.INVALID, EN.parsePrice("1,234,5", 2));
+    }
+
+    @Test
+    void usesSeparatorsOfTheLocale() {
+        assertEquals(123_450, FR.parsePrice("1 234,50", 2));
+        assertEquals(123_450, FR.parsePrice("1 234,50", 2));
+        assertEquals(123_450, FR.parsePrice("1 234,5", 2));
+        assertEquals(250, FR.parsePrice("2.5", 2));
+        assertEquals(123_450, VI.parsePrice("1.234,50", 2));
+        assertEquals(123_400, VI.parsePrice("1.234", 2));
+        assertEquals(250, VI.parsePrice("2.5", 2));
+        assertEquals(1_234_567, VI.parseCount("1.234.567"));
+    }
+
+    @Test
+    void usesTheDecimalsOfTheCurrency() {
+        // VND: ei desimaaleja, EUR/PKR: 2, BHD: 3
+        assertEquals(25_000, VI.parsePrice("25.000", Currencies.minorUnitDigits("VND")));
+        assertEquals(25, VI.parsePrice("25", Currencies.minorUnitDigits("VND")));
+        assertEquals(NumberInputParser.INVALID, VI.parsePrice("25,50", Currencies.minorUnitDigits("VND")));
+        assertEquals(NumberInputParser.INVALID, EN.parsePrice("25.5", 0));
+        assertEquals(2550, VI.parsePrice("25,50", Currencies.minorUnitDigits("EUR")));
+        assertEquals(1_250, EN.parsePrice("1.25", Currencies.minorUnitDigits("BHD")));
+        assertEquals(NumberInputParser.TOO_MANY_DECIMALS, EN.parsePrice("1.2345", 3));
+        assertThrows(IllegalArgumentException.class, () -> EN.parsePrice("1", 4));
+    }
+
+    @Test
+    void acceptsDigitsOfOtherScripts() {
+        // urdu (extended arabic-indic) ja arabic-indic numerot
+        assertEquals(125, UR.parseCount("۱۲۵"));
+        assertEquals(1250, UR.parsePrice("۱۲٫۵", 2));
+        assertEquals(4200, UR.parsePrice("٤٢", 2));
+        assertEquals(NumberInputParser.INVALID, UR.parseCount("1۲"));
+    }
+
+    @Test
+    void cartLogicUsesParser() {
+        assertTrue(CartLogic.isValidCount(" 7 "));
+        assertFalse(CartLogic.isValidCount("0"));
+        assertFalse(CartLogic.isValidCount(null));
+    }
+}
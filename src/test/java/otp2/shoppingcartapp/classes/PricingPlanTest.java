@@ -0,0 +1,204 @@
+package otp2.shoppingcartapp.classes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PricingPlanTest {
+
+    @Test
+    void emptyPlanReturnsPlainSum() {
+        assertEquals(6000, CartLogic.calculateTotal(List.of(1000L, 2000L, 3000L), PricingPlan.EMPTY, "EUR"));
+        assertEquals(0, PricingPlan.EMPTY.size());
+    }
+
+    @Test
+    void rulesAreOrderedByStage() {
+        PricingPlan plan = PricingPlan.compile(List.of(
+                PricingRule.tax(24),
+                PricingRule.thresholdDiscount(50, 5),
+                PricingRule.percentageDiscount(10),
+                PricingRule.multiBuy(3, 1)));
+
+        assertEquals(PricingRule.Type.MULTI_BUY, plan.getType(0));
+        assertEquals(PricingRule.Type.PERCENTAGE_DISCOUNT, plan.getType(1));
+        assertEquals(PricingRule.Type.THRESHOLD_DISCOUNT, plan.getType(2));
+        assertEquals(PricingRule.Type.TAX, plan.getType(3));
+    }
+
+    @Test
+    void multiBuyMakesCheapestItemsOfEveryGroupFree() {
+        PricingPlan plan = PricingPlan.compile(List.of(PricingRule.multiBuy(3, 1)));
+        PricingPlan.Evaluator evaluator = plan.newEvaluator("EUR");
+
+        // 7 tuotetta -> kaksi täyttä kolmen ryhmää -> kaksi halvinta ilmaiseksi
+        long total = evaluator.price(List.of(500L, 100L, 700L, 200L, 900L, 300L, 400L));
+
+        assertEquals(3100, evaluator.getSubtotal());
+        assertEquals(-300, evaluator.getAdjustment(0));
+        assertEquals(2800, total);
+    }
+
+    @Test
+    void stackedMultiBuyRulesDoNotFreeTheSameItemsTwice() {
+        PricingPlan plan = PricingPlan.compile(PricingRule.parseList("multibuy:2:1,multibuy:3:1"));
+        PricingPlan.Evaluator evaluator = plan.newEvaluator("EUR");
+
+        // 6 tuotetta: 2:1 vapauttaa halvimmat 1, 2, 3; jäljelle jääneistä 4, 5, 6 vielä 4
+        long total = evaluator.price(List.of(600L, 500L, 400L, 300L, 200L, 100L));
+
+        assertEquals(-600, evaluator.getAdjustment(0));
+        assertEquals(-400, evaluator.getAdjustment(1));
+        assertEquals(1100, total);
+    }
+
+    @Test
+    void discountsThenTaxAreApplied() {
+        PricingPlan plan = PricingPlan.compile(List.of(
+                PricingRule.tax(24),
+                PricingRule.percentageDiscount(10),
+                PricingRule.thresholdDiscount(50, 5)));
+        PricingPlan.Evaluator evaluator = plan.newEvaluator("EUR");
+
+        long total = evaluator.price(List.of(4000L, 3000L));
+
+        // 70 - 7 = 63, >= 50 -> 58, + 24 % = 71.92
+        assertEquals(-700, evaluator.getAdjustment(0));
+        assertEquals(-500, evaluator.getAdjustment(1));
+        assertEquals(1392, evaluator.getAdjustment(2));
+        assertEquals(7192, total);
+        assertEquals(3, evaluator.getAdjustments().size());
+        assertEquals(13.92, evaluator.getAdjustments().get(2).getAmount(), 0.0001);
+    }
+
+    @Test
+    void amountsAreInMinorUnitsOfTheCurrency() {
+        PricingPlan plan = PricingPlan.compile(List.of(
+                PricingRule.thresholdDiscount(50, 5, "VND"),
+                PricingRule.tax(10)));
+        PricingPlan.Evaluator evaluator = plan.newEvaluator("VND");
+
+        // dongilla ei ole desimaaleja: 55 -> 50 -> + 10 % = 55
+        long total = evaluator.price(List.of(30L, 25L));
+
+        assertEquals(-5, evaluator.getAdjustment(0));
+        assertEquals(5, evaluator.getAdjustment(1));
+        assertEquals(55, total);
+        assertEquals(-5.0, evaluator.getAdjustments().get(0).getAmount(), 0.0001);
+        assertEquals("VND", evaluator.getCurrency());
+    }
+
+    @Test
+    void thresholdAmountsAreConvertedToTheCartCurrency() {
+        PricingPlan plan = PricingPlan.compile(PricingRule.parseList("threshold:50:5:EUR"));
+        ExchangeRateTable rates = new ExchangeRateTable(1, Map.of("EUR", 1.0, "VND", 25_000.0));
+        PricingPlan.Evaluator evaluator = plan.newEvaluator("VND", rates);
+
+        // 50 € = 1 250 000 ₫, 5 € = 125 000 ₫
+        assertEquals(1_200_000, evaluator.price(List.of(1_000_000L, 200_000L)));
+        assertEquals(1_175_000, evaluator.price(List.of(1_000_000L, 300_000L)));
+        assertEquals(-125_000, evaluator.getAdjustment(0));
+        assertEquals("5 EUR off from 50 EUR", evaluator.getAdjustments().get(0).getLabel());
+    }
+
+    @Test
+    void adjustmentLabelsAreResolvedThroughTheBundles() {
+        PricingPlan plan = PricingPlan.compile(PricingRule.parseList("multibuy:3:1,threshold:50:5:EUR,tax:24"));
+        ResourceBundle fr = ResourceBundle.getBundle("MessagesBundle", new Locale("fr", "FR"));
+        PricingPlan.Evaluator evaluator = plan.newEvaluator("EUR", ExchangeRateTable.EMPTY, fr::getString);
+
+        evaluator.price(List.of(1000L, 2000L, 3000L, 4000L, 5000L, 6000L));
+        List<CartAdjustment> adjustments = evaluator.getAdjustments();
+        assertEquals("3 achet\u00e9s, 1 offert(s)", adjustments.get(0).getLabel());
+        assertEquals("5\u00a0EUR de remise d\u00e8s 50\u00a0EUR", adjustments.get(1).getLabel());
+        assertEquals("TVA 24\u00a0%", adjustments.get(2).getLabel());
+        assertEquals("Tax 24%", plan.getLabel(2));
+    }
+
+    @Test
+    void thresholdWithoutExchangeRateIsNotApplied() {
+        PricingPlan plan = PricingPlan.compile(List.of(PricingRule.thresholdDiscount(50, 5, "EUR")));
+        PricingPlan.Evaluator evaluator = plan.newEvaluator("PKR", ExchangeRateTable.EMPTY);
+
+        assertEquals(1_000_000, evaluator.price(List.of(1_000_000L)));
+        assertTrue(evaluator.getAdjustments().isEmpty());
+    }
+
+    @Test
+    void thresholdDiscountNotAppliedBelowThreshold() {
+        PricingPlan plan = PricingPlan.compile(List.of(PricingRule.thresholdDiscount(50, 5)));
+        PricingPlan.Evaluator evaluator = plan.newEvaluator("EUR");
+
+        assertEquals(4999, evaluator.price(List.of(4999L)));
+        assertTrue(evaluator.getAdjustments().isEmpty());
+    }
+
+    @Test
+    void adjustmentsAddUpToTotal() {
+        PricingPlan plan = PricingPlan.compile(PricingRule.parseList("multibuy:2:1,percent:7.5,tax:14"));
+        PricingPlan.Evaluator evaluator = plan.newEvaluator("EUR");
+
+        long total = evaluator.price(List.of(333L, 777L, 111L, 999L));
+        long sum = evaluator.getSubtotal();
+        for (int r = 0; r < plan.size(); r++) {
+            sum += evaluator.getAdjustment(r);
+        }
+        assertEquals(total, sum);
+    }
+
+    @Test
+    void priceAllMatchesSingleCartPricing() {
+        PricingPlan plan = PricingPlan.compile(PricingRule.parseList("multibuy:3:1,threshold:20:2,tax:24"));
+        long[] prices = {150, 800, 325, 1200, 400, 400, 650, 1000, 200};
+        int[] offsets = {0, 3, 3, 9};
+        long[] totals = new long[3];
+        long[] ruleTotals = new long[plan.size()];
+
+        plan.priceAll("EUR", ExchangeRateTable.EMPTY, prices, offsets, totals, ruleTotals);
+
+        PricingPlan.Evaluator evaluator = plan.newEvaluator("EUR");
+        long[] expectedRuleTotals = new long[plan.size()];
+        for (int c = 0; c < 3; c++) {
+            assertEquals(evaluator.price(prices, offsets[c], offsets[c + 1]), totals[c]);
+            for (int r = 0; r < plan.size(); r++) {
+                expectedRuleTotals[r] += evaluator.getAdjustment(r);
+            }
+        }
+        assertArrayEquals(expectedRuleTotals, ruleTotals);
+        assertEquals(0, totals[1]);
+    }
+
+    @Test
+    void parseRejectsMalformedRules() {
+        assertThrows(IllegalArgumentException.class, () -> PricingRule.parse("percent"));
+        assertThrows(IllegalArgumentException.class, () -> PricingRule.parse("bogus:1"));
+        assertThrows(IllegalArgumentException.class, () -> PricingRule.parse("multibuy:2:2"));
+        assertThrows(IllegalArgumentException.class, () -> PricingRule.parse("tax:abc"));
+        assertThrows(IllegalArgumentException.class, () -> PricingRule.parse("threshold:50:5:xyz"));
+        assertTrue(PricingRule.parseList("").isEmpty());
+        assertEquals("PKR", PricingRule.parse("threshold:5000:500:pkr").getCurrency());
+        assertEquals(Currencies.DEFAULT_CURRENCY, PricingRule.parse("threshold:50:5").getCurrency());
+    }
+
+    @Test
+    void adjustmentsAreSavedWithCart() {
+        InMemoryCartResultRepository repository = new InMemoryCartResultRepository();
+        ShoppingCartResultService service = new ShoppingCartResultService(repository);
+        PricingPlan.Evaluator evaluator = PricingPlan.compile(List.of(PricingRule.tax(24))).newEvaluator("EUR");
+
+        long total = evaluator.price(List.of(1000L, 1500L));
+        assertTrue(service.saveCartResult(List.of(10.0, 15.0), Currencies.toAmount(total, "EUR"), "fi", 7,
+                evaluator.getAdjustments()));
+
+        CartResult saved = repository.findHistory(7, 1).get(0);
+        assertEquals(31.0, saved.getTotalPrice(), 0.0001);
+        assertEquals(1, saved.getAdjustments().size());
+        assertEquals(PricingRule.Type.TAX, saved.getAdjustments().get(0).getType());
+        assertEquals(6.0, saved.getAdjustments().get(0).getAmount(), 0.0001);
+    }
+}
@@ -0,0 +1,128 @@
+package otp2.shoppingcartapp.classes;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+
+    @Test
+    void emptySketchReturnsNaN() {
+        QuantileSketch sketch = new QuantileSketch();
+        assertEquals(0, sketch.getCount());
+        assertTrue(Double.isNaN(sketch.quantile(0.5)));
+        assertTrue(Double.isNaN(sketch.getMin()));
+    }
+
+    @Test
+    void quantilesOfUniformValuesAreAccurate() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 1; i <= 100_000; i++) {
+            sketch.add(i);
+        }
+        assertEquals(100_000, sketch.getCount());
+        assertEquals(50_000, sketch.quantile(0.5), 500);
+        assertEquals(90_000, sketch.quantile(0.9), 300);
+        assertEquals(99_000, sketch.quantile(0.99), 100);
+        assertEquals(1, sketch.quantile(0), 1e-9);
+        assertEquals(100_000, sketch.quantile(1), 1e-9);
+    }
+
+    @Test
+    void quantilesOfSkewedValuesMatchExactRanks() {
+        Random random = new Random(42);
+        double[] values = new double[50_000];
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(random.nextGaussian() * 1.5 + 3);
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+        for (double q : new double[]{0.5, 0.9, 0.99}) {
+            double estimate = sketch.quantile(q);
+            double rank = Arrays.binarySearch(values, estimate);
+            double position = (rank >= 0 ? rank : -rank - 1) / values.length;
+            assertEquals(q, position, 0.01, "rank error at q=" + q);
+        }
+    }
+
+    @Test
+    void memoryStaysBounded() {
+        QuantileSketch sketch = new QuantileSketch();
+        Random random = new Random(7);
+        for (int i = 0; i < 500_000; i++) {
+            sketch.add(random.nextDouble() * 1000);
+        }
+        assertTrue(sketch.getCentroidCount() <= 2 * QuantileSketch.DEFAULT_COMPRESSION,
+                "centroids: " + sketch.getCentroidCount());
+    }
+
+    @Test
+    void mergedSketchesMatchSingleSketch() {
+        QuantileSketch single = new QuantileSketch();
+        QuantileSketch left = new QuantileSketch();
+        QuantileSketch right = new QuantileSketch();
+        Random random = new Random(1);
+        for (int i = 0; i < 40_000; i++) {
+            double value = random.nextDouble() * 200;
+            single.add(value);
+            (i % 3 == 0 ? left : right).add(value);
+        }
+        left.merge(right);
+
+        assertEquals(single.getCount(), left.getCount());
+        assertEquals(single.getMin(), left.getMin());
+        assertEquals(single.getMax(), left.getMax());
+        for (double q : new double[]{0.1, 0.5, 0.9, 0.99}) {
+            assertEquals(single.quantile(q), left.quantile(q), 2.0, "q=" + q);
+        }
+    }
+
+    @Test
+    void bytesRoundTripKeepsQuantiles() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < 10_000; i++) {
+            sketch.add(i % 997);
+        }
+        QuantileSketch restored = QuantileSketch.fromBytes(sketch.toBytes());
+
+        assertEquals(sketch.getCount(), restored.getCount());
+        assertEquals(sketch.quantile(0.5), restored.quantile(0.5), 1e-9);
+        assertEquals(sketch.quantile(0.99), restored.quantile(0.99), 1e-9);
+        restored.add(5000);
+        assertEquals(5000, restored.getMax());
+    }
+
+    @Test
+    void rejectsForeignBytes() {
+        assertThrows(IllegalArgumentException.class, () -> QuantileSketch.fromBytes(new byte[]{1, 2}));
+    }
+
+    @Test
+    void rejectsTruncatedOversizedAndInconsistentBytes() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < 1000; i++) {
+            sketch.add(i);
+        }
+        byte[] bytes = sketch.toBytes();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> QuantileSketch.fromBytes(Arrays.copyOf(bytes, bytes.length - 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> QuantileSketch.fromBytes(Arrays.copyOf(bytes, bytes.length + 16)));
+
+        byte[] hugeCount = bytes.clone();
+        ByteBuffer.wrap(hugeCount).putInt(36, Integer.MAX_VALUE);
+        assertThrows(IllegalArgumentException.class, () -> QuantileSketch.fromBytes(hugeCount));
+
+        byte[] wrongWeight = bytes.clone();
+        ByteBuffer.wrap(wrongWeight).putDouble(12, 5.0);
+        assertThrows(IllegalArgumentException.class, () -> QuantileSketch.fromBytes(wrongWeight));
+
+        assertEquals(1000, QuantileSketch.fromBytes(bytes).getCount());
+    }
+}
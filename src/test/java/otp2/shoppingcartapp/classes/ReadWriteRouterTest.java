@@ -0,0 +1,117 @@
+package otp2.shoppingcartapp.classes;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadWriteRouterTest {
+
+    /** Connection source that records how often it was used and can be switched off. */
+    private static class FakeSource implements ConnectionSource {
+        final String name;
+        boolean up = true;
+        int opened;
+
+        FakeSource(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (!up) {
+                throw new SQLException(name + " down");
+            }
+            opened++;
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "isValid" -> up;
+                        case "toString" -> name;
+                        default -> null;
+                    });
+        }
+
+        @Override
+        public String getDescription() {
+            return name;
+        }
+    }
+
+    @Test
+    void readsFallBackToPrimaryWithoutReplicas() throws Exception {
+        FakeSource primary = new FakeSource("primary");
+        ReadWriteRouter router = new ReadWriteRouter(primary, List.of());
+
+        router.reader().getConnection();
+
+        assertEquals(1, primary.opened);
+        assertSame(primary, router.writer());
+        assertEquals("primary", router.reader().getDescription());
+    }
+
+    @Test
+    void readsAreBalancedOverReplicas() throws Exception {
+        FakeSource primary = new FakeSource("primary");
+        FakeSource r1 = new FakeSource("r1");
+        FakeSource r2 = new FakeSource("r2");
+        ReadWriteRouter router = new ReadWriteRouter(primary, List.of(r1, r2));
+
+        for (int i = 0; i < 10; i++) {
+            router.reader().getConnection();
+        }
+
+        assertEquals(0, primary.opened);
+        assertEquals(5, r1.opened);
+        assertEquals(5, r2.opened);
+    }
+
+    @Test
+    void failedReplicaIsSkippedUntilHealthCheckRestoresIt() throws Exception {
+        FakeSource primary = new FakeSource("primary");
+        FakeSource r1 = new FakeSource("r1");
+        FakeSource r2 = new FakeSource("r2");
+        ReadWriteRouter router = new ReadWriteRouter(primary, List.of(r1, r2));
+
+        r1.up = false;
+        for (int i = 0; i < 4; i++) {
+            router.reader().getConnection();
+        }
+        assertEquals(4, r2.opened);
+        assertEquals(1, router.getHealthyReplicaCount());
+
+        r1.up = true;
+        router.checkHealth();
+        assertEquals(2, router.getHealthyReplicaCount());
+    }
+
+    @Test
+    void allReplicasDownFallsBackToPrimary() throws Exception {
+        FakeSource primary = new FakeSource("primary");
+        FakeSource r1 = new FakeSource("r1");
+        r1.up = false;
+        ReadWriteRouter router = new ReadWriteRouter(primary, List.of(r1));
+
+        router.reader().getConnection();
+        router.reader().getConnection();
+
+        assertEquals(2, primary.opened);
+        assertTrue(router.reader().getDescription().contains("r1 (down)"));
+    }
+
+    @Test
+    void readHostsAreParsedWithDefaultPort() {
+        List<DatabaseConfig> replicas = DatabaseConfig.parseEndpoints(
+                "replica1:3307, replica2 ,", "3306", "shopping_cart_db", "root", "pw");
+
+        assertEquals(2, replicas.size());
+        assertEquals("replica1", replicas.get(0).getHost());
+        assertEquals("3307", replicas.get(0).getPort());
+        assertEquals("replica2", replicas.get(1).getHost());
+        assertEquals("3306", replicas.get(1).getPort());
+    }
+}
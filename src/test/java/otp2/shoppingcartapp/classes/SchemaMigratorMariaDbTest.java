@@ -0,0 +1,254 @@
+package otp2.shoppingcartapp.classes;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the bundled migrations against a real MariaDB server, e.g. the one of
+ * <code>docker compose up -d db</code>:
+ * <pre>
+ * TEST_DB_HOST=localhost TEST_DB_PASSWORD=example mvn test -Dtest=SchemaMigratorMariaDbTest
+ * </pre>
+ * The tests are skipped when {@code TEST_DB_HOST} is not set. They create and
+ * drop the scratch database <code>otp2_migration_test</code>.
+ */
+class SchemaMigratorMariaDbTest {
+
+    private static final String DATABASE = "otp2_migration_test";
+
+    private DatabaseConfig config;
+
+    private static String env(String key, String defaultValue) {
+        String value = System.getenv(key);
+        return value != null ? value : defaultValue;
+    }
+
+    private Connection serverConnection() throws SQLException {
+        return DriverManager.getConnection(
+                "jdbc:mariadb://" + config.getHost() + ":" + config.getPort() + "/",
+                config.getUser(), config.getPassword());
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(config.getDatabaseUrl(), config.getUser(), config.getPassword());
+    }
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        String host = System.getenv("TEST_DB_HOST");
+        assumeTrue(host != null && !host.isBlank(), "TEST_DB_HOST not set");
+        config = new DatabaseConfig(host, env("TEST_DB_PORT", "3306"), DATABASE,
+                env("TEST_DB_USER", "root"), env("TEST_DB_PASSWORD", ""));
+        try (Connection conn = serverConnection(); Statement st = conn.createStatement()) {
+            st.execute("DROP DATABASE IF EXISTS " + DATABASE);
+            st.execute("CREATE DATABASE " + DATABASE);
+        }
+    }
+
+    @AfterEach
+    void dropDatabase() throws SQLException {
+        if (config == null) {
+            return;
+        }
+        try (Connection conn = serverConnection(); Statement st = conn.createStatement()) {
+            st.execute("DROP DATABASE IF EXISTS " + DATABASE);
+        }
+    }
+
+    private void execute(String... statements) throws SQLException {
+        try (Connection conn = connect(); Statement st = conn.createStatement()) {
+            for (String sql : statements) {
+                st.execute(sql);
+            }
+        }
+    }
+
+    private long queryLong(String sql) throws SQLException {
+        try (Connection conn = connect(); Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            assertTrue(rs.next());
+            return rs.getLong(1);
+        }
+    }
+
+    private long partitionCount(String name) throws SQLException {
+        return queryLong("SELECT COUNT(*) FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() "
+                + "AND TABLE_NAME = 'cart_results' AND PARTITION_NAME = '" + name + "'");
+    }
+
+    private String primaryKeyOf(String table) throws SQLException {
+        StringBuilder key = new StringBuilder();
+        try (Connection conn = connect(); Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COLUMN_NAME FROM information_schema.STATISTICS "
+                     + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = '" + table + "' "
+                     + "AND INDEX_NAME = 'PRIMARY' ORDER BY SEQ_IN_INDEX")) {
+            while (rs.next()) {
+                key.append(key.length() == 0 ? "" : ",").append(rs.getString(1));
+            }
+        }
+        return key.toString();
+    }
+
+    private static String currentMonthPartition() {
+        YearMonth month = YearMonth.now();
+        return String.format("p%d%02d", month.getYear(), month.getMonthValue());
+    }
+
+    /** Saves a cart the way JdbcCartResultRepository does and returns its id. */
+    private long saveCart() throws SQLException {
+        try (Connection conn = connect();
+             PreparedStatement ps = conn.prepareStatement(
+                     "INSERT INTO cart_results (customer_id, total_price, language, item_count, currency) "
+                             + "VALUES (7, 12.50, 'vi', 2, 'VND')", Statement.RETURN_GENERATED_KEYS)) {
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                assertTrue(keys.next());
+                long id = keys.getLong(1);
+                execute("INSERT INTO cart_items (cart_result_id, item_index, price) VALUES ("
+                        + id + ", 0, 5.00), (" + id + ", 1, 7.50)");
+                return id;
+            }
+        }
+    }
+
+    private void assertAllApplied(SchemaMigrator migrator) {
+        for (String line : migrator.status()) {
+            assertTrue(line.contains("applied"), line);
+        }
+    }
+
+    @Test
+    void freshDatabaseGetsEveryMigrationAndMonthlyPartitions() throws SQLException {
+        SchemaMigrator migrator = new SchemaMigrator(config);
+
+        assertEquals(SchemaMigrator.MIGRATION_FILES.size(), migrator.migrate());
+        assertEquals(0, migrator.migrate());
+        assertAllApplied(migrator);
+
+        assertEquals(1, partitionCount("p_future"));
+        assertEquals(1, partitionCount(currentMonthPartition()));
+        long id = saveCart();
+        assertEquals(2, queryLong("SELECT COUNT(*) FROM cart_items WHERE cart_result_id = " + id));
+        assertEquals(3, queryLong("SELECT COUNT(*) FROM exchange_rates WHERE version = 1"));
+    }
+
+    @Test
+    void statisticsSnapshotsOfSeveralInstancesAreMerged() {
+        new SchemaMigrator(config).migrate();
+        JdbcCartStatisticsRepository repository = new JdbcCartStatisticsRepository(config, config);
+        CartStatistics first = new CartStatistics("client-1");
+        CartStatistics second = new CartStatistics("client-2");
+        first.record("en", 2, 10.0);
+        second.record("fr", 3, 20.0);
+        Instant now = Instant.parse("2026-10-01T10:00:00Z");
+        repository.saveAll(first.snapshot(now));
+        repository.saveAll(second.snapshot(now.plusSeconds(1)));
+        first.record("en", 1, 5.0);
+        repository.saveAll(first.snapshot(now.plusSeconds(300)));
+
+        assertEquals(3, repository.findLatest(CartStatistics.ALL_LANGUAGES).getCartCount());
+        assertEquals(2, repository.findLatest("en").getCartCount());
+        assertEquals(now.plusSeconds(300), repository.findLatest(CartStatistics.ALL_LANGUAGES).getTakenAt());
+        assertEquals(3, repository.findHistory(CartStatistics.ALL_LANGUAGES, 10).size());
+        assertNull(repository.findLatest("vi"));
+
+        CartStatistics restarted = new CartStatistics("client-1");
+        assertEquals(2, restarted.resume(repository));
+        assertEquals(2, restarted.getCount("en"));
+        assertEquals(0, restarted.getCount("fr"));
+    }
+
+    @Test
+    void databaseMigratedWithTheEarlierV2IsAccepted() throws SQLException {
+        SchemaMigrator migrator = new SchemaMigrator(config);
+        migrator.migrate();
+        execute("UPDATE schema_migrations SET checksum = 4178642832 WHERE version = 2");
+
+        assertEquals(0, migrator.migrate());
+        assertAllApplied(migrator);
+        assertEquals(SchemaMigrator.loadMigrations().get(1).checksum,
+                queryLong("SELECT checksum FROM schema_migrations WHERE version = 2"));
+    }
+
+    @Test
+    void legacyCartTableIsUpgradedToThePartitionedLayout() throws SQLException {
+        execute("CREATE TABLE cart_results (id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, customer_id INT NULL, "
+                        + "total_price DOUBLE NOT NULL, language VARCHAR(10) NOT NULL, item_count INT NOT NULL) "
+                        + "ENGINE=InnoDB",
+                "CREATE TABLE cart_items (id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, cart_result_id INT NOT NULL, "
+                        + "item_index INT NOT NULL, price DOUBLE NOT NULL, "
+                        + "FOREIGN KEY (cart_result_id) REFERENCES cart_results (id)) ENGINE=InnoDB",
+                "INSERT INTO cart_results (customer_id, total_price, language, item_count) VALUES (1, 3.5, 'fi', 1)");
+        SchemaMigrator migrator = new SchemaMigrator(config);
+
+        assertEquals(SchemaMigrator.MIGRATION_FILES.size(), migrator.migrate());
+        assertAllApplied(migrator);
+
+        assertEquals(1, partitionCount("p_future"));
+        assertEquals(1, partitionCount(currentMonthPartition()));
+        assertEquals(1, queryLong("SELECT COUNT(*) FROM cart_results WHERE created_at IS NOT NULL AND currency = 'EUR'"));
+        assertEquals(1, queryLong("SELECT COUNT(*) FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE() "
+                + "AND INDEX_NAME = 'idx_cart_results_customer_created' AND SEQ_IN_INDEX = 1"));
+        assertEquals("cart_result_id,item_index", primaryKeyOf("cart_items"));
+        long id = saveCart();
+        assertEquals(2, queryLong("SELECT COUNT(*) FROM cart_items WHERE cart_result_id = " + id));
+    }
+
+    @Test
+    void databaseStuckOnTheLegacyTableIsRepaired() throws SQLException {
+        execute("CREATE TABLE cart_results (id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, customer_id INT NULL, "
+                + "total_price DOUBLE NOT NULL, language VARCHAR(10) NOT NULL, item_count INT NOT NULL) ENGINE=InnoDB");
+        // V1 and V2 recorded as applied, V2 having skipped the existing table; V3 then failed.
+        List<SchemaMigrator.Migration> migrations = SchemaMigrator.loadMigrations();
+        SchemaMigrator migrator = new SchemaMigrator(config);
+        migrator.status();
+        for (SchemaMigrator.Migration m : migrations.subList(0, 2)) {
+            execute("INSERT INTO schema_migrations (version, description, checksum) VALUES ("
+                    + m.version + ", '" + m.description + "', " + m.checksum + ")");
+        }
+        execute("CREATE TABLE localization_strings (language VARCHAR(10) NOT NULL, `key` VARCHAR(100) NOT NULL, "
+                + "value VARCHAR(1000) NOT NULL, PRIMARY KEY (language, `key`))");
+
+        assertEquals(migrations.size() - 2, migrator.migrate());
+        assertAllApplied(migrator);
+        assertEquals(1, partitionCount("p_future"));
+    }
+
+    @Test
+    void legacyLocalizationTableGetsTheClusteredKey() throws SQLException {
+        execute("CREATE TABLE localization_strings (id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                        + "language VARCHAR(10) NOT NULL, `key` VARCHAR(100) NOT NULL, value VARCHAR(1000) NOT NULL)",
+                "INSERT INTO localization_strings (language, `key`, value) VALUES ('en', 'ok', 'OK'), ('fr', 'ok', 'OK')");
+        SchemaMigrator migrator = new SchemaMigrator(config);
+
+        assertEquals(SchemaMigrator.MIGRATION_FILES.size(), migrator.migrate());
+        assertEquals("language,key", primaryKeyOf("localization_strings"));
+        assertEquals(2, queryLong("SELECT COUNT(*) FROM localization_strings"));
+        assertEquals(0, migrator.migrate());
+    }
+
+    @Test
+    void legacyTableWithDuplicateKeysStopsTheMigration() throws SQLException {
+        execute("CREATE TABLE cart_items (id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, cart_result_id BIGINT NOT NULL, "
+                        + "item_index INT NOT NULL, price DECIMAL(12,2) NOT NULL)",
+                "INSERT INTO cart_items (cart_result_id, item_index, price) VALUES (1, 1, 1.00), (1, 1, 2.00)");
+        SchemaMigrator migrator = new SchemaMigrator(config);
+
+        StorageException e = assertThrows(StorageException.class, migrator::migrate);
+        assertTrue(e.getMessage().contains("cart_items"), e.getMessage());
+        assertEquals("id", primaryKeyOf("cart_items"));
+    }
+}
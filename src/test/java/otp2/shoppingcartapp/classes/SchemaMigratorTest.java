@@ -0,0 +1,74 @@
+package otp2.shoppingcartapp.classes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigratorTest {
+
+    @Test
+    void bundledMigrationsAreLoadedInVersionOrder() {
+        List<SchemaMigrator.Migration> migrations = SchemaMigrator.loadMigrations();
+
+        assertEquals(SchemaMigrator.MIGRATION_FILES.size(), migrations.size());
+        for (int i = 0; i < migrations.size(); i++) {
+            assertEquals(i + 1, migrations.get(i).version);
+            assertFalse(migrations.get(i).sql.isBlank());
+        }
+        assertEquals("create localization strings", migrations.get(0).description);
+    }
+
+    @Test
+    void schemaContainsPerformanceKeys() {
+        String all = String.join("\n", SchemaMigrator.loadMigrations().stream().map(m -> m.sql).toList());
+
+        assertTrue(all.contains("PRIMARY KEY (language, `key`)"));
+        assertTrue(all.contains("PRIMARY KEY (cart_result_id, item_index)"));
+        assertTrue(all.contains("PARTITION BY RANGE COLUMNS (created_at)"));
+    }
+
+    @Test
+    void splitStatementsIgnoresCommentsAndBlankLines() {
+        String script = "-- comment\n\nCREATE TABLE a (\n  id INT\n);\n-- another\nCREATE INDEX i ON a (id);\n";
+
+        List<String> statements = SchemaMigrator.splitStatements(script);
+
+        assertEquals(2, statements.size());
+        assertEquals("CREATE TABLE a (\nid INT\n)", statements.get(0));
+        assertEquals("CREATE INDEX i ON a (id)", statements.get(1));
+    }
+
+    @Test
+    void cartTablesScriptHasTwoStatements() {
+        SchemaMigrator.Migration v2 = SchemaMigrator.loadMigrations().get(1);
+        assertEquals(2, SchemaMigrator.splitStatements(v2.sql).size());
+    }
+
+    @Test
+    void checksumChangesWithContent() {
+        SchemaMigrator.Migration a = new SchemaMigrator.Migration(1, "a", "SELECT 1");
+        SchemaMigrator.Migration b = new SchemaMigrator.Migration(1, "a", "SELECT 2");
+        assertNotEquals(a.checksum, b.checksum);
+    }
+
+    @Test
+    void checksumIgnoresLineEndingsAndTrailingWhitespace() {
+        SchemaMigrator.Migration lf = new SchemaMigrator.Migration(1, "a", "-- x\nSELECT 1;\n");
+        SchemaMigrator.Migration crlf = new SchemaMigrator.Migration(1, "a", "-- x  \r\nSELECT 1;\t\r\n");
+
+        assertEquals(lf.checksum, crlf.checksum);
+        assertEquals("-- x\nSELECT 1;\n", SchemaMigrator.normalize(crlf.sql));
+    }
+
+    @Test
+    void earlierV2ChecksumIsStillAccepted() {
+        SchemaMigrator.Migration v2 = SchemaMigrator.loadMigrations().get(1);
+
+        assertTrue(v2.matches(v2.checksum));
+        assertTrue(v2.matches(4178642832L));
+        assertFalse(v2.matches(v2.checksum + 1));
+        assertFalse(v2.sql.contains("p_history"));
+    }
+}
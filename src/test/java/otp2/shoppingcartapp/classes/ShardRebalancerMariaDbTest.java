@@ -0,0 +1,169 @@
+package otp2.shoppingcartapp.classes;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Moves carts between scratch databases (<code>otp2_shard_test_0</code>, <code>_1</code>,
+ * and <code>_2</code> as a retired shard) of the MariaDB server given by
+ * {@code TEST_DB_HOST}; skipped without it (see {@link SchemaMigratorMariaDbTest}).
+ */
+class ShardRebalancerMariaDbTest {
+
+    private final ShardRouter router = new ShardRouter(List.of("a", "b"), 64);
+    private DatabaseConfig[] shards;
+
+    private static String env(String key, String defaultValue) {
+        String value = System.getenv(key);
+        return value != null ? value : defaultValue;
+    }
+
+    private void onServer(String sql) throws SQLException {
+        DatabaseConfig any = shards[0];
+        try (Connection conn = DriverManager.getConnection(
+                "jdbc:mariadb://" + any.getHost() + ":" + any.getPort() + "/", any.getUser(), any.getPassword());
+             Statement st = conn.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    @BeforeEach
+    void createShards() throws SQLException {
+        String host = System.getenv("TEST_DB_HOST");
+        assumeTrue(host != null && !host.isBlank(), "TEST_DB_HOST not set");
+        shards = new DatabaseConfig[3];
+        for (int s = 0; s < 3; s++) {
+            shards[s] = new DatabaseConfig(host, env("TEST_DB_PORT", "3306"), "otp2_shard_test_" + s,
+                    env("TEST_DB_USER", "root"), env("TEST_DB_PASSWORD", ""));
+            onServer("DROP DATABASE IF EXISTS otp2_shard_test_" + s);
+            onServer("CREATE DATABASE otp2_shard_test_" + s);
+            new SchemaMigrator(shards[s]).migrate();
+        }
+    }
+
+    @AfterEach
+    void dropShards() throws SQLException {
+        if (shards == null) {
+            return;
+        }
+        for (int s = 0; s < 3; s++) {
+            onServer("DROP DATABASE IF EXISTS otp2_shard_test_" + s);
+        }
+    }
+
+    private void execute(int shard, String sql) throws SQLException {
+        try (Connection conn = shards[shard].getConnection(); Statement st = conn.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    private long count(int shard, String sql) throws SQLException {
+        try (Connection conn = shards[shard].getConnection();
+             Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            assertTrue(rs.next());
+            return rs.getLong(1);
+        }
+    }
+
+    private int customerOn(int shard) {
+        int customer = 1;
+        while (router.shardFor(customer) != shard) {
+            customer++;
+        }
+        return customer;
+    }
+
+    @Test
+    void cartsOfMovedCustomersAreCopiedAndDeleted() throws SQLException {
+        int moved = customerOn(1);
+        int staying = customerOn(0);
+        // molemmat asiakkaat ovat vielä shardilla 0, kuten ennen shardin lisäämistä
+        execute(0, "INSERT INTO cart_results (id, customer_id, total_price, language, item_count, created_at) VALUES "
+                + "(101, " + moved + ", 3.00, 'en', 2, '2026-10-01 10:00:00'), "
+                + "(102, " + staying + ", 1.00, 'en', 1, '2026-10-01 10:05:00')");
+        execute(0, "INSERT INTO cart_items (cart_result_id, item_index, price) VALUES (101, 1, 1.00), (101, 2, 2.00), "
+                + "(102, 1, 1.00)");
+        execute(0, "INSERT INTO cart_adjustments (cart_result_id, adjustment_index, rule_type, label, amount) "
+                + "VALUES (101, 1, 'TAX', 'Tax 24%', 0.72)");
+
+        ShardRebalancer rebalancer = new ShardRebalancer(router, List.of(shards[0], shards[1]));
+        assertEquals(1, rebalancer.rebalance());
+        assertEquals(0, rebalancer.rebalance(), "a second run has nothing to move");
+
+        assertEquals(1, count(1, "SELECT COUNT(*) FROM cart_results WHERE id = 101 "
+                + "AND created_at = '2026-10-01 10:00:00' AND customer_id = " + moved));
+        assertEquals(2, count(1, "SELECT COUNT(*) FROM cart_items WHERE cart_result_id = 101"));
+        assertEquals(1, count(1, "SELECT COUNT(*) FROM cart_adjustments WHERE cart_result_id = 101"));
+        assertEquals(0, count(0, "SELECT COUNT(*) FROM cart_results WHERE id = 101"));
+        assertEquals(0, count(0, "SELECT COUNT(*) FROM cart_items WHERE cart_result_id = 101"));
+        assertEquals(1, count(0, "SELECT COUNT(*) FROM cart_results WHERE id = 102"));
+    }
+
+    @Test
+    void cartSavedDuringTheMoveIsKeptForTheNextRun() throws SQLException {
+        int moved = customerOn(1);
+        execute(0, "INSERT INTO cart_results (id, customer_id, total_price, language, item_count) VALUES "
+                + "(101, " + moved + ", 1.00, 'en', 1)");
+        execute(0, "INSERT INTO cart_items (cart_result_id, item_index, price) VALUES (101, 1, 1.00)");
+        // kohdeshardin yhteyttä avattaessa vanha instanssi tallentaa vielä uuden ostoskorin lähteeseen
+        ConnectionSource target = new ConnectionSource() {
+            private boolean saved;
+
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (!saved) {
+                    saved = true;
+                    execute(0, "INSERT INTO cart_results (id, customer_id, total_price, language, item_count) "
+                            + "VALUES (102, " + moved + ", 2.00, 'en', 1)");
+                    execute(0, "INSERT INTO cart_items (cart_result_id, item_index, price) VALUES (102, 1, 2.00)");
+                }
+                return shards[1].getConnection();
+            }
+
+            @Override
+            public String getDescription() {
+                return shards[1].getDescription();
+            }
+        };
+
+        assertEquals(1, new ShardRebalancer(router, List.of(shards[0], target)).rebalance());
+        assertEquals(1, count(1, "SELECT COUNT(*) FROM cart_results WHERE id = 101"));
+        assertEquals(1, count(0, "SELECT COUNT(*) FROM cart_results WHERE id = 102"), "not copied, so not deleted");
+        assertEquals(1, count(0, "SELECT COUNT(*) FROM cart_items WHERE cart_result_id = 102"));
+
+        assertEquals(1, new ShardRebalancer(router, List.of(shards[0], shards[1])).rebalance());
+        assertEquals(2, count(1, "SELECT COUNT(*) FROM cart_results WHERE customer_id = " + moved));
+        assertEquals(0, count(0, "SELECT COUNT(*) FROM cart_results"));
+    }
+
+    @Test
+    void retiredShardIsEmptied() throws SQLException {
+        int first = customerOn(0);
+        int second = customerOn(1);
+        execute(2, "INSERT INTO cart_results (id, customer_id, total_price, language, item_count) VALUES "
+                + "(201, " + first + ", 1.00, 'en', 1), (202, " + second + ", 2.00, 'en', 1), "
+                + "(203, NULL, 3.00, 'en', 1)");
+        execute(2, "INSERT INTO cart_items (cart_result_id, item_index, price) VALUES "
+                + "(201, 1, 1.00), (202, 1, 2.00), (203, 1, 3.00)");
+
+        ShardRebalancer rebalancer = new ShardRebalancer(router, List.of(shards[0], shards[1]), List.of(shards[2]));
+        assertEquals(2, rebalancer.rebalance());
+
+        assertEquals(1, count(0, "SELECT COUNT(*) FROM cart_results WHERE id = 201"));
+        assertEquals(1, count(0, "SELECT COUNT(*) FROM cart_items WHERE cart_result_id = 201"));
+        assertEquals(1, count(1, "SELECT COUNT(*) FROM cart_results WHERE id = 202"));
+        assertEquals(0, count(2, "SELECT COUNT(*) FROM cart_results WHERE customer_id IS NOT NULL"));
+        assertEquals(1, count(2, "SELECT COUNT(*) FROM cart_results WHERE id = 203"), "anonymous carts stay");
+    }
+}
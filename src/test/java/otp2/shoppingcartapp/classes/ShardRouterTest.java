@@ -0,0 +1,70 @@
+package otp2.shoppingcartapp.classes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardRouterTest {
+
+    private static final List<String> THREE = List.of("db-shard-1:3306", "db-shard-2:3306", "db-shard-3:3306");
+
+    @Test
+    void sameCustomerAlwaysGoesToSameShard() {
+        ShardRouter router = new ShardRouter(THREE, ShardRouter.DEFAULT_VIRTUAL_NODES);
+        ShardRouter rebuilt = new ShardRouter(THREE, ShardRouter.DEFAULT_VIRTUAL_NODES);
+
+        for (int customer = 1; customer <= 1000; customer++) {
+            int shard = router.shardFor(customer);
+            assertEquals(shard, router.shardFor(customer));
+            assertEquals(shard, rebuilt.shardFor(customer));
+        }
+    }
+
+    @Test
+    void customersAreSpreadEvenly() {
+        ShardRouter router = new ShardRouter(THREE, ShardRouter.DEFAULT_VIRTUAL_NODES);
+        int[] counts = new int[3];
+        for (int customer = 1; customer <= 30_000; customer++) {
+            counts[router.shardFor(customer)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 8_000 && count < 12_000, "uneven distribution: " + count);
+        }
+    }
+
+    @Test
+    void addingShardMovesOnlyItsShareOfCustomers() {
+        ShardRouter three = new ShardRouter(THREE, ShardRouter.DEFAULT_VIRTUAL_NODES);
+        ShardRouter four = new ShardRouter(List.of("db-shard-1:3306", "db-shard-2:3306", "db-shard-3:3306",
+                "db-shard-4:3306"), ShardRouter.DEFAULT_VIRTUAL_NODES);
+
+        int moved = 0;
+        for (int customer = 1; customer <= 20_000; customer++) {
+            int before = three.shardFor(customer);
+            int after = four.shardFor(customer);
+            if (before != after) {
+                moved++;
+                // siirtyneet asiakkaat menevät vain uudelle shardille
+                assertEquals(3, after);
+            }
+        }
+        assertTrue(moved > 3_500 && moved < 6_500, "moved " + moved);
+    }
+
+    @Test
+    void anonymousCartsAreSpreadRoundRobin() {
+        ShardRouter router = new ShardRouter(THREE, 16);
+
+        assertEquals(0, router.shardFor(null));
+        assertEquals(1, router.shardFor(null));
+        assertEquals(2, router.shardFor(null));
+        assertEquals(0, router.shardFor(null));
+    }
+
+    @Test
+    void rejectsEmptyShardList() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardRouter(List.of(), 16));
+    }
+}
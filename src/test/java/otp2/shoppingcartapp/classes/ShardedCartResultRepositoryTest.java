@@ -0,0 +1,112 @@
+package otp2.shoppingcartapp.classes;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedCartResultRepositoryTest {
+
+    private final List<InMemoryCartResultRepository> shards = List.of(
+            new InMemoryCartResultRepository(),
+            new InMemoryCartResultRepository(),
+            new InMemoryCartResultRepository());
+    private final ShardRouter router = new ShardRouter(List.of("a", "b", "c"), 64);
+    private final ShardedCartResultRepository repository = new ShardedCartResultRepository(router, shards);
+
+    private static CartResult cart(double price, Integer customerId) {
+        return new CartResult(List.of(price), price, "en", customerId);
+    }
+
+    @Test
+    void customerCartsAreStoredOnTheirShard() {
+        for (int customer = 1; customer <= 50; customer++) {
+            long id = repository.save(cart(customer, customer));
+            assertNotNull(shards.get(router.shardFor(customer)).findById(id));
+        }
+        assertEquals(50, shards.stream().mapToInt(InMemoryCartResultRepository::count).sum());
+    }
+
+    @Test
+    void anonymousCartsAreSpreadOverAllShards() {
+        for (int i = 0; i < 9; i++) {
+            repository.save(cart(i, null));
+        }
+        for (InMemoryCartResultRepository shard : shards) {
+            assertEquals(3, shard.count());
+        }
+    }
+
+    @Test
+    void customerHistoryReadsOneShard() {
+        repository.save(cart(1.0, 42));
+        repository.save(cart(2.0, 42));
+        repository.save(cart(3.0, 7));
+
+        List<CartResult> history = repository.findHistory(42, 10);
+
+        assertEquals(2, history.size());
+        assertTrue(history.stream().allMatch(c -> c.getCustomerId() == 42));
+    }
+
+    /** Shard with a fixed history, newest first, like a real shard returns it. */
+    private static CartResultRepository fixedShard(CartResult... history) {
+        return new CartResultRepository() {
+            @Override
+            public long save(CartResult cart) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<CartResult> findHistory(Integer customerId, int limit) {
+                return Arrays.stream(history)
+                        .filter(c -> customerId == null || customerId.equals(c.getCustomerId()))
+                        .limit(limit)
+                        .toList();
+            }
+        };
+    }
+
+    private static CartResult stored(long id, int minute, Integer customerId) {
+        return cart(id, customerId).withIdentity(id, Instant.parse("2026-10-01T12:00:00Z").plusSeconds(60L * minute));
+    }
+
+    @Test
+    void fullHistoryIsMergedNewestFirstAndLimited() {
+        ShardedCartResultRepository fixed = new ShardedCartResultRepository(router, List.of(
+                fixedShard(stored(4, 6, null), stored(1, 1, null)),
+                fixedShard(stored(2, 5, null), stored(5, 2, null)),
+                fixedShard(stored(6, 4, null), stored(3, 3, null))));
+
+        List<CartResult> history = fixed.findHistory(null, 4);
+
+        assertEquals(List.of(4.0, 2.0, 6.0, 3.0),
+                history.stream().map(CartResult::getTotalPrice).toList());
+    }
+
+    @Test
+    void customerHistoryIsReadFromAllShardsWhileRebalancing() {
+        int home = router.shardFor(42);
+        CartResult[] moved = {stored(7, 2, 42)};
+        List<CartResultRepository> fixedShards = new ArrayList<>();
+        for (int s = 0; s < 3; s++) {
+            // uusi koti on vielä tyhjä, vanha kori on toisella shardilla (ja kopioituna kolmannella)
+            fixedShards.add(s == home ? fixedShard(stored(8, 3, 42)) : fixedShard(moved));
+        }
+
+        assertEquals(1, new ShardedCartResultRepository(router, fixedShards).findHistory(42, 10).size());
+
+        List<CartResult> history = new ShardedCartResultRepository(router, fixedShards, true).findHistory(42, 10);
+        assertEquals(List.of(8L, 7L), history.stream().map(CartResult::getId).toList());
+    }
+
+    @Test
+    void shardCountMustMatchRouter() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShardedCartResultRepository(router, List.of(new InMemoryCartResultRepository())));
+    }
+}
@@ -1,56 +1,148 @@
 package otp2.shoppingcartapp.classes;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.*;
 
 class ShoppingCartResultServiceTest {
+
+    private InMemoryCartResultRepository repository;
+    private ShoppingCartResultService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryCartResultRepository();
+        service = new ShoppingCartResultService(repository);
+    }
+
     @Test
     void testSaveCartNullCustomer() {
-        assertDoesNotThrow(() ->
-                ShoppingCartResultService.saveCartResult(
-                        List.of(1.0, 2.0), 3.0, "en", null
-                )
-        );
-    }
-
-    @Test
-    void saveCartResultDoesNotThrowWithNullCustomerId() {
-        assertDoesNotThrow(() ->
-                ShoppingCartResultService.saveCartResult(
-                        Arrays.asList(1.0, 2.0, 3.0),
-                        6.0,
-                        "en",
-                        null          // haaran: customerId == null
-                )
-        );
-    }
-
-    @Test
-    void saveCartResultDoesNotThrowWithCustomerId() {
-        assertDoesNotThrow(() ->
-                ShoppingCartResultService.saveCartResult(
-                        Arrays.asList(10.0, 20.0),
-                        30.0,
-                        "fr",
-                        123           // haaran: customerId != null
-                )
-        );
-    }
-
-    @Test
-    void saveCartResultDoesNotThrowWithEmptyPrices() {
-        assertDoesNotThrow(() ->
-                ShoppingCartResultService.saveCartResult(
-                        Collections.emptyList(), // item_count = 0
-                        0.0,
-                        "en",
-                        null
-                )
-        );
+        assertTrue(service.saveCartResult(List.of(1.0, 2.0), 3.0, "en", null));
+        assertEquals(1, repository.count());
+    }
+
+    @Test
+    void saveCartResultStoresItemsWithNullCustomerId() {
+        assertTrue(service.saveCartResult(Arrays.asList(1.0, 2.0, 3.0), 6.0, "en", null));
+
+        CartResult saved = repository.findById(1);
+        assertNotNull(saved);
+        assertNull(saved.getCustomerId());          // haara: customerId == null
+        assertEquals(3, saved.getItemCount());
+        assertArrayEquals(new double[]{1.0, 2.0, 3.0}, saved.getPrices());
+        assertEquals(6.0, saved.getTotalPrice(), 0.0001);
+        assertEquals("en", saved.getLanguage());
+    }
+
+    @Test
+    void saveCartResultStoresCustomerId() {
+        assertTrue(service.saveCartResult(Arrays.asList(10.0, 20.0), 30.0, "fr", 123));
+
+        CartResult saved = repository.findById(1);
+        assertEquals(123, saved.getCustomerId());   // haara: customerId != null
+        assertEquals("fr", saved.getLanguage());
+    }
+
+    @Test
+    void saveCartResultUsesCurrencyOfLanguage() {
+        assertTrue(service.saveCartResult(List.of(500.0), 500.0, "ur", null));
+        assertTrue(service.saveCartResult(List.of(9.5), 9.5, "fr", null));
+        assertTrue(service.saveCartResult(List.of(20000.0), 20000.0, "vi", null, List.of(), "vnd"));
+
+        assertEquals("PKR", repository.findById(1).getCurrency());
+        assertEquals("EUR", repository.findById(2).getCurrency());
+        assertEquals("VND", repository.findById(3).getCurrency());
+    }
+
+    @Test
+    void saveCartResultRejectsUnknownCurrency() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.saveCartResult(List.of(1.0), 1.0, "en", null, List.of(), "XYZ"));
+        assertEquals(0, repository.count());
+    }
+
+    @Test
+    void saveCartResultWithEmptyPrices() {
+        assertTrue(service.saveCartResult(Collections.emptyList(), 0.0, "en", null));
+        assertEquals(0, repository.findById(1).getItemCount()); // item_count = 0
+    }
+
+    @Test
+    void savedCartsGetIncreasingIds() {
+        InMemoryCartResultRepository repo = new InMemoryCartResultRepository();
+        long first = repo.save(new CartResult(new double[]{1.0}, 1.0, "en", null));
+        long second = repo.save(new CartResult(new double[]{2.0}, 2.0, "vi", null));
+        assertTrue(second > first);
+        assertEquals("vi", repo.findById(second).getLanguage());
+    }
+
+    @Test
+    void saveCartResultReturnsFalseWhenStorageFails() {
+        ShoppingCartResultService failing = new ShoppingCartResultService(new FailingRepository());
+
+        assertFalse(assertDoesNotThrow(() -> failing.saveCartResult(List.of(1.0), 1.0, "en", null)));
+    }
+
+    @Test
+    void getHistoryReturnsNewestFirstAndFiltersByCustomer() {
+        service.saveCartResult(List.of(1.0), 1.0, "en", 7);
+        service.saveCartResult(List.of(2.0, 3.0), 5.0, "fr", null);
+        service.saveCartResult(List.of(4.0), 4.0, "vi", 7);
+
+        List<CartResult> all = service.getHistory(null, 10);
+        assertEquals(3, all.size());
+        assertEquals("vi", all.get(0).getLanguage());
+        assertNotNull(all.get(0).getCreatedAt());
+
+        List<CartResult> customer = service.getHistory(7, 10);
+        assertEquals(2, customer.size());
+        assertTrue(customer.get(0).getId() > customer.get(1).getId());
+
+        assertEquals(1, service.getHistory(null, 1).size());
+    }
+
+    @Test
+    void getHistoryReturnsEmptyListWhenStorageFails() {
+        ShoppingCartResultService failing = new ShoppingCartResultService(new FailingRepository());
+        assertTrue(failing.getHistory(null, 10).isEmpty());
+    }
+
+    @Test
+    void repeatedFailuresOpenTheCircuit() {
+        AtomicInteger attempts = new AtomicInteger();
+        CartResultRepository counting = new FailingRepository() {
+            @Override
+            public long save(CartResult cart) {
+                attempts.incrementAndGet();
+                return super.save(cart);
+            }
+        };
+        ShoppingCartResultService guarded = new ShoppingCartResultService(counting,
+                new CircuitBreaker("cart-results", 2, 60_000, 60_000));
+
+        for (int i = 0; i < 5; i++) {
+            assertFalse(guarded.saveCartResult(List.of(1.0), 1.0, "en", null));
+        }
+        assertEquals(2, attempts.get());
+        assertEquals(CircuitBreaker.State.OPEN, guarded.getCircuitBreaker().getState());
+    }
+
+    /** Repository simulating an unreachable database. */
+    private static class FailingRepository implements CartResultRepository {
+        @Override
+        public long save(CartResult cart) {
+            throw new StorageException("Failed to connect/save shopping cart");
+        }
+
+        @Override
+        public List<CartResult> findHistory(Integer customerId, int limit) {
+            throw new StorageException("Failed to read cart history");
+        }
     }
 }